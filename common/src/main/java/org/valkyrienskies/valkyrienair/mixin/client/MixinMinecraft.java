@@ -2,10 +2,12 @@ package org.valkyrienskies.valkyrienair.mixin.client;
 
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
+import java.util.concurrent.CompletableFuture;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.valkyrienskies.valkyrienair.client.feature.ship_water_pockets.ShipWaterPocketExternalWaterCull;
 import org.valkyrienskies.valkyrienair.client.feature.ship_water_pockets.ShipWaterPocketExternalWaterCullRenderContext;
 import org.valkyrienskies.valkyrienair.feature.ship_water_pockets.ShipWaterPocketManager;
@@ -29,4 +31,9 @@ public abstract class MixinMinecraft {
         ShipWaterPocketExternalWaterCull.clear();
         ShipWaterPocketExternalWaterCullRenderContext.clear();
     }
+
+    @Inject(method = "reloadResourcePacks()Ljava/util/concurrent/CompletableFuture;", at = @At("RETURN"))
+    private void valkyrienair$invalidateShipWaterPocketShapes(final CallbackInfoReturnable<CompletableFuture<Void>> cir) {
+        cir.getReturnValue().thenRun(ShipWaterPocketManager::onShapeResourcesReloaded);
+    }
 }
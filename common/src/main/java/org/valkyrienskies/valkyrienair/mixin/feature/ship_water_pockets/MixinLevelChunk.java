@@ -49,8 +49,11 @@ public abstract class MixinLevelChunk {
         if (!placedFluid.isEmpty() && (previousFluid.isEmpty() || previousFluid.getType() != placedFluid.getType())) {
             ShipWaterPocketManager.onExternalShipFluidPlacement(level, ship.getId(), pos, placedFluid.getType());
         }
+        if (!placedFluid.isEmpty() || !previousFluid.isEmpty()) {
+            ShipWaterPocketManager.onShipyardFluidChanged(level, ship.getId(), pos);
+        }
         if (geometryDirty) {
-            ShipWaterPocketManager.markShipDirty(level, ship.getId());
+            ShipWaterPocketManager.markShipDirty(level, ship.getId(), pos);
         }
     }
 }
@@ -2,11 +2,14 @@ package org.valkyrienskies.valkyrienair.mixin.server;
 
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.valkyrienskies.valkyrienair.feature.ship_water_pockets.ShipWaterPocketManager;
 
 @Mixin(value = MinecraftServer.class, priority = 900)
@@ -21,5 +24,10 @@ public abstract class MixinMinecraftServer {
             ShipWaterPocketManager.tickServerLevel(level);
         }
     }
-}
 
+    @Inject(method = "reloadResources", at = @At("RETURN"))
+    private void valkyrienair$invalidateShipWaterPocketShapes(final Collection<String> selectedIds,
+        final CallbackInfoReturnable<CompletableFuture<Void>> cir) {
+        cir.getReturnValue().thenRun(ShipWaterPocketManager::onShapeResourcesReloaded);
+    }
+}
@@ -19,4 +19,10 @@ object ValkyrienAirConfig {
      */
     @JvmStatic
     var shipPocketParticleSpeedMultiplier: Double = 1.0
+
+    /**
+     * Splits large ship geometry rebuilds into Z-slabs computed on several cores. Results are identical either way.
+     */
+    @JvmStatic
+    var enableParallelShipGeometry: Boolean = true
 }
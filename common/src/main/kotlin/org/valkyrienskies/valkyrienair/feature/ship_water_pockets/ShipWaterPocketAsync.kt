@@ -1,14 +1,21 @@
 package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.ints.IntArrayList
 import net.minecraft.core.BlockPos
+import net.minecraft.world.level.BlockGetter
 import net.minecraft.world.level.Level
 import net.minecraft.world.level.block.Blocks
 import net.minecraft.world.level.block.LiquidBlock
+import net.minecraft.world.level.block.entity.BlockEntity
 import net.minecraft.world.level.block.state.BlockState
 import net.minecraft.world.level.block.state.properties.BlockStateProperties
+import net.minecraft.world.level.chunk.PalettedContainer
 import net.minecraft.world.level.material.FlowingFluid
 import net.minecraft.world.level.material.Fluid
+import net.minecraft.world.level.material.FluidState
 import net.minecraft.world.level.material.Fluids
+import org.valkyrienskies.valkyrienair.config.ValkyrienAirConfig
 import java.util.BitSet
 
 internal data class GeometryAsyncSnapshot(
@@ -31,6 +38,16 @@ internal data class GeometryAsyncSnapshot(
     val floodFluid: Fluid,
     val blockStates: Array<BlockState>,
     val shapeGeometry: Array<ShapeWaterGeometry>,
+    // Ids into [templateRegistry]; resolved on the capturing thread so workers never intern templates.
+    val templateIds: IntArray,
+    val templateRegistry: ShapeTemplateRegistry,
+    // Uniform-brick classification from capture; null walks every voxel.
+    val bricks: GeometryBrickGrid? = null,
+    // Upper bound on concurrent Z-slabs for the union-find pass; 1 keeps it on the calling thread.
+    val maxParallelSlabs: Int = 1,
+    // Sorted voxel indices whose shape changed since [incrementalBase] was captured. Both are null for full rebuilds.
+    val dirtyIndices: IntArray? = null,
+    val incrementalBase: GeometryIncrementalBase? = null,
 )
 
 internal data class GeometryAsyncResult(
@@ -51,18 +68,170 @@ internal data class GeometryAsyncResult(
     val flooded: BitSet,
     val materializedWater: BitSet,
     val outsideVoid: BitSet,
-    val faceCondXP: ShortArray,
-    val faceCondYP: ShortArray,
-    val faceCondZP: ShortArray,
+    val faceCondXP: ByteArray,
+    val faceCondYP: ByteArray,
+    val faceCondZP: ByteArray,
     val templatePalette: List<ShapeCellTemplate>,
     val templateIndexByVoxel: IntArray,
-    val voxelExteriorComponentMask: LongArray,
-    val voxelInteriorComponentMask: LongArray,
-    val voxelSimulationComponentMask: LongArray,
+    val voxelExteriorComponentMask: SparseVoxelLongArray,
+    val voxelInteriorComponentMask: SparseVoxelLongArray,
+    val voxelSimulationComponentMask: SparseVoxelLongArray,
     val componentGraphDegraded: Boolean,
     val computeNanos: Long,
+    val incrementalBase: GeometryIncrementalBase? = null,
+    // Voxels whose faces the incremental path re-unioned; -1 for a full rebuild.
+    val incrementalReunionVoxels: Int = -1,
 )
 
+/**
+ * Per-voxel geometry and union-find labels from the last non-degraded geometry pass.
+ *
+ * The next rebuild for the same bounds can reuse shapes/templates for unchanged voxels and only re-run union-find over
+ * components that touch a changed voxel; every other component keeps its previous connectivity verbatim.
+ *
+ * Costs about 16 bytes per voxel (shape reference, template index, node base and three face bytes) plus 4 per node,
+ * so the manager drops it once a ship has gone a while without edits.
+ */
+internal class GeometryIncrementalBase(
+    val minX: Int,
+    val minY: Int,
+    val minZ: Int,
+    val sizeX: Int,
+    val sizeY: Int,
+    val sizeZ: Int,
+    val shapeGeometry: Array<ShapeWaterGeometry>,
+    val templatePalette: List<ShapeCellTemplate>,
+    val templateRegistry: ShapeTemplateRegistry,
+    val templateIndexByVoxel: IntArray,
+    val faceCondXP: ByteArray,
+    val faceCondYP: ByteArray,
+    val faceCondZP: ByteArray,
+    val nodeBaseByVoxel: IntArray,
+    // Union-find root per component node; nodes of one connected component share a label.
+    val componentLabelByNode: IntArray,
+    // Indexed by label: whether the component touches the simulation bounds.
+    val boundaryByLabel: BooleanArray,
+) {
+    fun matchesBounds(minX: Int, minY: Int, minZ: Int, sizeX: Int, sizeY: Int, sizeZ: Int): Boolean {
+        return this.minX == minX && this.minY == minY && this.minZ == minZ &&
+            this.sizeX == sizeX && this.sizeY == sizeY && this.sizeZ == sizeZ
+    }
+
+    fun overlapsBounds(minX: Int, minY: Int, minZ: Int, sizeX: Int, sizeY: Int, sizeZ: Int): Boolean {
+        return this.minX < minX + sizeX && minX < this.minX + this.sizeX &&
+            this.minY < minY + sizeY && minY < this.minY + this.sizeY &&
+            this.minZ < minZ + sizeZ && minZ < this.minZ + this.sizeZ
+    }
+}
+
+/**
+ * Shifts [base] into new (overlapping) bounds so growing or shrinking a ship's AABB by a block stays incremental.
+ *
+ * Per-voxel data of the overlap is copied over at its new index; node ids and component labels are kept as-is. The
+ * returned dirty set extends [dirtyIndices] with every voxel that was not covered before plus, on each face that moved,
+ * the one covered layer whose boundary exposure flipped: the old face layer when the bounds grew past it, the newly
+ * exposed face layer when they shrank. A component's boundary contact can only change through those, so all other
+ * previous components (including those on faces that did not move) keep their labels and classification verbatim.
+ *
+ * Returns null when so little of the old volume survives that a full (brick/slab-parallel) rebuild is cheaper.
+ */
+internal fun remapGeometryIncrementalBase(
+    base: GeometryIncrementalBase,
+    minX: Int,
+    minY: Int,
+    minZ: Int,
+    sizeX: Int,
+    sizeY: Int,
+    sizeZ: Int,
+    dirtyIndices: IntArray,
+): Pair<GeometryIncrementalBase, IntArray>? {
+    val volume = sizeX * sizeY * sizeZ
+    val shapeGeometry = Array(volume) { EMPTY_GEOMETRY }
+    val templateIndexByVoxel = IntArray(volume)
+    val faceCondXP = ByteArray(volume)
+    val faceCondYP = ByteArray(volume)
+    val faceCondZP = ByteArray(volume)
+    val nodeBaseByVoxel = IntArray(volume) { -1 }
+    val dirty = BitSet(volume)
+    for (dirtyIdx in dirtyIndices) dirty.set(dirtyIdx)
+
+    val oldSizeX = base.sizeX
+    val oldSizeY = base.sizeY
+    val offX = minX - base.minX
+    val offY = minY - base.minY
+    val offZ = minZ - base.minZ
+    // Covered layers (in new coordinates) on a moved face; -1 when that face stayed put.
+    val lowLayerY = if (offY != 0) maxOf(0, -offY) else -1
+    val highLayerY = if (oldSizeY - offY != sizeY) minOf(sizeY, oldSizeY - offY) - 1 else -1
+    val lowLayerZ = if (offZ != 0) maxOf(0, -offZ) else -1
+    val highLayerZ = if (base.sizeZ - offZ != sizeZ) minOf(sizeZ, base.sizeZ - offZ) - 1 else -1
+    for (z in 0 until sizeZ) {
+        val oz = z + offZ
+        for (y in 0 until sizeY) {
+            val oy = y + offY
+            val rowStart = sizeX * (y + sizeY * z)
+            if (oz !in 0 until base.sizeZ || oy !in 0 until oldSizeY) {
+                dirty.set(rowStart, rowStart + sizeX)
+                continue
+            }
+            // Clip the row to the old X range; the uncovered ends are new voxels.
+            val x0 = maxOf(0, -offX)
+            val x1 = minOf(sizeX, oldSizeX - offX)
+            if (x0 >= x1) {
+                dirty.set(rowStart, rowStart + sizeX)
+                continue
+            }
+            dirty.set(rowStart, rowStart + x0)
+            dirty.set(rowStart + x1, rowStart + sizeX)
+            val oldRowStart = (x0 + offX) + oldSizeX * (oy + oldSizeY * oz)
+            val len = x1 - x0
+            System.arraycopy(base.shapeGeometry, oldRowStart, shapeGeometry, rowStart + x0, len)
+            System.arraycopy(base.templateIndexByVoxel, oldRowStart, templateIndexByVoxel, rowStart + x0, len)
+            System.arraycopy(base.faceCondXP, oldRowStart, faceCondXP, rowStart + x0, len)
+            System.arraycopy(base.faceCondYP, oldRowStart, faceCondYP, rowStart + x0, len)
+            System.arraycopy(base.faceCondZP, oldRowStart, faceCondZP, rowStart + x0, len)
+            System.arraycopy(base.nodeBaseByVoxel, oldRowStart, nodeBaseByVoxel, rowStart + x0, len)
+
+            if (y == lowLayerY || y == highLayerY || z == lowLayerZ || z == highLayerZ) {
+                dirty.set(rowStart + x0, rowStart + x1)
+            } else {
+                if (offX != 0) dirty.set(rowStart + x0)
+                if (oldSizeX - offX != sizeX) dirty.set(rowStart + x1 - 1)
+            }
+        }
+    }
+
+    val dirtyCount = dirty.cardinality()
+    if (dirtyCount.toLong() * 4L > volume.toLong() * 3L) return null
+
+    val remapped = GeometryIncrementalBase(
+        minX = minX,
+        minY = minY,
+        minZ = minZ,
+        sizeX = sizeX,
+        sizeY = sizeY,
+        sizeZ = sizeZ,
+        shapeGeometry = shapeGeometry,
+        templatePalette = base.templatePalette,
+        templateRegistry = base.templateRegistry,
+        templateIndexByVoxel = templateIndexByVoxel,
+        faceCondXP = faceCondXP,
+        faceCondYP = faceCondYP,
+        faceCondZP = faceCondZP,
+        nodeBaseByVoxel = nodeBaseByVoxel,
+        componentLabelByNode = base.componentLabelByNode,
+        boundaryByLabel = base.boundaryByLabel,
+    )
+    val out = IntArray(dirtyCount)
+    var n = 0
+    var idx = dirty.nextSetBit(0)
+    while (idx >= 0 && idx < volume) {
+        out[n++] = idx
+        idx = dirty.nextSetBit(idx + 1)
+    }
+    return remapped to out
+}
+
 private val EMPTY_GEOMETRY = ShapeWaterGeometry(
     fullSolid = false,
     refined = false,
@@ -81,9 +250,9 @@ private fun mixHash64(acc: Long, value: Long): Long {
     return h xor (h ushr 29)
 }
 
-private fun geometryStateHash(blockState: BlockState, geom: ShapeWaterGeometry, idx: Int): Long {
+// Position-free part of a voxel's signature contribution, so uniform bricks hash their content once.
+private fun geometryContentHash(blockState: BlockState, geom: ShapeWaterGeometry): Long {
     var h = -7046029254386353131L
-    h = mixHash64(h, idx.toLong())
     h = mixHash64(h, blockState.hashCode().toLong())
     h = mixHash64(h, if (geom.fullSolid) 0xF00DL else 0x0L)
     h = mixHash64(h, if (geom.refined) 0xBEEFL else 0x0L)
@@ -99,55 +268,111 @@ private fun geometryStateHash(blockState: BlockState, geom: ShapeWaterGeometry,
     return h
 }
 
+// Voxel contributions are summed, so the signature does not depend on the order voxels (or bricks) are visited in.
+private fun geometryVoxelHash(contentHash: Long, idx: Int): Long = mixHash64(contentHash, idx.toLong())
+
 private fun isWaterloggableForFlood(state: BlockState, floodFluid: Fluid): Boolean {
     return canonicalFloodSource(floodFluid) == Fluids.WATER && state.hasProperty(BlockStateProperties.WATERLOGGED)
 }
 
 private const val MAX_COMPONENT_GRAPH_NODES = 12_000_000
 private const val MIN_HEURISTIC_PROMOTED_COMPONENT_SIZE = 4
-
-private class ShapeTemplateKey(
-    private val fullSolid: Boolean,
-    private val refined: Boolean,
-    private val boxBits: LongArray,
-) {
-    override fun equals(other: Any?): Boolean {
-        if (this === other) return true
-        if (other !is ShapeTemplateKey) return false
-        if (fullSolid != other.fullSolid) return false
-        if (refined != other.refined) return false
-        return boxBits.contentEquals(other.boxBits)
+// Below this volume forking costs more than it saves.
+private const val PARALLEL_GEOMETRY_MIN_VOLUME = 262_144
+
+// Z boundaries [0, ..., sizeZ] splitting the volume into at most [maxSlabs] slabs of similar depth. With bricks the
+// boundaries snap to brick layers so no brick straddles two slabs.
+private fun planGeometrySlabs(sizeZ: Int, bricks: GeometryBrickGrid?, maxSlabs: Int): IntArray {
+    val slabs = minOf(maxSlabs, sizeZ)
+    if (slabs <= 1) return intArrayOf(0, sizeZ)
+    val bounds = IntArrayList(slabs + 1)
+    bounds.add(0)
+    for (k in 1 until slabs) {
+        var z = (sizeZ.toLong() * k / slabs).toInt()
+        if (bricks != null) {
+            val layer = (z - bricks.originZ + GEOMETRY_BRICK_SIZE - 1) shr GEOMETRY_BRICK_SHIFT
+            z = bricks.originZ + (layer shl GEOMETRY_BRICK_SHIFT)
+        }
+        if (z > bounds.getInt(bounds.size - 1) && z < sizeZ) bounds.add(z)
     }
+    bounds.add(sizeZ)
+    return bounds.toIntArray()
+}
 
-    override fun hashCode(): Int {
-        var result = fullSolid.hashCode()
-        result = 31 * result + refined.hashCode()
-        result = 31 * result + boxBits.contentHashCode()
-        return result
-    }
+/**
+ * Main-thread copy of the shipyard chunk sections overlapping a geometry rebuild.
+ *
+ * Copying section palettes is proportional to the number of sections, not voxels; decoding states and evaluating shapes
+ * happens on the worker in [resolveGeometryAsyncSnapshot]. Blocks with dynamic shapes (block-entity driven, e.g. moving
+ * pistons or shulker boxes) cannot be evaluated off-thread and are resolved eagerly into [contextEntries].
+ */
+internal class GeometryAsyncCapture(
+    val generation: Long,
+    val invalidationStamp: Long,
+    val minX: Int,
+    val minY: Int,
+    val minZ: Int,
+    val sizeX: Int,
+    val sizeY: Int,
+    val sizeZ: Int,
+    val prevMinX: Int,
+    val prevMinY: Int,
+    val prevMinZ: Int,
+    val prevSizeX: Int,
+    val prevSizeY: Int,
+    val prevSizeZ: Int,
+    val prevSimulationDomain: BitSet,
+    val floodFluid: Fluid,
+    val sections: CapturedShipyardSections,
+    val bricks: GeometryBrickGrid,
+    val contextEntries: Int2ObjectOpenHashMap<ShapeCacheEntry>,
+    val templateRegistry: ShapeTemplateRegistry,
+    val dirtyIndices: IntArray?,
+    val incrementalBase: GeometryIncrementalBase?,
+)
 
-    companion object {
-        fun fromGeometry(geom: ShapeWaterGeometry): ShapeTemplateKey {
-            val bits = LongArray(geom.boxes.size * 6)
-            var i = 0
-            for (box in geom.boxes) {
-                bits[i++] = java.lang.Double.doubleToLongBits(box.minX)
-                bits[i++] = java.lang.Double.doubleToLongBits(box.minY)
-                bits[i++] = java.lang.Double.doubleToLongBits(box.minZ)
-                bits[i++] = java.lang.Double.doubleToLongBits(box.maxX)
-                bits[i++] = java.lang.Double.doubleToLongBits(box.maxY)
-                bits[i++] = java.lang.Double.doubleToLongBits(box.maxZ)
-            }
-            return ShapeTemplateKey(
-                fullSolid = geom.fullSolid,
-                refined = geom.refined,
-                boxBits = bits,
-            )
+/**
+ * Read-only view over copied section palettes, used as the block getter for off-thread shape evaluation. Missing or
+ * all-air sections read as air and block entities are never visible.
+ */
+internal class CapturedShipyardSections(
+    private val sectionMinX: Int,
+    private val sectionMinY: Int,
+    private val sectionMinZ: Int,
+    private val sectionCountX: Int,
+    private val sectionCountY: Int,
+    private val sectionCountZ: Int,
+    private val containers: Array<PalettedContainer<BlockState>?>,
+    private val levelMinBuildHeight: Int,
+    private val levelHeight: Int,
+) : BlockGetter {
+    val sectionCount: Int
+        get() = containers.size
+
+    fun stateAt(x: Int, y: Int, z: Int): BlockState {
+        val sx = (x shr 4) - sectionMinX
+        val sy = (y shr 4) - sectionMinY
+        val sz = (z shr 4) - sectionMinZ
+        if (sx < 0 || sy < 0 || sz < 0 || sx >= sectionCountX || sy >= sectionCountY || sz >= sectionCountZ) {
+            return Blocks.AIR.defaultBlockState()
         }
+        val container = containers[sx + sectionCountX * (sy + sectionCountY * sz)]
+            ?: return Blocks.AIR.defaultBlockState()
+        return container.get(x and 15, y and 15, z and 15)
     }
+
+    override fun getBlockState(pos: BlockPos): BlockState = stateAt(pos.x, pos.y, pos.z)
+
+    override fun getFluidState(pos: BlockPos): FluidState = getBlockState(pos).fluidState
+
+    override fun getBlockEntity(pos: BlockPos): BlockEntity? = null
+
+    override fun getHeight(): Int = levelHeight
+
+    override fun getMinBuildHeight(): Int = levelMinBuildHeight
 }
 
-internal fun captureGeometryAsyncSnapshot(
+internal fun captureGeometryAsyncSections(
     level: Level,
     generation: Long,
     invalidationStamp: Long,
@@ -165,38 +390,85 @@ internal fun captureGeometryAsyncSnapshot(
     prevSizeZ: Int,
     prevSimulationDomain: BitSet,
     floodFluid: Fluid,
-): GeometryAsyncSnapshot {
-    val volume = sizeX * sizeY * sizeZ
-    val blockStates = Array(volume) { Blocks.AIR.defaultBlockState() }
-    val shapeGeometry = Array(volume) { EMPTY_GEOMETRY }
-    var signature = 0x1234_5678_9ABCL
-    signature = mixHash64(signature, sizeX.toLong())
-    signature = mixHash64(signature, sizeY.toLong())
-    signature = mixHash64(signature, sizeZ.toLong())
-    signature = mixHash64(signature, minX.toLong())
-    signature = mixHash64(signature, minY.toLong())
-    signature = mixHash64(signature, minZ.toLong())
+    dirtyIndices: IntArray? = null,
+    incrementalBase: GeometryIncrementalBase? = null,
+): GeometryAsyncCapture {
+    val registry = ShipWaterPocketShapeCache.current()
+    // A base built against an older shape registry (before a resource reload) is stale and forces a full capture. A
+    // base for shifted bounds is remapped on the worker.
+    val base = if (dirtyIndices != null && incrementalBase != null &&
+        incrementalBase.templateRegistry === registry &&
+        incrementalBase.overlapsBounds(minX, minY, minZ, sizeX, sizeY, sizeZ)
+    ) {
+        incrementalBase
+    } else {
+        null
+    }
+
+    val sectionMinX = minX shr 4
+    val sectionMinY = minY shr 4
+    val sectionMinZ = minZ shr 4
+    val sectionCountX = ((minX + sizeX - 1) shr 4) - sectionMinX + 1
+    val sectionCountY = ((minY + sizeY - 1) shr 4) - sectionMinY + 1
+    val sectionCountZ = ((minZ + sizeZ - 1) shr 4) - sectionMinZ + 1
+    val containers = arrayOfNulls<PalettedContainer<BlockState>>(sectionCountX * sectionCountY * sectionCountZ)
+    val uniformStates = arrayOfNulls<BlockState>(containers.size)
+    val contextEntries = Int2ObjectOpenHashMap<ShapeCacheEntry>()
 
     val pos = BlockPos.MutableBlockPos()
-    var idx = 0
-    for (z in 0 until sizeZ) {
-        for (y in 0 until sizeY) {
-            for (x in 0 until sizeX) {
-                pos.set(minX + x, minY + y, minZ + z)
-                val state = level.getBlockState(pos)
-                blockStates[idx] = state
-                val geometry = computeShapeWaterGeometry(level, pos, state)
-                shapeGeometry[idx] = geometry
-                signature = mixHash64(signature, geometryStateHash(state, geometry, idx))
-                idx++
+    for (sz in 0 until sectionCountZ) {
+        for (sx in 0 until sectionCountX) {
+            val chunk = level.getChunk(sectionMinX + sx, sectionMinZ + sz)
+            val chunkSections = chunk.sections
+            for (sy in 0 until sectionCountY) {
+                val brick = sx + sectionCountX * (sy + sectionCountY * sz)
+                val sectionIndex = level.getSectionIndexFromSectionY(sectionMinY + sy)
+                if (sectionIndex < 0 || sectionIndex >= chunkSections.size) {
+                    uniformStates[brick] = Blocks.AIR.defaultBlockState()
+                    continue
+                }
+                val section = chunkSections[sectionIndex]
+                if (section.hasOnlyAir()) {
+                    uniformStates[brick] = Blocks.AIR.defaultBlockState()
+                    continue
+                }
+                val states = section.states
+                containers[brick] = states.copy()
+
+                // Palette-only check: a stale palette entry just makes the brick "mixed", never wrongly uniform.
+                val first = states.get(0, 0, 0)
+                if (!first.block.hasDynamicShape() && !first.hasOffsetFunction() &&
+                    !states.maybeHas { it !== first }
+                ) {
+                    uniformStates[brick] = first
+                }
+
+                if (!states.maybeHas { it.block.hasDynamicShape() }) continue
+                // Rare: resolve block-entity driven shapes against the live level while we still own it.
+                val x0 = maxOf(minX, (sectionMinX + sx) shl 4)
+                val y0 = maxOf(minY, (sectionMinY + sy) shl 4)
+                val z0 = maxOf(minZ, (sectionMinZ + sz) shl 4)
+                val x1 = minOf(minX + sizeX, ((sectionMinX + sx) shl 4) + 16)
+                val y1 = minOf(minY + sizeY, ((sectionMinY + sy) shl 4) + 16)
+                val z1 = minOf(minZ + sizeZ, ((sectionMinZ + sz) shl 4) + 16)
+                for (z in z0 until z1) {
+                    for (y in y0 until y1) {
+                        for (x in x0 until x1) {
+                            val state = states.get(x and 15, y and 15, z and 15)
+                            if (!state.block.hasDynamicShape()) continue
+                            pos.set(x, y, z)
+                            val idx = (x - minX) + sizeX * ((y - minY) + sizeY * (z - minZ))
+                            contextEntries.put(idx, registry.entryFor(level, pos, state))
+                        }
+                    }
+                }
             }
         }
     }
 
-    return GeometryAsyncSnapshot(
+    return GeometryAsyncCapture(
         generation = generation,
         invalidationStamp = invalidationStamp,
-        geometrySignature = signature,
         minX = minX,
         minY = minY,
         minZ = minZ,
@@ -211,12 +483,171 @@ internal fun captureGeometryAsyncSnapshot(
         prevSizeZ = prevSizeZ,
         prevSimulationDomain = prevSimulationDomain,
         floodFluid = floodFluid,
+        sections = CapturedShipyardSections(
+            sectionMinX = sectionMinX,
+            sectionMinY = sectionMinY,
+            sectionMinZ = sectionMinZ,
+            sectionCountX = sectionCountX,
+            sectionCountY = sectionCountY,
+            sectionCountZ = sectionCountZ,
+            containers = containers,
+            levelMinBuildHeight = level.minBuildHeight,
+            levelHeight = level.height,
+        ),
+        bricks = GeometryBrickGrid(
+            originX = (sectionMinX shl 4) - minX,
+            originY = (sectionMinY shl 4) - minY,
+            originZ = (sectionMinZ shl 4) - minZ,
+            countX = sectionCountX,
+            countY = sectionCountY,
+            countZ = sectionCountZ,
+            uniformState = uniformStates,
+        ),
+        contextEntries = contextEntries,
+        templateRegistry = registry,
+        dirtyIndices = if (base != null) dirtyIndices else null,
+        incrementalBase = base,
+    )
+}
+
+/**
+ * Worker-side half of the capture: decodes the copied sections into per-voxel states and shapes. Shapes of unchanged
+ * voxels are reused from the incremental base (remapped first if the bounds shifted); only block states are re-read
+ * (fluid contents).
+ */
+internal fun resolveGeometryAsyncSnapshot(
+    capture: GeometryAsyncCapture,
+    cancellation: ShipPocketJobCancellation = ShipPocketJobCancellation.NONE,
+): GeometryAsyncSnapshot {
+    val minX = capture.minX
+    val minY = capture.minY
+    val minZ = capture.minZ
+    val sizeX = capture.sizeX
+    val sizeY = capture.sizeY
+    val sizeZ = capture.sizeZ
+    val volume = sizeX * sizeY * sizeZ
+    val incremental = capture.incrementalBase?.let {
+        if (it.matchesBounds(minX, minY, minZ, sizeX, sizeY, sizeZ)) {
+            it to capture.dirtyIndices!!
+        } else {
+            remapGeometryIncrementalBase(it, minX, minY, minZ, sizeX, sizeY, sizeZ, capture.dirtyIndices!!)
+        }
+    }
+    val base = incremental?.first
+    val dirtyIndices = incremental?.second
+    val registry = capture.templateRegistry
+    val sections = capture.sections
+    val dirtyMask = BitSet(volume)
+    if (dirtyIndices != null) {
+        for (dirtyIdx in dirtyIndices) dirtyMask.set(dirtyIdx)
+    }
+    val blockStates = Array(volume) { Blocks.AIR.defaultBlockState() }
+    val shapeGeometry = Array(volume) { EMPTY_GEOMETRY }
+    val templateIds = IntArray(volume)
+    var voxelHashSum = 0L
+
+    val pos = BlockPos.MutableBlockPos()
+    val bricks = capture.bricks
+    forEachGeometryBrick(bricks, sizeX, sizeY, sizeZ) { brick, x0, y0, z0, x1, y1, z1 ->
+        cancellation.throwIfCancelled()
+        val uniformState = bricks.uniformState[brick]
+        if (uniformState != null) {
+            pos.set(minX + x0, minY + y0, minZ + z0)
+            val entry = registry.entryFor(sections, pos, uniformState)
+            bricks.uniformTemplateId[brick] = entry.templateId
+            val contentHash = geometryContentHash(uniformState, entry.geometry)
+            for (z in z0 until z1) {
+                for (y in y0 until y1) {
+                    val rowStart = x0 + sizeX * (y + sizeY * z)
+                    val rowEnd = rowStart + (x1 - x0)
+                    java.util.Arrays.fill(blockStates, rowStart, rowEnd, uniformState)
+                    java.util.Arrays.fill(shapeGeometry, rowStart, rowEnd, entry.geometry)
+                    java.util.Arrays.fill(templateIds, rowStart, rowEnd, entry.templateId)
+                    for (idx in rowStart until rowEnd) {
+                        voxelHashSum += geometryVoxelHash(contentHash, idx)
+                    }
+                }
+            }
+            return@forEachGeometryBrick
+        }
+
+        for (z in z0 until z1) {
+            for (y in y0 until y1) {
+                var idx = x0 + sizeX * (y + sizeY * z)
+                for (x in x0 until x1) {
+                    val state = sections.stateAt(minX + x, minY + y, minZ + z)
+                    blockStates[idx] = state
+                    val geometry: ShapeWaterGeometry
+                    if (base != null && !dirtyMask.get(idx)) {
+                        geometry = base.shapeGeometry[idx]
+                        templateIds[idx] = base.templateIndexByVoxel[idx]
+                    } else {
+                        val entry = capture.contextEntries.get(idx) ?: run {
+                            pos.set(minX + x, minY + y, minZ + z)
+                            registry.entryFor(sections, pos, state)
+                        }
+                        geometry = entry.geometry
+                        templateIds[idx] = entry.templateId
+                    }
+                    shapeGeometry[idx] = geometry
+                    voxelHashSum += geometryVoxelHash(geometryContentHash(state, geometry), idx)
+                    idx++
+                }
+            }
+        }
+    }
+
+    var signature = 0x1234_5678_9ABCL
+    signature = mixHash64(signature, sizeX.toLong())
+    signature = mixHash64(signature, sizeY.toLong())
+    signature = mixHash64(signature, sizeZ.toLong())
+    signature = mixHash64(signature, minX.toLong())
+    signature = mixHash64(signature, minY.toLong())
+    signature = mixHash64(signature, minZ.toLong())
+    signature = mixHash64(signature, voxelHashSum)
+
+    return GeometryAsyncSnapshot(
+        generation = capture.generation,
+        invalidationStamp = capture.invalidationStamp,
+        geometrySignature = signature,
+        minX = minX,
+        minY = minY,
+        minZ = minZ,
+        sizeX = sizeX,
+        sizeY = sizeY,
+        sizeZ = sizeZ,
+        prevMinX = capture.prevMinX,
+        prevMinY = capture.prevMinY,
+        prevMinZ = capture.prevMinZ,
+        prevSizeX = capture.prevSizeX,
+        prevSizeY = capture.prevSizeY,
+        prevSizeZ = capture.prevSizeZ,
+        prevSimulationDomain = capture.prevSimulationDomain,
+        floodFluid = capture.floodFluid,
         blockStates = blockStates,
         shapeGeometry = shapeGeometry,
+        templateIds = templateIds,
+        templateRegistry = registry,
+        bricks = bricks,
+        maxParallelSlabs =
+            if (ValkyrienAirConfig.enableParallelShipGeometry && volume >= PARALLEL_GEOMETRY_MIN_VOLUME) {
+                ShipPocketAsyncRuntime.parallelism()
+            } else {
+                1
+            },
+        dirtyIndices = dirtyIndices,
+        incrementalBase = base,
     )
 }
 
-internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyncResult {
+/**
+ * [cancellation] is polled between phases and every few thousand steps of the union-find and promoted-component passes,
+ * so a job whose snapshot went stale gives its worker back quickly instead of finishing a result nobody will apply.
+ */
+internal fun computeGeometryAsync(
+    snapshot: GeometryAsyncSnapshot,
+    cancellation: ShipPocketJobCancellation = ShipPocketJobCancellation.NONE,
+): GeometryAsyncResult {
     val startNanos = System.nanoTime()
 
     val sizeX = snapshot.sizeX
@@ -224,51 +655,78 @@ internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyn
     val sizeZ = snapshot.sizeZ
     val volume = sizeX * sizeY * sizeZ
 
+    val incrementalBase = snapshot.incrementalBase?.takeIf {
+        snapshot.dirtyIndices != null && it.templateRegistry === snapshot.templateRegistry &&
+            it.matchesBounds(snapshot.minX, snapshot.minY, snapshot.minZ, sizeX, sizeY, sizeZ)
+    }
+    val dirtyIndices = snapshot.dirtyIndices ?: IntArray(0)
+
     val open = BitSet(volume)
     val flooded = BitSet(volume)
     val materialized = BitSet(volume)
-    val faceCondXP = ShortArray(volume)
-    val faceCondYP = ShortArray(volume)
-    val faceCondZP = ShortArray(volume)
-    val templateIndexByVoxel = IntArray(volume)
-    val templatePalette = ArrayList<ShapeCellTemplate>()
-    val templateLookup = HashMap<ShapeTemplateKey, Int>()
+    // Every id in the snapshot was interned before capture returned, so this copy covers all of them.
+    val templateIndexByVoxel = snapshot.templateIds
+    val templatePalette = ArrayList(snapshot.templateRegistry.templates)
+    val bricks = snapshot.bricks
+
+    fun isFloodedState(bs: BlockState): Boolean {
+        val fluidState = bs.fluidState
+        return !fluidState.isEmpty && canonicalFloodSource(fluidState.type) == snapshot.floodFluid
+    }
 
-    var idx = 0
-    for (z in 0 until sizeZ) {
-        for (y in 0 until sizeY) {
-            for (x in 0 until sizeX) {
-                val geom = snapshot.shapeGeometry[idx]
-                val templateKey = ShapeTemplateKey.fromGeometry(geom)
-                val templateIdx = templateLookup.getOrPut(templateKey) {
-                    val next = templatePalette.size
-                    templatePalette.add(buildShapeCellTemplate(geom))
-                    next
-                }
-                templateIndexByVoxel[idx] = templateIdx
-                val template = templatePalette[templateIdx]
-                if (template.hasOpenVolume) {
-                    open.set(idx)
-                }
+    fun isMaterializedState(bs: BlockState): Boolean {
+        return bs.block is LiquidBlock ||
+            (isWaterloggableForFlood(bs, snapshot.floodFluid) && bs.getValue(BlockStateProperties.WATERLOGGED))
+    }
 
-                val bs = snapshot.blockStates[idx]
-                val fluidState = bs.fluidState
-                if (!fluidState.isEmpty && canonicalFloodSource(fluidState.type) == snapshot.floodFluid) {
-                    flooded.set(idx)
-                    if (
-                        bs.block is LiquidBlock ||
-                        (isWaterloggableForFlood(bs, snapshot.floodFluid) &&
-                            bs.getValue(BlockStateProperties.WATERLOGGED))
-                    ) {
-                        materialized.set(idx)
+    fun classifyVoxel(i: Int) {
+        val template = templatePalette[templateIndexByVoxel[i]]
+        if (template.hasOpenVolume) {
+            open.set(i)
+        }
+
+        val bs = snapshot.blockStates[i]
+        if (isFloodedState(bs)) {
+            flooded.set(i)
+            if (isMaterializedState(bs)) {
+                materialized.set(i)
+            }
+        }
+    }
+
+    if (bricks == null) {
+        for (i in 0 until volume) classifyVoxel(i)
+    } else {
+        forEachGeometryBrick(bricks, sizeX, sizeY, sizeZ) { brick, x0, y0, z0, x1, y1, z1 ->
+            val uniformState = bricks.uniformState[brick]
+            if (uniformState == null) {
+                for (z in z0 until z1) {
+                    for (y in y0 until y1) {
+                        val rowStart = x0 + sizeX * (y + sizeY * z)
+                        for (i in rowStart until rowStart + (x1 - x0)) classifyVoxel(i)
                     }
                 }
-
-                idx++
+                return@forEachGeometryBrick
+            }
+            // Whole rows at once: every voxel of a uniform brick shares one template and one fluid state.
+            val isOpen = templatePalette[bricks.uniformTemplateId[brick]].hasOpenVolume
+            val isFlooded = isFloodedState(uniformState)
+            val isMaterialized = isFlooded && isMaterializedState(uniformState)
+            if (!isOpen && !isFlooded) return@forEachGeometryBrick
+            for (z in z0 until z1) {
+                for (y in y0 until y1) {
+                    val rowStart = x0 + sizeX * (y + sizeY * z)
+                    val rowEnd = rowStart + (x1 - x0)
+                    if (isOpen) open.set(rowStart, rowEnd)
+                    if (isFlooded) flooded.set(rowStart, rowEnd)
+                    if (isMaterialized) materialized.set(rowStart, rowEnd)
+                }
             }
         }
     }
 
+    cancellation.throwIfCancelled()
+
     val strideY = sizeX
     val strideZ = sizeX * sizeY
     val nodeBaseByVoxel = IntArray(volume) { -1 }
@@ -339,102 +797,333 @@ internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyn
         }
     }
 
-    idx = 0
-    for (z in 0 until sizeZ) {
-        for (y in 0 until sizeY) {
-            for (x in 0 until sizeX) {
-                if (!open.get(idx)) {
-                    idx++
-                    continue
+    fun connectFacePosZ(idx: Int, faceCondZP: ByteArray, neighborFilter: BitSet?) {
+        val n = idx + strideZ
+        if (!open.get(n) || (neighborFilter != null && !neighborFilter.get(n))) return
+        val template = templatePalette[templateIndexByVoxel[idx]]
+        val baseNode = nodeBaseByVoxel[idx]
+        val nTemplate = templatePalette[templateIndexByVoxel[n]]
+        var cond = 0
+        forEachTemplateFaceConnection(template, nTemplate, dirCodeFromA = 5) { compA, compB ->
+            cond++
+            if (!componentGraphDegraded) {
+                val nBase = nodeBaseByVoxel[n]
+                if (baseNode >= 0 && nBase >= 0) {
+                    unionNodes(baseNode + compA, nBase + compB)
                 }
+            }
+        }
+        faceCondZP[idx] = cond.toByte()
+    }
+
+    // Marks bounds-touching components and unions/measures the +X/+Y/+Z faces of one open voxel. When
+    // `neighborFilter` is given, faces towards neighbors it rejects are left untouched; +Z faces at or past `zLimit`
+    // are left for the slab merge.
+    fun connectVoxel(
+        idx: Int,
+        x: Int,
+        y: Int,
+        z: Int,
+        faceCondXP: ByteArray,
+        faceCondYP: ByteArray,
+        faceCondZP: ByteArray,
+        neighborFilter: BitSet?,
+        zLimit: Int = sizeZ,
+    ) {
+        val template = templatePalette[templateIndexByVoxel[idx]]
+        val baseNode = nodeBaseByVoxel[idx]
+
+        if (!componentGraphDegraded && baseNode >= 0) {
+            if (x == 0) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_NEG_X])
+            if (x + 1 == sizeX) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_POS_X])
+            if (y == 0) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_NEG_Y])
+            if (y + 1 == sizeY) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_POS_Y])
+            if (z == 0) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_NEG_Z])
+            if (z + 1 == sizeZ) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_POS_Z])
+        }
 
-                val templateIdx = templateIndexByVoxel[idx]
-                val template = templatePalette[templateIdx]
-                val baseNode = nodeBaseByVoxel[idx]
-
-                if (!componentGraphDegraded && baseNode >= 0) {
-                    if (x == 0) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_NEG_X])
-                    if (x + 1 == sizeX) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_POS_X])
-                    if (y == 0) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_NEG_Y])
-                    if (y + 1 == sizeY) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_POS_Y])
-                    if (z == 0) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_NEG_Z])
-                    if (z + 1 == sizeZ) markBoundaryComponents(baseNode, template.faceComponentMask[SHAPE_FACE_POS_Z])
+        if (x + 1 < sizeX) {
+            val n = idx + 1
+            if (open.get(n) && (neighborFilter == null || neighborFilter.get(n))) {
+                val nTemplate = templatePalette[templateIndexByVoxel[n]]
+                var cond = 0
+                forEachTemplateFaceConnection(template, nTemplate, dirCodeFromA = 1) { compA, compB ->
+                    cond++
+                    if (!componentGraphDegraded) {
+                        val nBase = nodeBaseByVoxel[n]
+                        if (baseNode >= 0 && nBase >= 0) {
+                            unionNodes(baseNode + compA, nBase + compB)
+                        }
+                    }
                 }
+                faceCondXP[idx] = cond.toByte()
+            }
+        }
+        if (y + 1 < sizeY) {
+            val n = idx + strideY
+            if (open.get(n) && (neighborFilter == null || neighborFilter.get(n))) {
+                val nTemplate = templatePalette[templateIndexByVoxel[n]]
+                var cond = 0
+                forEachTemplateFaceConnection(template, nTemplate, dirCodeFromA = 3) { compA, compB ->
+                    cond++
+                    if (!componentGraphDegraded) {
+                        val nBase = nodeBaseByVoxel[n]
+                        if (baseNode >= 0 && nBase >= 0) {
+                            unionNodes(baseNode + compA, nBase + compB)
+                        }
+                    }
+                }
+                faceCondYP[idx] = cond.toByte()
+            }
+        }
+        if (z + 1 < zLimit) {
+            connectFacePosZ(idx, faceCondZP, neighborFilter)
+        }
+    }
 
-                if (x + 1 < sizeX) {
-                    val n = idx + 1
-                    if (open.get(n)) {
-                        val nTemplate = templatePalette[templateIndexByVoxel[n]]
-                        var cond = 0
-                        forEachTemplateFaceConnection(template, nTemplate, dirCodeFromA = 1) { compA, compB ->
-                            cond++
-                            if (!componentGraphDegraded) {
-                                val nBase = nodeBaseByVoxel[n]
-                                if (baseNode >= 0 && nBase >= 0) {
-                                    unionNodes(baseNode + compA, nBase + compB)
-                                }
+    val faceCondXP: ByteArray
+    val faceCondYP: ByteArray
+    val faceCondZP: ByteArray
+    var incrementalReunionVoxels = -1
+    if (incrementalBase != null && !componentGraphDegraded) {
+        faceCondXP = incrementalBase.faceCondXP.copyOf()
+        faceCondYP = incrementalBase.faceCondYP.copyOf()
+        faceCondZP = incrementalBase.faceCondZP.copyOf()
+
+        val dirtyVoxel = BitSet(volume)
+        for (dirtyIdx in dirtyIndices) dirtyVoxel.set(dirtyIdx)
+
+        // Every previous component that contains or borders a changed voxel may split, merge or change boundary
+        // contact; those are re-unioned from scratch. All other components are unaffected by the edit.
+        //
+        // Edits that only open space (no changed voxel had nodes before: blocks removed, bounds grown past a closed
+        // shell) can merge components but never split one or change its boundary contact, so then only the changed
+        // voxels and their face neighbors are re-unioned and every previous component stays seeded. Otherwise the
+        // worst case is an edit bordering the exterior component, which re-unions that whole component (up to the
+        // open volume); `incrementalReunionVoxels` reports what each job actually touched.
+        val oldNodeBase = incrementalBase.nodeBaseByVoxel
+        val oldLabels = incrementalBase.componentLabelByNode
+        val oldTemplateIdx = incrementalBase.templateIndexByVoxel
+        val affectedLabel = BooleanArray(oldLabels.size)
+        val openingOnly = dirtyIndices.all { oldNodeBase[it] < 0 }
+
+        fun markOldVoxelAffected(voxel: Int) {
+            val oldBase = oldNodeBase[voxel]
+            if (oldBase < 0) return
+            val oldCount = incrementalBase.templatePalette[oldTemplateIdx[voxel]].componentCount
+            for (component in 0 until oldCount) {
+                affectedLabel[oldLabels[oldBase + component]] = true
+            }
+        }
+
+        for (dirtyIdx in dirtyIndices) {
+            val dx = dirtyIdx % sizeX
+            val dt = dirtyIdx / sizeX
+            val dy = dt % sizeY
+            val dz = dt / sizeY
+            if (!openingOnly) {
+                markOldVoxelAffected(dirtyIdx)
+                if (dx > 0) markOldVoxelAffected(dirtyIdx - 1)
+                if (dx + 1 < sizeX) markOldVoxelAffected(dirtyIdx + 1)
+                if (dy > 0) markOldVoxelAffected(dirtyIdx - strideY)
+                if (dy + 1 < sizeY) markOldVoxelAffected(dirtyIdx + strideY)
+                if (dz > 0) markOldVoxelAffected(dirtyIdx - strideZ)
+                if (dz + 1 < sizeZ) markOldVoxelAffected(dirtyIdx + strideZ)
+            }
+
+            // Faces of a changed voxel are re-measured below (or stay closed if the neighbor is solid).
+            faceCondXP[dirtyIdx] = 0
+            faceCondYP[dirtyIdx] = 0
+            faceCondZP[dirtyIdx] = 0
+            if (dx > 0) faceCondXP[dirtyIdx - 1] = 0
+            if (dy > 0) faceCondYP[dirtyIdx - strideY] = 0
+            if (dz > 0) faceCondZP[dirtyIdx - strideZ] = 0
+        }
+
+        // Seed the union-find: nodes of unaffected components join one representative and inherit its boundary flag.
+        val repByLabel = IntArray(oldLabels.size) { -1 }
+        val affectedVoxel = BitSet(volume)
+
+        // Opening-only edits: the (still seeded) neighbors join the re-union so the faces towards the changed voxel are
+        // measured and connected again.
+        fun markNeighborsAffected(idx: Int) {
+            val nx = idx % sizeX
+            val nt = idx / sizeX
+            val ny = nt % sizeY
+            val nz = nt / sizeY
+            if (nx > 0 && nodeBaseByVoxel[idx - 1] >= 0) affectedVoxel.set(idx - 1)
+            if (nx + 1 < sizeX && nodeBaseByVoxel[idx + 1] >= 0) affectedVoxel.set(idx + 1)
+            if (ny > 0 && nodeBaseByVoxel[idx - strideY] >= 0) affectedVoxel.set(idx - strideY)
+            if (ny + 1 < sizeY && nodeBaseByVoxel[idx + strideY] >= 0) affectedVoxel.set(idx + strideY)
+            if (nz > 0 && nodeBaseByVoxel[idx - strideZ] >= 0) affectedVoxel.set(idx - strideZ)
+            if (nz + 1 < sizeZ && nodeBaseByVoxel[idx + strideZ] >= 0) affectedVoxel.set(idx + strideZ)
+        }
+
+        openIdx = open.nextSetBit(0)
+        while (openIdx >= 0 && openIdx < volume) {
+            val baseNode = nodeBaseByVoxel[openIdx]
+            if (baseNode >= 0) {
+                val componentCount = templatePalette[templateIndexByVoxel[openIdx]].componentCount
+                val oldBase = oldNodeBase[openIdx]
+                if (dirtyVoxel.get(openIdx) || oldBase < 0) {
+                    affectedVoxel.set(openIdx)
+                    if (openingOnly) markNeighborsAffected(openIdx)
+                } else {
+                    for (component in 0 until componentCount) {
+                        val label = oldLabels[oldBase + component]
+                        if (affectedLabel[label]) {
+                            affectedVoxel.set(openIdx)
+                            continue
+                        }
+                        val rep = repByLabel[label]
+                        if (rep < 0) {
+                            repByLabel[label] = baseNode + component
+                            boundaryNode[baseNode + component] = incrementalBase.boundaryByLabel[label]
+                        } else {
+                            parent[baseNode + component] = rep
+                        }
+                    }
+                }
+            }
+            openIdx = open.nextSetBit(openIdx + 1)
+        }
+
+        // Connections only exist between affected voxels (an unchanged face joining an affected and an unaffected
+        // node would have put both into the same previous component).
+        cancellation.throwIfCancelled()
+        var affectedSteps = 0
+        var affectedIdx = affectedVoxel.nextSetBit(0)
+        while (affectedIdx >= 0 && affectedIdx < volume) {
+            if ((++affectedSteps and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
+            val ax = affectedIdx % sizeX
+            val at = affectedIdx / sizeX
+            val ay = at % sizeY
+            val az = at / sizeY
+            connectVoxel(affectedIdx, ax, ay, az, faceCondXP, faceCondYP, faceCondZP, neighborFilter = affectedVoxel)
+            affectedIdx = affectedVoxel.nextSetBit(affectedIdx + 1)
+        }
+        incrementalReunionVoxels = affectedSteps
+    } else {
+        faceCondXP = ByteArray(volume)
+        faceCondYP = ByteArray(volume)
+        faceCondZP = ByteArray(volume)
+
+        // Connects every voxel with z in [slabZ0, slabZ1). Slabs only union nodes of their own voxels (node ids are
+        // assigned in voxel order, so each slab owns a contiguous node range) and only write their own faces, which
+        // lets disjoint slabs run concurrently on the shared arrays.
+        fun connectSlab(slabZ0: Int, slabZ1: Int) {
+            if (bricks == null) {
+                var idx = slabZ0 * strideZ
+                for (z in slabZ0 until slabZ1) {
+                    cancellation.throwIfCancelled()
+                    for (y in 0 until sizeY) {
+                        for (x in 0 until sizeX) {
+                            if (open.get(idx)) {
+                                connectVoxel(idx, x, y, z, faceCondXP, faceCondYP, faceCondZP, null, zLimit = slabZ1)
                             }
+                            idx++
                         }
-                        faceCondXP[idx] = cond.toShort()
                     }
                 }
-                if (y + 1 < sizeY) {
-                    val n = idx + strideY
-                    if (open.get(n)) {
-                        val nTemplate = templatePalette[templateIndexByVoxel[n]]
-                        var cond = 0
-                        forEachTemplateFaceConnection(template, nTemplate, dirCodeFromA = 3) { compA, compB ->
-                            cond++
-                            if (!componentGraphDegraded) {
-                                val nBase = nodeBaseByVoxel[n]
-                                if (baseNode >= 0 && nBase >= 0) {
-                                    unionNodes(baseNode + compA, nBase + compB)
+                return
+            }
+
+            forEachGeometryBrick(bricks, sizeX, sizeY, sizeZ) { brick, x0, y0, z0, x1, y1, z1 ->
+                // Slab bounds are brick-aligned, so a brick lies entirely inside exactly one slab.
+                if (z0 < slabZ0 || z0 >= slabZ1) return@forEachGeometryBrick
+                cancellation.throwIfCancelled()
+                val uniformTemplateId = bricks.uniformTemplateId[brick]
+                val uniformTemplate = if (uniformTemplateId >= 0) templatePalette[uniformTemplateId] else null
+                // Fully closed uniform bricks have no nodes and no open faces; neighbors skip them via `open`.
+                if (uniformTemplate != null && !uniformTemplate.hasOpenVolume) return@forEachGeometryBrick
+
+                var condX = 0
+                var condY = 0
+                var condZ = 0
+                if (uniformTemplate != null && uniformTemplate.componentCount == 1) {
+                    condX = computeTemplateFaceConductance(uniformTemplate, uniformTemplate, dirCodeFromA = 1)
+                    condY = computeTemplateFaceConductance(uniformTemplate, uniformTemplate, dirCodeFromA = 3)
+                    condZ = computeTemplateFaceConductance(uniformTemplate, uniformTemplate, dirCodeFromA = 5)
+                }
+                if (condX <= 0 || condY <= 0 || condZ <= 0) {
+                    for (z in z0 until z1) {
+                        for (y in y0 until y1) {
+                            var idx = x0 + sizeX * (y + sizeY * z)
+                            for (x in x0 until x1) {
+                                if (open.get(idx)) {
+                                    connectVoxel(
+                                        idx, x, y, z, faceCondXP, faceCondYP, faceCondZP, null, zLimit = slabZ1,
+                                    )
                                 }
+                                idx++
                             }
                         }
-                        faceCondYP[idx] = cond.toShort()
                     }
+                    return@forEachGeometryBrick
                 }
-                if (z + 1 < sizeZ) {
-                    val n = idx + strideZ
-                    if (open.get(n)) {
-                        val nTemplate = templatePalette[templateIndexByVoxel[n]]
-                        var cond = 0
-                        forEachTemplateFaceConnection(template, nTemplate, dirCodeFromA = 5) { compA, compB ->
-                            cond++
-                            if (!componentGraphDegraded) {
-                                val nBase = nodeBaseByVoxel[n]
-                                if (baseNode >= 0 && nBase >= 0) {
-                                    unionNodes(baseNode + compA, nBase + compB)
-                                }
+
+                // Single-component template that connects to itself on every axis (typically air): the brick
+                // interior is one component with constant face conductance. Only the shell facing other bricks or
+                // the volume bounds needs per-voxel template matching.
+                val repNode = nodeBaseByVoxel[x0 + sizeX * (y0 + sizeY * z0)]
+                for (z in z0 until z1) {
+                    for (y in y0 until y1) {
+                        var idx = x0 + sizeX * (y + sizeY * z)
+                        for (x in x0 until x1) {
+                            if (x + 1 < x1) faceCondXP[idx] = condX.toByte()
+                            if (y + 1 < y1) faceCondYP[idx] = condY.toByte()
+                            if (z + 1 < z1) faceCondZP[idx] = condZ.toByte()
+                            if (!componentGraphDegraded) unionNodes(repNode, nodeBaseByVoxel[idx])
+                            if (x == 0 || y == 0 || z == 0 || x + 1 == x1 || y + 1 == y1 || z + 1 == z1) {
+                                connectVoxel(idx, x, y, z, faceCondXP, faceCondYP, faceCondZP, null, zLimit = slabZ1)
                             }
+                            idx++
                         }
-                        faceCondZP[idx] = cond.toShort()
                     }
                 }
+            }
+        }
 
-                idx++
+        val slabBounds = planGeometrySlabs(sizeZ, bricks, snapshot.maxParallelSlabs)
+        val slabCount = slabBounds.size - 1
+        if (slabCount <= 1) {
+            connectSlab(0, sizeZ)
+        } else {
+            ShipPocketAsyncRuntime.forEachParallel(slabCount) { slab ->
+                connectSlab(slabBounds[slab], slabBounds[slab + 1])
+            }
+            // Merge: union across the shared face between consecutive slabs.
+            for (slab in 1 until slabCount) {
+                val planeStart = (slabBounds[slab] - 1) * strideZ
+                var idx = open.nextSetBit(planeStart)
+                while (idx >= 0 && idx < planeStart + strideZ) {
+                    connectFacePosZ(idx, faceCondZP, null)
+                    idx = open.nextSetBit(idx + 1)
+                }
             }
         }
     }
 
     fun edgeCond(idxCur: Int, lx: Int, ly: Int, lz: Int, dirCode: Int): Int {
         return when (dirCode) {
-            0 -> if (lx > 0) faceCondXP[idxCur - 1].toInt() and 0xFFFF else 0
-            1 -> if (lx + 1 < sizeX) faceCondXP[idxCur].toInt() and 0xFFFF else 0
-            2 -> if (ly > 0) faceCondYP[idxCur - strideY].toInt() and 0xFFFF else 0
-            3 -> if (ly + 1 < sizeY) faceCondYP[idxCur].toInt() and 0xFFFF else 0
-            4 -> if (lz > 0) faceCondZP[idxCur - strideZ].toInt() and 0xFFFF else 0
-            else -> if (lz + 1 < sizeZ) faceCondZP[idxCur].toInt() and 0xFFFF else 0
+            0 -> if (lx > 0) faceCondXP[idxCur - 1].toInt() and 0xFF else 0
+            1 -> if (lx + 1 < sizeX) faceCondXP[idxCur].toInt() and 0xFF else 0
+            2 -> if (ly > 0) faceCondYP[idxCur - strideY].toInt() and 0xFF else 0
+            3 -> if (ly + 1 < sizeY) faceCondYP[idxCur].toInt() and 0xFF else 0
+            4 -> if (lz > 0) faceCondZP[idxCur - strideZ].toInt() and 0xFF else 0
+            else -> if (lz + 1 < sizeZ) faceCondZP[idxCur].toInt() and 0xFF else 0
         }
     }
 
+    cancellation.throwIfCancelled()
+
     val exterior = BitSet(volume)
     val strictInterior = BitSet(volume)
     val simulationDomain = BitSet(volume)
-    val voxelExteriorComponentMask = LongArray(volume)
-    val voxelInteriorComponentMask = LongArray(volume)
-    val voxelSimulationComponentMask = LongArray(volume)
+    val voxelExteriorComponentMask = SparseVoxelLongArray(volume)
+    val voxelInteriorComponentMask = SparseVoxelLongArray(volume)
+    val voxelSimulationComponentMask = SparseVoxelLongArray(volume)
+    var nextIncrementalBase: GeometryIncrementalBase? = null
 
     if (componentGraphDegraded) {
         val strictExterior = floodFillFromBoundaryGraph(open, sizeX, sizeY, sizeZ) { idxCur, lx, ly, lz, dir ->
@@ -458,6 +1147,7 @@ internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyn
             faceCondZP = faceCondZP,
             passCondThreshold = MIN_OPENING_CONDUCTANCE,
         )
+        cancellation.throwIfCancelled()
         val promoted = enclosedHeuristic.clone() as BitSet
         promoted.andNot(simulationDomain)
 
@@ -488,6 +1178,7 @@ internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyn
             }
 
             while (head < tail) {
+                if ((head and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                 val cur = promotedQueue[head++]
                 componentSize++
 
@@ -551,6 +1242,24 @@ internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyn
             if (!boundaryNode[node]) continue
             rootBoundary[findRoot(node)] = true
         }
+        nextIncrementalBase = GeometryIncrementalBase(
+            minX = snapshot.minX,
+            minY = snapshot.minY,
+            minZ = snapshot.minZ,
+            sizeX = sizeX,
+            sizeY = sizeY,
+            sizeZ = sizeZ,
+            shapeGeometry = snapshot.shapeGeometry,
+            templatePalette = templatePalette,
+            templateRegistry = snapshot.templateRegistry,
+            templateIndexByVoxel = templateIndexByVoxel,
+            faceCondXP = faceCondXP,
+            faceCondYP = faceCondYP,
+            faceCondZP = faceCondZP,
+            nodeBaseByVoxel = nodeBaseByVoxel,
+            componentLabelByNode = IntArray(nodeCount) { findRoot(it) },
+            boundaryByLabel = rootBoundary,
+        )
 
         openIdx = open.nextSetBit(0)
         while (openIdx >= 0 && openIdx < volume) {
@@ -597,6 +1306,7 @@ internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyn
             faceCondZP = faceCondZP,
             passCondThreshold = MIN_OPENING_CONDUCTANCE,
         )
+        cancellation.throwIfCancelled()
         val promotedInterior = enclosedHeuristic.clone() as BitSet
         promotedInterior.andNot(simulationDomain)
 
@@ -627,6 +1337,7 @@ internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyn
             }
 
             while (head < tail) {
+                if ((head and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                 val cur = promotedQueue[head++]
                 componentSize++
 
@@ -772,5 +1483,7 @@ internal fun computeGeometryAsync(snapshot: GeometryAsyncSnapshot): GeometryAsyn
         voxelSimulationComponentMask = voxelSimulationComponentMask,
         componentGraphDegraded = componentGraphDegraded,
         computeNanos = System.nanoTime() - startNanos,
+        incrementalBase = nextIncrementalBase,
+        incrementalReunionVoxels = incrementalReunionVoxels,
     )
 }
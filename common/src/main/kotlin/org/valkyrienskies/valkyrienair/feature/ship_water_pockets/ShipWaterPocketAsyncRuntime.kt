@@ -1,8 +1,13 @@
 package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
 
+import java.util.concurrent.CancellationException
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.concurrent.Semaphore
 import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.atomic.AtomicLong
 import java.util.function.Supplier
@@ -13,6 +18,115 @@ internal enum class ShipPocketAsyncSubsystem {
     CLIENT_CULL,
 }
 
+// Long loops poll their [ShipPocketJobCancellation] whenever `(step and CANCELLATION_POLL_MASK) == 0`.
+internal const val CANCELLATION_POLL_MASK = 0xFFF
+
+/**
+ * Cooperative cancellation flag handed to async jobs. Cancelling the returned future only completes the future; the
+ * worker keeps running until the job itself polls [throwIfCancelled], so long loops should poll it every few thousand
+ * iterations.
+ */
+internal open class ShipPocketJobCancellation {
+    @Volatile
+    var isCancelled: Boolean = false
+        private set
+
+    fun cancel() {
+        isCancelled = true
+    }
+
+    fun throwIfCancelled() {
+        onPoll()
+        if (isCancelled) throw CancellationException("Stale ship pocket job")
+    }
+
+    /** Runs at every poll; [ShipPocketSlicedJob] pauses its job here once the current slice is used up. */
+    protected open fun onPoll() {}
+
+    companion object {
+        /** Token for synchronous callers; never cancelled. */
+        @JvmField
+        val NONE = ShipPocketJobCancellation()
+    }
+}
+
+/**
+ * A job that runs in time-bounded slices driven by the calling thread, resuming where it paused on the next slice.
+ *
+ * The task gets its own (pooled) thread because it has to keep its stack between slices, but it only ever runs while
+ * [runSlice] blocks waiting for it: the caller and the job never run at the same time, and each slice costs the caller
+ * its budget plus at most one poll interval of the job. The job pauses at its [ShipPocketJobCancellation] polls, so it
+ * must poll regularly like any other cancellable job, and only from its own thread (no
+ * [ShipPocketAsyncRuntime.forEachParallel] inside). All methods must be called from the same (owning) thread.
+ */
+internal class ShipPocketSlicedJob<T>(private val task: (ShipPocketJobCancellation) -> T) {
+    private val resumeJob = Semaphore(0)
+    private val jobPaused = Semaphore(0)
+
+    @Volatile
+    private var sliceDeadlineNanos = 0L
+    private var started = false
+
+    // Written by the job thread before it releases [jobPaused] for the last time.
+    @Volatile
+    private var finished = false
+    private var result: T? = null
+    private var failure: Throwable? = null
+
+    private val cancellation = object : ShipPocketJobCancellation() {
+        override fun onPoll() {
+            if (isCancelled || System.nanoTime() < sliceDeadlineNanos) return
+            jobPaused.release()
+            resumeJob.acquireUninterruptibly()
+        }
+    }
+
+    var slices: Int = 0
+        private set
+
+    val isDone: Boolean
+        get() = finished
+
+    /** Lets the job run for about [budgetNanos]; returns true once it has finished (see [result]). */
+    fun runSlice(budgetNanos: Long): Boolean {
+        if (finished) return true
+        sliceDeadlineNanos = System.nanoTime() + budgetNanos
+        slices++
+        if (!started) {
+            started = true
+            ShipPocketAsyncRuntime.slicedJobExecutor.execute(::runJob)
+        } else {
+            resumeJob.release()
+        }
+        jobPaused.acquireUninterruptibly()
+        return finished
+    }
+
+    private fun runJob() {
+        try {
+            result = task(cancellation)
+        } catch (t: Throwable) {
+            failure = t
+        }
+        finished = true
+        jobPaused.release()
+    }
+
+    /** Result of a finished job; rethrows what the task threw. */
+    fun result(): T {
+        check(finished) { "Sliced job has not finished" }
+        failure?.let { throw it }
+        @Suppress("UNCHECKED_CAST")
+        return result as T
+    }
+
+    /** Abandons the job; a paused job unwinds from its poll on its own thread without waiting for a slice. */
+    fun cancel() {
+        cancellation.cancel()
+        if (started && !finished) resumeJob.release()
+    }
+}
+
 internal object ShipPocketAsyncRuntime {
     private const val MAX_PENDING_JOBS = 64
 
@@ -27,6 +141,8 @@ internal object ShipPocketAsyncRuntime {
         Array(ShipPocketAsyncSubsystem.entries.size) { AtomicLong(0) }
     private val discardedBySubsystem =
         Array(ShipPocketAsyncSubsystem.entries.size) { AtomicLong(0) }
+    private val cancelledBySubsystem =
+        Array(ShipPocketAsyncSubsystem.entries.size) { AtomicLong(0) }
 
     val executor: ExecutorService by lazy {
         val processors = Runtime.getRuntime().availableProcessors()
@@ -38,6 +154,52 @@ internal object ShipPocketAsyncRuntime {
         }
     }
 
+    // Threads parked under a [ShipPocketSlicedJob] between its slices; they only run while their owner waits on them.
+    val slicedJobExecutor: ExecutorService by lazy {
+        Executors.newCachedThreadPool { runnable ->
+            Thread(runnable, "ValkyrienAir-Sliced-${threadCounter.incrementAndGet()}").apply {
+                isDaemon = true
+            }
+        }
+    }
+
+    // Fork-join helpers for splitting a single job (e.g. geometry slabs). Kept apart from [executor] so a job waiting
+    // on its own subtasks can never starve the job queue.
+    private val parallelPool: ForkJoinPool by lazy {
+        ForkJoinPool(
+            parallelism(),
+            { pool ->
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool).apply {
+                    name = "ValkyrienAir-Fork-${threadCounter.incrementAndGet()}"
+                    isDaemon = true
+                }
+            },
+            null,
+            false,
+        )
+    }
+
+    @JvmStatic
+    fun parallelism(): Int = maxOf(1, Runtime.getRuntime().availableProcessors() - 1)
+
+    /**
+     * Runs `task(0 until count)` on the fork-join pool and blocks until all parts finished, rethrowing the first
+     * failure.
+     */
+    fun forEachParallel(count: Int, task: (Int) -> Unit) {
+        if (count <= 1) {
+            if (count == 1) task(0)
+            return
+        }
+        val parts = ArrayList<ForkJoinTask<*>>(count)
+        for (i in 0 until count) {
+            parts.add(parallelPool.submit(Runnable { task(i) }))
+        }
+        for (part in parts) {
+            part.join()
+        }
+    }
+
     private fun subsystemIdx(subsystem: ShipPocketAsyncSubsystem): Int = subsystem.ordinal
 
     private fun tryAcquirePendingSlot(): Boolean {
@@ -75,29 +237,65 @@ internal object ShipPocketAsyncRuntime {
     fun discarded(subsystem: ShipPocketAsyncSubsystem): Long =
         discardedBySubsystem[subsystemIdx(subsystem)].get()
 
+    @JvmStatic
+    fun cancelled(subsystem: ShipPocketAsyncSubsystem): Long =
+        cancelledBySubsystem[subsystemIdx(subsystem)].get()
+
     @JvmStatic
     fun <T> trySubmit(
         subsystem: ShipPocketAsyncSubsystem,
         task: () -> T,
+    ): CompletableFuture<T>? {
+        return trySubmitCancellable(subsystem = subsystem, task = { task() })
+    }
+
+    /**
+     * Like [trySubmit], but hands the task a [ShipPocketJobCancellation] that is flipped as soon as the returned future
+     * is cancelled, so the worker can abandon a stale job instead of holding one of the few executor threads.
+     */
+    @JvmStatic
+    fun <T> trySubmitCancellable(
+        subsystem: ShipPocketAsyncSubsystem,
+        task: (ShipPocketJobCancellation) -> T,
     ): CompletableFuture<T>? {
         if (!tryAcquirePendingSlot()) return null
 
         submittedBySubsystem[subsystemIdx(subsystem)].incrementAndGet()
 
+        val cancellation = ShipPocketJobCancellation()
         val future = CompletableFuture.supplyAsync(
             {
-                task()
+                // Cancelled while still queued: skip the work entirely.
+                cancellation.throwIfCancelled()
+                task(cancellation)
             },
             executor,
         )
-        return future.whenComplete { _, throwable ->
+        // Bookkeeping hangs off the worker's own future, whose dependents nobody else can complete: a whenComplete
+        // action is skipped once its returned future is already done, so one on the future handed out would never run
+        // after the caller cancels it, leaking the pending slot.
+        future.whenComplete { _, throwable ->
             pendingJobs.decrementAndGet()
-            if (throwable == null) {
-                completedBySubsystem[subsystemIdx(subsystem)].incrementAndGet()
-            } else {
-                failedBySubsystem[subsystemIdx(subsystem)].incrementAndGet()
+            when {
+                throwable == null -> completedBySubsystem[subsystemIdx(subsystem)].incrementAndGet()
+                isCancellation(throwable) -> cancelledBySubsystem[subsystemIdx(subsystem)].incrementAndGet()
+                else -> failedBySubsystem[subsystemIdx(subsystem)].incrementAndGet()
             }
         }
+        val tracked = future.thenApply { it }
+        tracked.whenComplete { _, throwable ->
+            if (throwable is CancellationException) cancellation.cancel()
+        }
+        return tracked
+    }
+
+    @JvmStatic
+    fun isCancellation(throwable: Throwable?): Boolean {
+        var cur = throwable
+        while (cur is CompletionException) {
+            cur = cur.cause
+        }
+        return cur is CancellationException
     }
 
     @JvmStatic
@@ -30,13 +30,13 @@ internal data class WaterSolveSnapshot(
     val outsideVoid: BitSet,
     val materializedWater: BitSet,
     val floodFluid: Fluid,
-    val faceCondXP: ShortArray,
-    val faceCondYP: ShortArray,
-    val faceCondZP: ShortArray,
+    val faceCondXP: ByteArray,
+    val faceCondYP: ByteArray,
+    val faceCondZP: ByteArray,
     val templatePalette: List<ShapeCellTemplate>,
     val templateIndexByVoxel: IntArray,
-    val voxelExteriorComponentMask: LongArray,
-    val voxelInteriorComponentMask: LongArray,
+    val voxelExteriorComponentMask: SparseVoxelLongArray,
+    val voxelInteriorComponentMask: SparseVoxelLongArray,
     val submerged: BitSet,
     val submergedCoverage: DoubleArray,
     val dominantFloodFluid: Fluid?,
@@ -46,6 +46,9 @@ internal data class WaterSolveSnapshot(
     val incX: Double,
     val incY: Double,
     val incZ: Double,
+    val heightOrder: PocketHeightOrder? = null,
+    val inputHead: Long = 0L,
+    val inputKey: Long = 0L,
 )
 
 internal data class FloodPlanResult(
@@ -64,15 +67,22 @@ internal data class WaterSolveResult(
     val waterReachable: BitSet,
     val unreachableVoid: BitSet,
     val buoyancy: BuoyancyMetrics,
+    val buoyancyProfiles: BuoyancyComponentProfiles? = null,
     val floodFluid: Fluid?,
     val computeNanos: Long,
     val floodPlan: FloodPlanResult? = null,
+    val inputHead: Long = 0L,
+    val inputKey: Long = 0L,
 )
 
-internal fun computeWaterSolveAsync(snapshot: WaterSolveSnapshot): WaterSolveResult {
+internal fun computeWaterSolveAsync(
+    snapshot: WaterSolveSnapshot,
+    cancellation: ShipPocketJobCancellation = ShipPocketJobCancellation.NONE,
+): WaterSolveResult {
     val startNanos = System.nanoTime()
     val out = BitSet(snapshot.sizeX * snapshot.sizeY * snapshot.sizeZ)
     val buoyancy = BuoyancyMetrics()
+    val buoyancyProfiles = BuoyancyComponentProfiles(snapshot.geometryRevision)
     // Start unset so the solver can publish the dominant submerged canonical fluid for this tick.
     // If no fluid is detected, keep the previous flood fluid to avoid unnecessary churn.
     val floodFluidOut = AtomicReference<Fluid?>(null)
@@ -82,6 +92,8 @@ internal fun computeWaterSolveAsync(snapshot: WaterSolveSnapshot): WaterSolveRes
         out = out,
         buoyancyOut = buoyancy,
         floodFluidOut = floodFluidOut,
+        buoyancyProfilesOut = buoyancyProfiles,
+        cancellation = cancellation,
     )
 
     val unreachable = snapshot.open.clone() as BitSet
@@ -97,7 +109,10 @@ internal fun computeWaterSolveAsync(snapshot: WaterSolveSnapshot): WaterSolveRes
         waterReachable = out,
         unreachableVoid = unreachable,
         buoyancy = buoyancy,
+        buoyancyProfiles = buoyancyProfiles,
         floodFluid = floodFluidOut.get() ?: snapshot.floodFluid,
         computeNanos = computeNanos,
+        inputHead = snapshot.inputHead,
+        inputKey = snapshot.inputKey,
     )
 }
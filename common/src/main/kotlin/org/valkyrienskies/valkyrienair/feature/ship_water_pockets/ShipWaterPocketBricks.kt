@@ -0,0 +1,70 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import net.minecraft.world.level.block.state.BlockState
+
+internal const val GEOMETRY_BRICK_SHIFT = 4
+internal const val GEOMETRY_BRICK_SIZE = 1 shl GEOMETRY_BRICK_SHIFT
+
+/**
+ * World-aligned 16³ bricks (one per captured chunk section) laid over a geometry volume, clipped to its bounds.
+ *
+ * A brick whose section palette holds a single context-independent block state is "uniform": every voxel in it shares
+ * one shape template, so capture and geometry passes can fill it in bulk instead of walking it voxel by voxel. Ship
+ * AABBs are mostly air, so on masts and long narrow hulls most bricks end up uniform.
+ */
+internal class GeometryBrickGrid(
+    // Local voxel coordinate of brick (0, 0, 0)'s min corner; <= 0 when the bounds are not section-aligned.
+    val originX: Int,
+    val originY: Int,
+    val originZ: Int,
+    val countX: Int,
+    val countY: Int,
+    val countZ: Int,
+    // Null for mixed bricks.
+    val uniformState: Array<BlockState?>,
+) {
+    // Template id per uniform brick, filled when the snapshot is resolved; -1 for mixed bricks.
+    val uniformTemplateId: IntArray = IntArray(uniformState.size) { -1 }
+
+    val brickCount: Int
+        get() = uniformState.size
+
+    fun brickIndex(bx: Int, by: Int, bz: Int): Int = bx + countX * (by + countY * bz)
+
+    fun minX(bx: Int): Int = maxOf(0, originX + (bx shl GEOMETRY_BRICK_SHIFT))
+    fun minY(by: Int): Int = maxOf(0, originY + (by shl GEOMETRY_BRICK_SHIFT))
+    fun minZ(bz: Int): Int = maxOf(0, originZ + (bz shl GEOMETRY_BRICK_SHIFT))
+    fun maxX(bx: Int, sizeX: Int): Int = minOf(sizeX, originX + ((bx + 1) shl GEOMETRY_BRICK_SHIFT))
+    fun maxY(by: Int, sizeY: Int): Int = minOf(sizeY, originY + ((by + 1) shl GEOMETRY_BRICK_SHIFT))
+    fun maxZ(bz: Int, sizeZ: Int): Int = minOf(sizeZ, originZ + ((bz + 1) shl GEOMETRY_BRICK_SHIFT))
+
+    fun uniformCount(): Int = uniformState.count { it != null }
+}
+
+/**
+ * Visits every brick of [grid] over a `sizeX*sizeY*sizeZ` volume with its clipped local bounds (max exclusive).
+ */
+internal inline fun forEachGeometryBrick(
+    grid: GeometryBrickGrid,
+    sizeX: Int,
+    sizeY: Int,
+    sizeZ: Int,
+    block: (brick: Int, x0: Int, y0: Int, z0: Int, x1: Int, y1: Int, z1: Int) -> Unit,
+) {
+    for (bz in 0 until grid.countZ) {
+        val z0 = grid.minZ(bz)
+        val z1 = grid.maxZ(bz, sizeZ)
+        if (z0 >= z1) continue
+        for (by in 0 until grid.countY) {
+            val y0 = grid.minY(by)
+            val y1 = grid.maxY(by, sizeY)
+            if (y0 >= y1) continue
+            for (bx in 0 until grid.countX) {
+                val x0 = grid.minX(bx)
+                val x1 = grid.maxX(bx, sizeX)
+                if (x0 >= x1) continue
+                block(grid.brickIndex(bx, by, bz), x0, y0, z0, x1, y1, z1)
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap
+
+/**
+ * Per-interior-component buoyancy aggregates produced by a water solve.
+ *
+ * Every component (keyed by its lowest voxel index, like [ShipPocketState.floodPlaneByComponent]) keeps its submerged
+ * cells sorted by height together with running sums of their coverage-weighted volume and ship-space position. The air
+ * still displacing water above a component's flood plane is then one binary search and a prefix-sum difference, so
+ * buoyancy can follow the flood plane every tick without re-walking the cells. Components without a plane (dry, or at
+ * equilibrium) contribute the exact air the solve itself measured.
+ *
+ * Heights are relative to the world Y of the ship's minimum corner, like [FloodFillOrder], so the profiles stay valid
+ * while the ship bobs or sinks between solves; queries add the corner's current world Y back.
+ */
+internal class BuoyancyComponentProfiles(val geometryRevision: Long) {
+    var componentCount: Int = 0
+        private set
+
+    private var reps = IntArray(4)
+    // Cell range of component c is [cellStart[c], cellStart[c + 1]).
+    private var cellStart = IntArray(5)
+    // Exact (volume, sumX, sumY, sumZ) of submerged air per component at solve time.
+    private var airAtSolve = DoubleArray(4 * 4)
+
+    private var cellCount = 0
+    private var cellHeight = DoubleArray(64)
+    private var cellWeight = DoubleArray(64)
+    private var cellX = DoubleArray(64)
+    private var cellY = DoubleArray(64)
+    private var cellZ = DoubleArray(64)
+    // Running (volume, sumX, sumY, sumZ) over all cells in sorted order; entry i covers cells [0, i).
+    private var prefix = DoubleArray(4)
+
+    private var open = false
+
+    fun beginComponent(rep: Int) {
+        check(!open) { "Previous component was not ended" }
+        open = true
+        val c = componentCount
+        if (c + 1 >= reps.size) {
+            reps = reps.copyOf(reps.size * 2)
+            airAtSolve = airAtSolve.copyOf(reps.size * 4)
+        }
+        if (c + 2 > cellStart.size) cellStart = cellStart.copyOf(reps.size + 1)
+        reps[c] = rep
+        cellStart[c] = cellCount
+        airAtSolve.fill(0.0, c * 4, c * 4 + 4)
+    }
+
+    /**
+     * Adds a submerged cell of the current component at [height] above the ship's minimum corner; [displacing] is
+     * whether it held air at solve time.
+     */
+    fun addCell(height: Double, weight: Double, x: Double, y: Double, z: Double, displacing: Boolean) {
+        val i = cellCount
+        if (i == cellHeight.size) {
+            val size = i * 2
+            cellHeight = cellHeight.copyOf(size)
+            cellWeight = cellWeight.copyOf(size)
+            cellX = cellX.copyOf(size)
+            cellY = cellY.copyOf(size)
+            cellZ = cellZ.copyOf(size)
+        }
+        cellHeight[i] = height
+        cellWeight[i] = weight
+        cellX[i] = x
+        cellY[i] = y
+        cellZ[i] = z
+        cellCount++
+        if (displacing) {
+            val a = componentCount * 4
+            airAtSolve[a] += weight
+            airAtSolve[a + 1] += x * weight
+            airAtSolve[a + 2] += y * weight
+            airAtSolve[a + 3] += z * weight
+        }
+    }
+
+    fun endComponent() {
+        check(open) { "No component to end" }
+        open = false
+        val from = cellStart[componentCount]
+        if (cellCount == from) return // Nothing submerged: drop the component.
+        it.unimi.dsi.fastutil.Arrays.quickSort(
+            from,
+            cellCount,
+            { a, b -> cellHeight[a].compareTo(cellHeight[b]) },
+            { a, b ->
+                swap(cellHeight, a, b)
+                swap(cellWeight, a, b)
+                swap(cellX, a, b)
+                swap(cellY, a, b)
+                swap(cellZ, a, b)
+            },
+        )
+        componentCount++
+        cellStart[componentCount] = cellCount
+    }
+
+    /** Builds the prefix sums; call once after the last component. */
+    fun finish() {
+        check(!open) { "Last component was not ended" }
+        prefix = DoubleArray(4 * (cellCount + 1))
+        for (i in 0 until cellCount) {
+            val w = cellWeight[i]
+            val p = i * 4
+            prefix[p + 4] = prefix[p] + w
+            prefix[p + 5] = prefix[p + 1] + cellX[i] * w
+            prefix[p + 6] = prefix[p + 2] + cellY[i] * w
+            prefix[p + 7] = prefix[p + 3] + cellZ[i] * w
+        }
+    }
+
+    /**
+     * Submerged air across all components into [out]: above the component's world-Y plane in [floodPlanes] when it has
+     * one (cells at or below `plane + planeEps` count as flooded), the solve-time air otherwise. [baseWorldY] is the
+     * current world Y of the ship's minimum corner.
+     */
+    fun accumulateAir(floodPlanes: Int2DoubleOpenHashMap, baseWorldY: Double, planeEps: Double, out: BuoyancyMetrics) {
+        out.reset()
+        for (c in 0 until componentCount) {
+            val rep = reps[c]
+            if (!floodPlanes.containsKey(rep)) {
+                val a = c * 4
+                out.submergedAirVolume += airAtSolve[a]
+                out.submergedAirSumX += airAtSolve[a + 1]
+                out.submergedAirSumY += airAtSolve[a + 2]
+                out.submergedAirSumZ += airAtSolve[a + 3]
+                continue
+            }
+            val end = cellStart[c + 1]
+            val firstAir = upperBound(cellStart[c], end, floodPlanes.get(rep) - baseWorldY + planeEps)
+            val hi = end * 4
+            val lo = firstAir * 4
+            out.submergedAirVolume += prefix[hi] - prefix[lo]
+            out.submergedAirSumX += prefix[hi + 1] - prefix[lo + 1]
+            out.submergedAirSumY += prefix[hi + 2] - prefix[lo + 2]
+            out.submergedAirSumZ += prefix[hi + 3] - prefix[lo + 3]
+        }
+    }
+
+    // First index in [from, to) whose height is above [height].
+    private fun upperBound(from: Int, to: Int, height: Double): Int {
+        var lo = from
+        var hi = to
+        while (lo < hi) {
+            val mid = (lo + hi) ushr 1
+            if (cellHeight[mid] > height) hi = mid else lo = mid + 1
+        }
+        return lo
+    }
+
+    private fun swap(values: DoubleArray, a: Int, b: Int) {
+        val tmp = values[a]
+        values[a] = values[b]
+        values[b] = tmp
+    }
+}
@@ -135,7 +135,7 @@ internal fun traverseConnectedComponents(
         for (dirCode in 0..5) {
             val nIdx = neighborIndex(state, curIdx, dirCode)
             if (nIdx < 0 || nIdx >= volume) continue
-            if (!state.open.get(nIdx)) continue
+            if (!isOpenVoxel(state, nIdx)) continue
 
             val nAllowed = allowedMaskAt(nIdx)
             if (nAllowed == 0L) continue
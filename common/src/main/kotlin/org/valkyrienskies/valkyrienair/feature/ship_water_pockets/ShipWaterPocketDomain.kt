@@ -2,7 +2,7 @@ package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
 
 import java.util.BitSet
 
-private fun condU16(v: Short): Int = v.toInt() and 0xFFFF
+private fun condU8(v: Byte): Int = v.toInt() and 0xFF
 
 internal fun computeOutsideVoidFromGeometry(
     open: BitSet,
@@ -10,9 +10,9 @@ internal fun computeOutsideVoidFromGeometry(
     sizeX: Int,
     sizeY: Int,
     sizeZ: Int,
-    faceCondXP: ShortArray,
-    faceCondYP: ShortArray,
-    faceCondZP: ShortArray,
+    faceCondXP: ByteArray,
+    faceCondYP: ByteArray,
+    faceCondZP: ByteArray,
     passCondThreshold: Int = MIN_OPENING_CONDUCTANCE,
 ): BitSet {
     val volumeLong = sizeX.toLong() * sizeY.toLong() * sizeZ.toLong()
@@ -33,12 +33,12 @@ internal fun computeOutsideVoidFromGeometry(
 
     fun edgeCond(idxCur: Int, lx: Int, ly: Int, lz: Int, dirCode: Int): Int {
         return when (dirCode) {
-            0 -> if (lx > 0) condU16(faceCondXP[idxCur - 1]) else 0
-            1 -> if (lx + 1 < sizeX) condU16(faceCondXP[idxCur]) else 0
-            2 -> if (ly > 0) condU16(faceCondYP[idxCur - strideY]) else 0
-            3 -> if (ly + 1 < sizeY) condU16(faceCondYP[idxCur]) else 0
-            4 -> if (lz > 0) condU16(faceCondZP[idxCur - strideZ]) else 0
-            else -> if (lz + 1 < sizeZ) condU16(faceCondZP[idxCur]) else 0
+            0 -> if (lx > 0) condU8(faceCondXP[idxCur - 1]) else 0
+            1 -> if (lx + 1 < sizeX) condU8(faceCondXP[idxCur]) else 0
+            2 -> if (ly > 0) condU8(faceCondYP[idxCur - strideY]) else 0
+            3 -> if (ly + 1 < sizeY) condU8(faceCondYP[idxCur]) else 0
+            4 -> if (lz > 0) condU8(faceCondZP[idxCur - strideZ]) else 0
+            else -> if (lz + 1 < sizeZ) condU8(faceCondZP[idxCur]) else 0
         }
     }
 
@@ -87,9 +87,9 @@ internal fun computeEnclosedHeuristicFromGeometry(
     sizeX: Int,
     sizeY: Int,
     sizeZ: Int,
-    faceCondXP: ShortArray,
-    faceCondYP: ShortArray,
-    faceCondZP: ShortArray,
+    faceCondXP: ByteArray,
+    faceCondYP: ByteArray,
+    faceCondZP: ByteArray,
     passCondThreshold: Int = MIN_OPENING_CONDUCTANCE,
 ): BitSet {
     val volumeLong = sizeX.toLong() * sizeY.toLong() * sizeZ.toLong()
@@ -120,7 +120,7 @@ internal fun computeEnclosedHeuristicFromGeometry(
                     continue
                 }
                 if (x > 0 && open.get(idx - 1)) {
-                    val cond = condU16(faceCondXP[idx - 1])
+                    val cond = condU8(faceCondXP[idx - 1])
                     if (cond < passCondThreshold) seenWall = true
                 }
                 if (seenWall) negX.set(idx)
@@ -133,7 +133,7 @@ internal fun computeEnclosedHeuristicFromGeometry(
                     continue
                 }
                 if (x + 1 < sizeX && open.get(idx + 1)) {
-                    val cond = condU16(faceCondXP[idx])
+                    val cond = condU8(faceCondXP[idx])
                     if (cond < passCondThreshold) seenWall = true
                 }
                 if (seenWall) posX.set(idx)
@@ -151,7 +151,7 @@ internal fun computeEnclosedHeuristicFromGeometry(
                     seenWall = true
                 } else {
                     if (y > 0 && open.get(idx - strideY)) {
-                        val cond = condU16(faceCondYP[idx - strideY])
+                        val cond = condU8(faceCondYP[idx - strideY])
                         if (cond < passCondThreshold) seenWall = true
                     }
                     if (seenWall) negY.set(idx)
@@ -165,7 +165,7 @@ internal fun computeEnclosedHeuristicFromGeometry(
                     seenWall = true
                 } else {
                     if (y + 1 < sizeY && open.get(idx + strideY)) {
-                        val cond = condU16(faceCondYP[idx])
+                        val cond = condU8(faceCondYP[idx])
                         if (cond < passCondThreshold) seenWall = true
                     }
                     if (seenWall) posY.set(idx)
@@ -185,7 +185,7 @@ internal fun computeEnclosedHeuristicFromGeometry(
                     seenWall = true
                 } else {
                     if (z > 0 && open.get(idx - strideZ)) {
-                        val cond = condU16(faceCondZP[idx - strideZ])
+                        val cond = condU8(faceCondZP[idx - strideZ])
                         if (cond < passCondThreshold) seenWall = true
                     }
                     if (seenWall) negZ.set(idx)
@@ -199,7 +199,7 @@ internal fun computeEnclosedHeuristicFromGeometry(
                     seenWall = true
                 } else {
                     if (z + 1 < sizeZ && open.get(idx + strideZ)) {
-                        val cond = condU16(faceCondZP[idx])
+                        val cond = condU8(faceCondZP[idx])
                         if (cond < passCondThreshold) seenWall = true
                     }
                     if (seenWall) posZ.set(idx)
@@ -0,0 +1,194 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import java.util.BitSet
+import kotlin.math.abs
+
+/**
+ * Fill order of the interior components a flooding pass is filling.
+ *
+ * Every component (keyed by its lowest voxel index, like [ShipPocketState.floodPlaneByComponent]) keeps its target wet
+ * cells sorted by height under the rotation the order was built with, plus a cursor past the lowest cells that already
+ * hold flood fluid. Raising a flood plane then only looks at the cells between the cursor and the plane, so a flooding
+ * tick costs about as much as the cells it changes instead of a walk over every component.
+ *
+ * Heights are relative to the ship's minimum corner, so translation never invalidates the order. Rotation does: after
+ * [retarget] every cell's current height is within [heightSlack] of the height it was sorted by, and plane tests are
+ * widened by that much. Callers rebuild once the slack grows too large, or when the order no longer [matches] the
+ * ship's geometry and water-reachable mask.
+ */
+internal class FloodFillOrder(
+    private val simulationDomain: BitSet,
+    private val geometryRevision: Long,
+    private val waterReachable: BitSet,
+    private val sizeX: Int,
+    private val sizeY: Int,
+    private val sizeZ: Int,
+    private val builtIncX: Double,
+    private val builtIncY: Double,
+    private val builtIncZ: Double,
+) {
+    var componentCount: Int = 0
+        private set
+
+    private var reps = IntArray(4)
+    private var lowestCells = IntArray(4)
+    private var holeFaces = IntArray(4)
+    private var cursors = IntArray(4)
+    // Cell range of component c is [cellStart[c], cellStart[c + 1]).
+    private var cellStart = IntArray(5)
+
+    private var cellCount = 0
+    private var cells = IntArray(64)
+    private var sortedHeight = DoubleArray(64)
+
+    private var incX = builtIncX
+    private var incY = builtIncY
+    private var incZ = builtIncZ
+
+    var heightSlack: Double = 0.0
+        private set
+
+    private var open = false
+
+    /** Whether the order was built from [state]'s current geometry and an equal water-reachable mask. */
+    fun matches(state: ShipPocketState): Boolean =
+        simulationDomain === state.simulationDomain &&
+            geometryRevision == state.geometryRevision &&
+            waterReachable == state.waterReachable
+
+    /** Whether the order relies on [idx] staying filled once filled, i.e. it is a target wet cell. */
+    fun tracks(idx: Int): Boolean = waterReachable.get(idx) && simulationDomain.get(idx)
+
+    /** Switches height lookups to the ship's current per-axis world-Y increments and updates [heightSlack]. */
+    fun retarget(incX: Double, incY: Double, incZ: Double) {
+        this.incX = incX
+        this.incY = incY
+        this.incZ = incZ
+        heightSlack = abs(incX - builtIncX) * sizeX + abs(incY - builtIncY) * sizeY + abs(incZ - builtIncZ) * sizeZ
+    }
+
+    /** Current world Y of the cell center, relative to the world Y of the ship's minimum corner. */
+    fun relativeHeight(idx: Int): Double {
+        val lx = idx % sizeX
+        val t = idx / sizeX
+        val ly = t % sizeY
+        val lz = t / sizeY
+        return incX * (lx + 0.5) + incY * (ly + 0.5) + incZ * (lz + 0.5)
+    }
+
+    fun beginComponent(rep: Int, lowestCell: Int, submergedHoleFaces: Int) {
+        check(!open) { "Previous component was not ended" }
+        open = true
+        val c = componentCount
+        if (c + 1 >= reps.size) {
+            val size = reps.size * 2
+            reps = reps.copyOf(size)
+            lowestCells = lowestCells.copyOf(size)
+            holeFaces = holeFaces.copyOf(size)
+            cursors = cursors.copyOf(size)
+        }
+        if (c + 2 > cellStart.size) cellStart = cellStart.copyOf(reps.size + 1)
+        reps[c] = rep
+        lowestCells[c] = lowestCell
+        holeFaces[c] = submergedHoleFaces
+        cellStart[c] = cellCount
+    }
+
+    /** Adds a target wet cell of the current component. */
+    fun addCell(idx: Int) {
+        val i = cellCount
+        if (i == cells.size) {
+            cells = cells.copyOf(i * 2)
+            sortedHeight = sortedHeight.copyOf(i * 2)
+        }
+        cells[i] = idx
+        sortedHeight[i] = relativeHeight(idx)
+        cellCount++
+    }
+
+    fun endComponent() {
+        check(open) { "No component to end" }
+        open = false
+        val from = cellStart[componentCount]
+        if (cellCount == from) return // No target cells: nothing to fill.
+        it.unimi.dsi.fastutil.Arrays.quickSort(
+            from,
+            cellCount,
+            { a, b -> sortedHeight[a].compareTo(sortedHeight[b]) },
+            { a, b ->
+                val cell = cells[a]
+                cells[a] = cells[b]
+                cells[b] = cell
+                val height = sortedHeight[a]
+                sortedHeight[a] = sortedHeight[b]
+                sortedHeight[b] = height
+            },
+        )
+        cursors[componentCount] = from
+        componentCount++
+        cellStart[componentCount] = cellCount
+    }
+
+    fun rep(c: Int): Int = reps[c]
+
+    fun submergedHoleFaces(c: Int): Int = holeFaces[c]
+
+    /** Current relative height of the component's lowest cell (any interior cell, not only target ones). */
+    fun lowestHeight(c: Int): Double = relativeHeight(lowestCells[c])
+
+    /**
+     * Moves the cursor past the filled cells at the bottom of the component; returns whether any of its target cells
+     * is still missing flood fluid. Only valid while filled target cells stay filled (see [tracks]).
+     */
+    fun advance(c: Int, materialized: BitSet): Boolean {
+        val end = cellStart[c + 1]
+        var i = cursors[c]
+        while (i < end && materialized.get(cells[i])) i++
+        cursors[c] = i
+        return i < end
+    }
+
+    /** Current relative height of the component's highest target cell. */
+    fun topHeight(c: Int): Double {
+        val from = cellStart[c]
+        val last = cellStart[c + 1] - 1
+        val floor = sortedHeight[last] - 2.0 * heightSlack
+        var top = Double.NEGATIVE_INFINITY
+        var i = last
+        while (i >= from && sortedHeight[i] >= floor) {
+            val h = relativeHeight(cells[i])
+            if (h > top) top = h
+            i--
+        }
+        return top
+    }
+
+    /** Sets in [out] every target cell above the cursor that is missing flood fluid and lies at or below [height]. */
+    fun collectMissingAtOrBelow(c: Int, height: Double, materialized: BitSet, out: BitSet) {
+        val end = cellStart[c + 1]
+        val limit = height + heightSlack
+        var i = cursors[c]
+        while (i < end && sortedHeight[i] <= limit) {
+            val idx = cells[i]
+            if (!materialized.get(idx) && relativeHeight(idx) <= height) out.set(idx)
+            i++
+        }
+    }
+}
+
+/** Sets a cell of `materializedWater`, bumping `materializedRevision` when it was clear. */
+internal fun setMaterializedWater(state: ShipPocketState, idx: Int) {
+    val materialized = state.materializedWater
+    if (materialized.get(idx)) return
+    materialized.set(idx)
+    state.materializedRevision++
+}
+
+/** Clears a cell of `materializedWater`, dropping the fill order if it counted on that cell staying filled. */
+internal fun clearMaterializedWater(state: ShipPocketState, idx: Int) {
+    val materialized = state.materializedWater
+    if (!materialized.get(idx)) return
+    materialized.clear(idx)
+    state.materializedRevision++
+    if (state.floodFillOrder?.tracks(idx) == true) state.floodFillOrder = null
+}
@@ -1,6 +1,11 @@
 package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import net.minecraft.core.BlockPos
+import net.minecraft.core.Direction
+import net.minecraft.core.SectionPos
 import net.minecraft.server.level.ServerLevel
 import net.minecraft.world.level.block.BucketPickup
 import net.minecraft.world.level.block.Blocks
@@ -15,10 +20,13 @@ import org.joml.Vector3d
 import org.valkyrienskies.core.api.ships.properties.ShipTransform
 import java.util.BitSet
 
+// Writes per tick and queue. Batched writes still cost a setBlock (lighting, heightmaps, onPlace tick) per cell, so
+// they share these caps with the block-logic writes.
 internal const val FLOOD_QUEUE_REMOVE_CAP_PER_TICK: Int = 512
 internal const val FLOOD_QUEUE_ADD_CAP_PER_TICK: Int = 512
 
 private const val FLOOD_QUEUE_SETBLOCK_FLAGS: Int = 3 // UPDATE_NEIGHBORS | UPDATE_CLIENTS
+private const val FLOOD_BATCH_SETBLOCK_FLAGS: Int = 18 // UPDATE_CLIENTS | UPDATE_KNOWN_SHAPE
 
 private fun canonicalFloodSource(fluid: Fluid): Fluid {
     return if (fluid is FlowingFluid) fluid.source else fluid
@@ -69,6 +77,84 @@ private fun tryDrainFluidFromContainer(
     }
 }
 
+/**
+ * Plain fluid writes (air <-> fluid source, no block logic involved) collected per shipyard chunk section and written
+ * section by section on [apply].
+ *
+ * Neighbor and shape updates on every cell dominate the cost of flooding a hold, so each cell goes through
+ * `Level.setBlock` without them. Everything else still runs as for any block change (chunk hooks, `onPlace`/`onRemove`,
+ * block entities, heightmaps, lighting), and the chunk holder sends the changes of a section as a single section update
+ * packet. Placed fluid schedules its own tick in `onPlace`; a removal wakes the neighboring fluid outside the batch,
+ * which the skipped neighbor updates would otherwise have done. Callers must set the internal-updates flag, as for any
+ * flood write.
+ */
+internal class FloodSectionWriteBatch(private val level: ServerLevel) {
+    private val positionsBySection = Long2ObjectOpenHashMap<LongArrayList>()
+    private val statesBySection = Long2ObjectOpenHashMap<ArrayList<BlockState>>()
+    private val written = LongOpenHashSet()
+
+    fun write(pos: BlockPos, state: BlockState) {
+        val posKey = pos.asLong()
+        if (!written.add(posKey)) return
+        val sectionKey = SectionPos.asLong(pos)
+        var positions = positionsBySection.get(sectionKey)
+        if (positions == null) {
+            positions = LongArrayList()
+            positionsBySection.put(sectionKey, positions)
+            statesBySection.put(sectionKey, ArrayList())
+        }
+        positions.add(posKey)
+        statesBySection.get(sectionKey).add(state)
+    }
+
+    /** Writes every queued cell, then wakes the fluid around removed cells. Returns the number of cells changed. */
+    fun apply(): Int {
+        if (written.isEmpty()) return 0
+        val pos = BlockPos.MutableBlockPos()
+        val removedPositions = LongArrayList()
+        var changed = 0
+
+        val sections = positionsBySection.long2ObjectEntrySet().fastIterator()
+        while (sections.hasNext()) {
+            val entry = sections.next()
+            val positions = entry.value
+            val states = statesBySection.get(entry.longKey)
+            for (i in 0 until positions.size) {
+                val posKey = positions.getLong(i)
+                val newState = states[i]
+                if (!level.setBlock(pos.set(posKey), newState, FLOOD_BATCH_SETBLOCK_FLAGS)) continue
+                changed++
+                if (newState.fluidState.isEmpty) removedPositions.add(posKey)
+            }
+        }
+
+        scheduleRemovalNeighborTicks(removedPositions)
+        return changed
+    }
+
+    private fun scheduleRemovalNeighborTicks(positions: LongArrayList) {
+        val pos = BlockPos.MutableBlockPos()
+        val neighbor = BlockPos.MutableBlockPos()
+        val scheduled = LongOpenHashSet()
+        for (i in 0 until positions.size) {
+            pos.set(positions.getLong(i))
+            for (dir in DIRECTIONS) {
+                neighbor.setWithOffset(pos, dir)
+                if (written.contains(neighbor.asLong())) continue
+                // Neighboring fluid has to flow into (or recede from) the gap.
+                val neighborFluid = level.getFluidState(neighbor)
+                if (!neighborFluid.isEmpty && scheduled.add(neighbor.asLong())) {
+                    level.scheduleTick(neighbor, neighborFluid.type, 1)
+                }
+            }
+        }
+    }
+
+    private companion object {
+        val DIRECTIONS = Direction.values()
+    }
+}
+
 internal data class FloodWriteFlushResult(
     val removed: Int,
     val added: Int,
@@ -100,11 +186,15 @@ internal fun clearFloodWriteQueues(state: ShipPocketState) {
     state.nextQueuedRemoveIdx = 0
 }
 
+/**
+ * Hands up to [budget] queued indices to [handle], starting at [startCursor] and wrapping around. An index is dequeued
+ * once handled; [handle] returns false to leave it queued and stop early (e.g. its kind of write is out of budget).
+ */
 private fun processQueuedIndices(
     queue: BitSet,
     startCursor: Int,
     budget: Int,
-    handle: (Int) -> Unit,
+    handle: (Int) -> Boolean,
 ): Pair<Int, Int> {
     if (budget <= 0 || queue.isEmpty) return 0 to 0
 
@@ -117,8 +207,8 @@ private fun processQueuedIndices(
 
     while (idx >= 0 && processed < budget) {
         val current = idx
+        if (!handle(current)) return processed to current
         idx = queue.nextSetBit(current + 1)
-        handle(current)
         queue.clear(current)
         processed++
         if (idx < 0 && processed < budget) {
@@ -175,6 +265,7 @@ internal fun flushFloodWriteQueue(
     val worldBlockPos = BlockPos.MutableBlockPos()
     val sourceBlockState = state.floodFluid.defaultFluidState().createLegacyBlock()
     val floodCanonical = canonicalFloodSource(state.floodFluid)
+    val batch = FloodSectionWriteBatch(level)
 
     var removedApplied = 0
     var addedApplied = 0
@@ -196,26 +287,28 @@ internal fun flushFloodWriteQueue(
             startCursor = state.nextQueuedRemoveIdx,
             budget = removeCap,
         ) { idx ->
-            if (idx < 0 || idx >= volume) return@processQueuedIndices
+            if (idx < 0 || idx >= volume) return@processQueuedIndices true
             posFromIndex(state, idx, pos)
             val current = level.getBlockState(pos)
             val currentFluid = current.fluidState
 
             if (current.block is LiquidBlock && !currentFluid.isEmpty && isFloodFluidType(currentFluid.type)) {
-                level.setBlock(pos, Blocks.AIR.defaultBlockState(), FLOOD_QUEUE_SETBLOCK_FLAGS)
-                level.scheduleTick(pos, state.floodFluid, 1)
-                removedApplied++
-            } else if (tryDrainFluidFromContainer(level, pos, current, floodCanonical)) {
-                removedApplied++
-            } else if (isWaterloggableForFlood(current, floodCanonical) &&
-                current.getValue(BlockStateProperties.WATERLOGGED)
-            ) {
-                val drained = current.setValue(BlockStateProperties.WATERLOGGED, false)
-                level.setBlock(pos, drained, FLOOD_QUEUE_SETBLOCK_FLAGS)
-                level.scheduleTick(pos, Fluids.WATER, 1)
+                batch.write(pos, Blocks.AIR.defaultBlockState())
                 removedApplied++
+            } else if (!currentFluid.isEmpty && isFloodFluidType(currentFluid.type)) {
+                if (tryDrainFluidFromContainer(level, pos, current, floodCanonical)) {
+                    removedApplied++
+                } else if (isWaterloggableForFlood(current, floodCanonical) &&
+                    current.getValue(BlockStateProperties.WATERLOGGED)
+                ) {
+                    val drained = current.setValue(BlockStateProperties.WATERLOGGED, false)
+                    level.setBlock(pos, drained, FLOOD_QUEUE_SETBLOCK_FLAGS)
+                    level.scheduleTick(pos, Fluids.WATER, 1)
+                    removedApplied++
+                }
             }
-            state.materializedWater.clear(idx)
+            clearMaterializedWater(state, idx)
+            true
         }
         state.nextQueuedRemoveIdx = removeResult.second
 
@@ -224,28 +317,27 @@ internal fun flushFloodWriteQueue(
             startCursor = state.nextQueuedAddIdx,
             budget = addCap,
         ) { idx ->
-            if (idx < 0 || idx >= volume) return@processQueuedIndices
+            if (idx < 0 || idx >= volume) return@processQueuedIndices true
             posFromIndex(state, idx, pos)
             val current = level.getBlockState(pos)
             val currentFluid = current.fluidState
 
             if (!currentFluid.isEmpty && isFloodFluidType(currentFluid.type)) {
-                state.materializedWater.set(idx)
-                return@processQueuedIndices
+                setMaterializedWater(state, idx)
+                return@processQueuedIndices true
             }
-
             val ingressQualified = isIngressQualifiedForAdd(pos, shipTransform, shipPosTmp, worldPosTmp, worldBlockPos)
             if (!ingressQualified) {
                 rejectedAdds++
-                return@processQueuedIndices
+                return@processQueuedIndices true
             }
 
             if (!current.isAir) {
                 if (tryPlaceFluidInContainer(level, pos, current, floodCanonical)) {
                     addedApplied++
-                    state.materializedWater.set(idx)
+                    setMaterializedWater(state, idx)
                     recordAddedSample(idx)
-                    return@processQueuedIndices
+                    return@processQueuedIndices true
                 }
 
                 if (isWaterloggableForFlood(current, floodCanonical)) {
@@ -255,19 +347,20 @@ internal fun flushFloodWriteQueue(
                         level.scheduleTick(pos, Fluids.WATER, 1)
                         addedApplied++
                     }
-                    state.materializedWater.set(idx)
+                    setMaterializedWater(state, idx)
                     recordAddedSample(idx)
                 }
-                return@processQueuedIndices
+                return@processQueuedIndices true
             }
 
-            level.setBlock(pos, sourceBlockState, FLOOD_QUEUE_SETBLOCK_FLAGS)
-            level.scheduleTick(pos, state.floodFluid, 1)
-            state.materializedWater.set(idx)
+            batch.write(pos, sourceBlockState)
+            setMaterializedWater(state, idx)
             addedApplied++
             recordAddedSample(idx)
+            true
         }
         state.nextQueuedAddIdx = addResult.second
+        batch.apply()
     } finally {
         setApplyingInternalUpdates(false)
     }
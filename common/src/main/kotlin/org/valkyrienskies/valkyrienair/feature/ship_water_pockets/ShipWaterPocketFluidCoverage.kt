@@ -0,0 +1,65 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import net.minecraft.world.level.material.Fluid
+import java.util.concurrent.ConcurrentHashMap
+
+// Ship-cell fluid coverage is sampled at the cell center plus its eight corners.
+internal const val FLUID_COVERAGE_SAMPLE_COUNT = 9
+
+// Packed coverage layout: bits 0-3 samples in the dominant fluid, bit 4 center submerged in it, bits 5+ its fluid id.
+// Zero means "no fluid at any sample".
+internal const val FLUID_COVERAGE_NONE = 0
+private const val FLUID_COVERAGE_COUNT_MASK = 0xF
+private const val FLUID_COVERAGE_CENTER_BIT = 1 shl 4
+private const val FLUID_COVERAGE_ID_SHIFT = 5
+
+/**
+ * Small dense ids for canonical fluids, so fluid coverage can be packed into an int. Id 0 is "no fluid"; ids are
+ * handed out on first use and never reused.
+ */
+internal object FluidCoverageIds {
+    private val idsByFluid = ConcurrentHashMap<Fluid, Int>()
+
+    @Volatile
+    private var fluidsById: Array<Fluid?> = arrayOfNulls(1)
+
+    fun idOf(fluid: Fluid): Int {
+        idsByFluid[fluid]?.let { return it }
+        synchronized(this) {
+            idsByFluid[fluid]?.let { return it }
+            val id = fluidsById.size
+            fluidsById = fluidsById.copyOf(id + 1).also { it[id] = fluid }
+            idsByFluid[fluid] = id
+            return id
+        }
+    }
+
+    fun fluidOf(id: Int): Fluid? {
+        val fluids = fluidsById
+        return if (id in 1 until fluids.size) fluids[id] else null
+    }
+
+    /** One more than the largest id handed out so far; sizes per-fluid scratch arrays. */
+    fun idBound(): Int = fluidsById.size
+}
+
+internal fun packFluidCoverage(fluidId: Int, count: Int, centerSubmerged: Boolean): Int {
+    if (fluidId == 0 || count <= 0) return FLUID_COVERAGE_NONE
+    return (fluidId shl FLUID_COVERAGE_ID_SHIFT) or
+        (if (centerSubmerged) FLUID_COVERAGE_CENTER_BIT else 0) or
+        count.coerceAtMost(FLUID_COVERAGE_SAMPLE_COUNT)
+}
+
+internal fun fluidCoverageFluidId(packed: Int): Int = packed ushr FLUID_COVERAGE_ID_SHIFT
+
+internal fun fluidCoverageFluid(packed: Int): Fluid? = FluidCoverageIds.fluidOf(fluidCoverageFluidId(packed))
+
+internal fun fluidCoverageCount(packed: Int): Int = packed and FLUID_COVERAGE_COUNT_MASK
+
+internal fun fluidCoverageCenterSubmerged(packed: Int): Boolean = (packed and FLUID_COVERAGE_CENTER_BIT) != 0
+
+internal fun fluidCoverageRatio(packed: Int): Double =
+    fluidCoverageCount(packed).toDouble() / FLUID_COVERAGE_SAMPLE_COUNT.toDouble()
+
+internal fun isFluidCoverageSubmergedAny(packed: Int): Boolean =
+    fluidCoverageFluidId(packed) != 0 && fluidCoverageCount(packed) > 0
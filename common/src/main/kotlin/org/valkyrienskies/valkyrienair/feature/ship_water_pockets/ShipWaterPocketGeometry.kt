@@ -1,7 +1,7 @@
 package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
 
 import net.minecraft.core.BlockPos
-import net.minecraft.world.level.Level
+import net.minecraft.world.level.BlockGetter
 import net.minecraft.world.level.block.DoorBlock
 import net.minecraft.world.level.block.FenceGateBlock
 import net.minecraft.world.level.block.TrapDoorBlock
@@ -288,7 +288,7 @@ private fun shapeBlockingScore(shape: VoxelShape): Double {
     return score
 }
 
-private fun resolveFluidOcclusionShape(level: Level, pos: BlockPos, state: BlockState): VoxelShape {
+private fun resolveFluidOcclusionShape(level: BlockGetter, pos: BlockPos, state: BlockState): VoxelShape {
     val collision = state.getCollisionShape(level, pos)
     val occlusion = state.getOcclusionShape(level, pos)
     val union =
@@ -397,7 +397,7 @@ private fun requiresRefinedSampling(shape: VoxelShape, boxes: List<AABB>): Boole
         !isGridAligned(box.minZ) || !isGridAligned(box.maxZ)
 }
 
-internal fun computeShapeWaterGeometry(level: Level, pos: BlockPos, state: BlockState): ShapeWaterGeometry {
+internal fun computeShapeWaterGeometry(level: BlockGetter, pos: BlockPos, state: BlockState): ShapeWaterGeometry {
     if (state.isAir) return ShapeWaterGeometry(fullSolid = false, refined = false, boxes = emptyList())
     if (isGameplaySealedState(state)) {
         return ShapeWaterGeometry(
@@ -0,0 +1,183 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import java.util.BitSet
+
+/**
+ * Open cells that can exchange water with the outside: every open cell outside the simulation domain, plus simulation
+ * cells on the volume boundary or face-adjacent to such a cell. Together with [hullSamplingShell] these are the only
+ * cells the water solve snapshot samples before deciding whether the rest can be derived (see [HullSampleSummary]).
+ *
+ * Cached on the state until the geometry masks change.
+ */
+internal fun hullSamplingFrontier(state: ShipPocketState): BitSet {
+    state.hullSamplingFrontier?.let { return it }
+    val frontier =
+        computeHullSamplingFrontier(state.sizeX, state.sizeY, state.sizeZ, state.open, state.simulationDomain)
+    state.hullSamplingFrontier = frontier
+    return frontier
+}
+
+/**
+ * Solid cells bounding the volume from the outside: solid cells on the volume boundary or face-adjacent to open space
+ * outside the simulation domain. A hull whose walls sit on the AABB has no open frontier there at all, so without these
+ * a submerged hold under a dry deck would look dry. Only sampled to learn where the exterior fluid is; their own
+ * coverage is never recorded.
+ *
+ * Cached on the state until the geometry masks change.
+ */
+internal fun hullSamplingShell(state: ShipPocketState): BitSet {
+    state.hullSamplingShell?.let { return it }
+    val shell = computeHullSamplingShell(state.sizeX, state.sizeY, state.sizeZ, state.open, state.simulationDomain)
+    state.hullSamplingShell = shell
+    return shell
+}
+
+internal fun computeHullSamplingFrontier(
+    sizeX: Int,
+    sizeY: Int,
+    sizeZ: Int,
+    open: BitSet,
+    simulation: BitSet,
+): BitSet {
+    val volume = sizeX * sizeY * sizeZ
+    val strideY = sizeX
+    val strideZ = sizeX * sizeY
+
+    fun outsideOpen(n: Int): Boolean = open.get(n) && !simulation.get(n)
+
+    val frontier = open.clone() as BitSet
+    frontier.andNot(simulation)
+    var idx = simulation.nextSetBit(0)
+    while (idx >= 0 && idx < volume) {
+        if (open.get(idx)) {
+            val lx = idx % sizeX
+            val t = idx / sizeX
+            val ly = t % sizeY
+            val lz = t / sizeY
+            if (lx == 0 || ly == 0 || lz == 0 || lx + 1 == sizeX || ly + 1 == sizeY || lz + 1 == sizeZ ||
+                outsideOpen(idx - 1) || outsideOpen(idx + 1) ||
+                outsideOpen(idx - strideY) || outsideOpen(idx + strideY) ||
+                outsideOpen(idx - strideZ) || outsideOpen(idx + strideZ)
+            ) {
+                frontier.set(idx)
+            }
+        }
+        idx = simulation.nextSetBit(idx + 1)
+    }
+    return frontier
+}
+
+internal fun computeHullSamplingShell(
+    sizeX: Int,
+    sizeY: Int,
+    sizeZ: Int,
+    open: BitSet,
+    simulation: BitSet,
+): BitSet {
+    val volume = sizeX * sizeY * sizeZ
+    val strideY = sizeX
+    val strideZ = sizeX * sizeY
+    val shell = BitSet(volume)
+    if (volume <= 0) return shell
+
+    fun markSolid(n: Int) {
+        if (!open.get(n)) shell.set(n)
+    }
+
+    // Volume boundary: the two faces of each axis.
+    for (lz in 0 until sizeZ) {
+        for (ly in 0 until sizeY) {
+            val row = strideY * ly + strideZ * lz
+            markSolid(row)
+            markSolid(row + sizeX - 1)
+        }
+        for (lx in 0 until sizeX) {
+            markSolid(lx + strideZ * lz)
+            markSolid(lx + strideY * (sizeY - 1) + strideZ * lz)
+        }
+    }
+    for (ly in 0 until sizeY) {
+        for (lx in 0 until sizeX) {
+            markSolid(lx + strideY * ly)
+            markSolid(lx + strideY * ly + strideZ * (sizeZ - 1))
+        }
+    }
+
+    // Solid faces of the open space outside the simulation domain.
+    var idx = open.nextSetBit(0)
+    while (idx >= 0 && idx < volume) {
+        if (!simulation.get(idx)) {
+            val lx = idx % sizeX
+            val t = idx / sizeX
+            val ly = t % sizeY
+            val lz = t / sizeY
+            if (lx > 0) markSolid(idx - 1)
+            if (lx + 1 < sizeX) markSolid(idx + 1)
+            if (ly > 0) markSolid(idx - strideY)
+            if (ly + 1 < sizeY) markSolid(idx + strideY)
+            if (lz > 0) markSolid(idx - strideZ)
+            if (lz + 1 < sizeZ) markSolid(idx + strideZ)
+        }
+        idx = open.nextSetBit(idx + 1)
+    }
+    return shell
+}
+
+internal enum class HullSamplingMode {
+    /** Nothing around the hull touches fluid: every inner cell is dry. */
+    DRY,
+
+    /** One fluid with a flat surface that every sample agrees with: inner cells follow from the world-Y affine. */
+    FLAT_SURFACE,
+
+    /** Anything else (mixed fluids, slopes, terrain or air below the surface): sample every remaining cell. */
+    FULL,
+}
+
+/**
+ * What the water solve snapshot learned from the [hullSamplingFrontier] and [hullSamplingShell] samples.
+ *
+ * Those cells enclose every other cell of the volume, so inner cells can only be derived from them when the world
+ * around the hull matches the model: no fluid anywhere, or a single flat surface. A dry sample well below that surface
+ * (the ship rests on terrain, or sits in an air gap) means the world differs from the model somewhere, and the inner
+ * cells have to be sampled like the frontier.
+ */
+internal class HullSampleSummary {
+    private var fluidId = 0
+    private var mixedFluids = false
+
+    var minSurfaceY = Double.POSITIVE_INFINITY
+        private set
+    var maxSurfaceY = Double.NEGATIVE_INFINITY
+        private set
+
+    // Lowest world Y of a cell center whose samples found no fluid at all.
+    private var minDryCenterY = Double.POSITIVE_INFINITY
+
+    /** A cell touching [fluidId]; [surfaceY] is its exterior surface estimate, NaN when it has none. */
+    fun addWet(fluidId: Int, surfaceY: Double) {
+        if (this.fluidId == 0) {
+            this.fluidId = fluidId
+        } else if (this.fluidId != fluidId) {
+            mixedFluids = true
+        }
+        if (surfaceY.isFinite()) {
+            minSurfaceY = minOf(minSurfaceY, surfaceY)
+            maxSurfaceY = maxOf(maxSurfaceY, surfaceY)
+        }
+    }
+
+    /** A cell whose samples found no fluid, centered at [centerWorldY]. */
+    fun addDry(centerWorldY: Double) {
+        minDryCenterY = minOf(minDryCenterY, centerWorldY)
+    }
+
+    fun mode(maxSurfaceSpread: Double): HullSamplingMode {
+        if (fluidId == 0) return HullSamplingMode.DRY
+        if (mixedFluids || !maxSurfaceY.isFinite()) return HullSamplingMode.FULL
+        if (maxSurfaceY - minSurfaceY > maxSurfaceSpread) return HullSamplingMode.FULL
+        // A center half a block under the surface is always sampled wet in a flat world.
+        if (minDryCenterY < maxSurfaceY - 0.5) return HullSamplingMode.FULL
+        return HullSamplingMode.FLAT_SURFACE
+    }
+}
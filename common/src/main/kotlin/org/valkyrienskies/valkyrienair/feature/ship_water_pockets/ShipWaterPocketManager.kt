@@ -1,6 +1,7 @@
 package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
 
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap
+import it.unimi.dsi.fastutil.ints.IntArrayList
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import net.minecraft.core.Direction
@@ -50,31 +51,67 @@ object ShipWaterPocketManager {
     private const val FLOOD_UPDATE_INTERVAL_TICKS = 1L
     private const val MAX_SIM_VOLUME = 2_000_000
     private const val POCKET_BOUNDS_PADDING = 1
-    private const val AIR_PRESSURE_Y_EPS = 1e-7
-    private const val AIR_PRESSURE_ATM = 1.0
-    // Minecraft-ish hydrostatic pressure: ~1 atm per 10 blocks of water depth for "water-density" fluids.
-    // Pressure increase per block is `density * AIR_PRESSURE_PER_BLOCK_PER_DENSITY`.
-    private const val AIR_PRESSURE_PER_BLOCK_PER_DENSITY = 1e-4
-    private const val AIR_PRESSURE_SOLVER_ITERS = 4
-    private const val AIR_PRESSURE_MIN_EFFECTIVE_AIR_VOLUME = 0.25
     private const val AIR_PRESSURE_SURFACE_SCAN_MAX_STEPS = 256
-    private const val GRAVITY_RESETTLE_MAX_SCHEDULED_TICKS_PER_SHIP_PER_TICK = 4096
+    // Fluid ticks per level and tick that resettle shipyard fluid after ships changed their "down" direction, and
+    // shipyard cells scanned to find them; both shared by all ships in resettle priority order.
+    private const val GRAVITY_RESETTLE_TICKS_PER_LEVEL_PER_TICK = 4096
+    private const val GRAVITY_RESETTLE_SCAN_CELLS_PER_LEVEL_PER_TICK = 65536
     // Flooding speed: this is an abstract "water plane rise" rate. Bigger/more holes increase the rise rate.
     private const val FLOOD_RISE_PER_TICK_BASE = 0.01
     private const val FLOOD_RISE_PER_TICK_PER_HOLE_FACE = 0.00125
     private const val FLOOD_RISE_MAX_PER_TICK = 0.35
     private const val FLOOD_ENTER_PLANE_EPS = 1e-4
     private const val FLOOD_EXIT_PLANE_EPS = 3e-4
+    // How far (in blocks) rotation may move cells from the heights a flood fill order was sorted by before it is
+    // rebuilt; plane tests scan this much past the plane.
+    private const val FLOOD_FILL_ORDER_MAX_HEIGHT_SLACK = 0.5
     private const val FLOOD_OPENING_LEVEL_EPS = 1e-5
+    // Smallest change of the submerged-air sums (blocks, block-weighted positions) worth pushing to VS2 between solves.
+    private const val BUOYANCY_REPUBLISH_EPS = 1e-3
     private const val SUBMERGED_INGRESS_MIN_COVERAGE = 0.34
+    // Max spread of the frontier's exterior surface estimates for inner cells to be derived instead of sampled.
+    private const val HULL_SAMPLING_MAX_SURFACE_SPREAD = 0.125
+    // Dry ships sleep while no fluid section lies within this margin of their world AABB, widened by the distance
+    // covered in DRY_SLEEP_WAKE_LEAD_SECONDS so a falling ship wakes (and rebuilds geometry) before it reaches water.
+    private const val DRY_SLEEP_WAKE_MARGIN = 4.0
+    private const val DRY_SLEEP_WAKE_LEAD_SECONDS = 1.0
     private const val GEOMETRY_ASYNC_SUBMISSIONS_PER_LEVEL_PER_TICK = 2
+    // Bulk edits (schematic pastes, contraption assembly, explosions) are debounced: once a burst reaches
+    // GEOMETRY_DEBOUNCE_MIN_BURST_MARKS edits, submission waits until edits have been quiet for a few ticks (more
+    // for ships whose last rebuild was slow), but at most GEOMETRY_DEBOUNCE_MAX_LATENCY_TICKS after the burst began.
+    private const val GEOMETRY_DEBOUNCE_MIN_BURST_MARKS = 8
+    private const val GEOMETRY_DEBOUNCE_MIN_QUIET_TICKS = 2L
+    private const val GEOMETRY_DEBOUNCE_MAX_QUIET_TICKS = 10L
+    private const val GEOMETRY_DEBOUNCE_QUIET_TICK_PER_COMPUTE_MS = 25L
+    private const val GEOMETRY_DEBOUNCE_MAX_LATENCY_TICKS = 40L
+    // Bounds changes (a hull growing block by block) wait until the bounds held still this long, but never longer than
+    // the max delay after the first change.
+    private const val GEOMETRY_BOUNDS_COALESCE_TICKS = 2L
+    private const val GEOMETRY_BOUNDS_MAX_DELAY_TICKS = 10L
+    // Above this many changed voxels between rebuilds, patching stops paying off; fall back to a full rebuild.
+    private const val INCREMENTAL_GEOMETRY_MAX_DIRTY_VOXELS = 4096
+    // An incremental base nobody edited against for this long is dropped; the next edit pays one full rebuild.
+    private const val GEOMETRY_INCREMENTAL_BASE_IDLE_TICKS = 1200L
     private const val WATER_SOLVER_ASYNC_SUBMISSIONS_PER_LEVEL_PER_TICK = 2
-    private const val MAX_SYNC_WATER_SOLVE_PER_LEVEL_PER_TICK = 2
+    // A starved ship's water solve runs on the server thread instead, in slices sharing this per-level, per-tick budget
+    // (see ShipPocketSlicedJob), so a starved queue costs latency rather than TPS.
+    private const val WATER_SOLVE_SLICE_BUDGET_MICROS_PER_LEVEL_PER_TICK = 2_000L
+    private const val MAX_ACTIVE_SLICED_WATER_SOLVES_PER_LEVEL = 2
     private const val WATER_SOLVE_STARVATION_SYNC_FALLBACK_TICKS = 3L
     private const val MAX_WATER_SOLVE_RESULT_AGE_TICKS = 4L
+    // A memoized water solve is recomputed at least this often, to pick up world fluid changes the input key misses.
+    private const val WATER_SOLVE_MEMO_MAX_AGE_TICKS = 40L
     private const val WATER_SOLVE_PENDING_CANCEL_EXTRA_AGE_TICKS = 2L
     private const val ASYNC_DIAG_SUMMARY_INTERVAL_TICKS = 200L
-    private const val MATERIALIZED_RESYNC_INTERVAL_TICKS = 2L
+    // The materialized-water consistency sweep re-reads every open cell about once per period, within these bounds
+    // on the cells per ship and tick.
+    private const val MATERIALIZED_SWEEP_PERIOD_TICKS = 200
+    private const val MATERIALIZED_SWEEP_MIN_CELLS_PER_TICK = 64
+    private const val MATERIALIZED_SWEEP_MAX_CELLS_PER_TICK = 2048
+    // Open cells per ship and tick re-read while a full materialized-water resync is in progress.
+    private const val MATERIALIZED_RESYNC_CELLS_PER_TICK = 8192
+    // Logged fluid changes per ship beyond which the next tick falls back to a full materialized-water resync.
+    private const val MATERIALIZED_CHANGE_LOG_MAX = 16384
     private const val PERSIST_FLUSH_INTERVAL_TICKS = 20L
     @Volatile
     private var applyingInternalUpdates: Boolean = false
@@ -122,11 +159,36 @@ object ShipWaterPocketManager {
         ThreadLocal.withInitial { IntersectingShipsCache() }
 
     private val tmpFloodQueue: ThreadLocal<IntArray> = ThreadLocal.withInitial { IntArray(0) }
+    private val tmpFluidCoverageTally: ThreadLocal<IntArray> =
+        ThreadLocal.withInitial { IntArray(FLUID_COVERAGE_SAMPLE_COUNT * 2) }
+    // Ship-local (x, y, z) sample offsets inside a cell: the center first, then the eight corners pulled in slightly.
+    // Near the fluid surface / with rotation, the cell center can be above fluid while a corner is submerged.
+    private val FLUID_COVERAGE_SAMPLE_OFFSETS = run {
+        val lo = 1e-4
+        val hi = 1.0 - lo
+        doubleArrayOf(
+            0.5, 0.5, 0.5,
+            lo, lo, lo,
+            hi, lo, lo,
+            lo, hi, lo,
+            hi, hi, lo,
+            lo, lo, hi,
+            hi, lo, hi,
+            lo, hi, hi,
+            hi, hi, hi,
+        )
+    }
     private val tmpFloodComponentVisited: ThreadLocal<BitSet> = ThreadLocal.withInitial { BitSet() }
     private val tmpPressureComponentVisited: ThreadLocal<BitSet> = ThreadLocal.withInitial { BitSet() }
     private val tmpPressureSubmerged: ThreadLocal<BitSet> = ThreadLocal.withInitial { BitSet() }
     private val tmpLeakedWaterToRemove: ThreadLocal<BitSet> = ThreadLocal.withInitial { BitSet() }
+    private val tmpScratchMasks: ThreadLocal<ShipPocketScratchMasks> =
+        ThreadLocal.withInitial { ShipPocketScratchMasks() }
+    // Last tick's flood-plane map of whichever ship updated before, recycled as the next ship's new map.
+    private val tmpSpareFloodPlanes: ThreadLocal<Int2DoubleOpenHashMap> =
+        ThreadLocal.withInitial { Int2DoubleOpenHashMap() }
     private val tmpPressureEscapeHeight: ThreadLocal<DoubleArray> = ThreadLocal.withInitial { DoubleArray(0) }
+    private val tmpPressureCellY: ThreadLocal<DoubleArray> = ThreadLocal.withInitial { DoubleArray(0) }
     private val tmpPressureHeapIdx: ThreadLocal<IntArray> = ThreadLocal.withInitial { IntArray(0) }
     private val tmpPressureHeapPos: ThreadLocal<IntArray> = ThreadLocal.withInitial { IntArray(0) }
     private val tmpSubmergedCoverage: ThreadLocal<DoubleArray> = ThreadLocal.withInitial { DoubleArray(0) }
@@ -137,6 +199,14 @@ object ShipWaterPocketManager {
     private val geometryJobsDiscarded = AtomicLong(0)
     private val geometryJobsFailed = AtomicLong(0)
     private val geometryComputeNanosTotal = AtomicLong(0)
+    private val geometryIncrementalJobs = AtomicLong(0)
+    private val geometryBoundsShiftJobs = AtomicLong(0)
+    private val geometryIncrementalReunionVoxels = AtomicLong(0)
+    private val geometryIncrementalBasesDropped = AtomicLong(0)
+    private val geometrySubmitsDeferred = AtomicLong(0)
+    private val geometryBoundsChangesDeferred = AtomicLong(0)
+    private val geometryDirtyMarksCoalesced = AtomicLong(0)
+    private val geometryJobsCancelledStale = AtomicLong(0)
     private val waterSolveJobsSubmitted = AtomicLong(0)
     private val waterSolveJobsCompleted = AtomicLong(0)
     private val waterSolveJobsDiscarded = AtomicLong(0)
@@ -145,10 +215,33 @@ object ShipWaterPocketManager {
     private val waterSolveAgeDiscardCount = AtomicLong(0)
     private val waterSolveStarvationFallbackCount = AtomicLong(0)
     private val waterSolveCancelledOverAgeCount = AtomicLong(0)
+    private val waterSolveJobsCancelledStale = AtomicLong(0)
     private val waterSolveTransformMismatchDiscardCount = AtomicLong(0)
     private val waterSolveApplyAgeBuckets = Array(6) { AtomicLong(0) }
     private val asyncQueueFullSkips = AtomicLong(0)
     private val waterSolveSyncFallbacks = AtomicLong(0)
+    private val waterSolveSlicesRun = AtomicLong(0)
+    private val waterSolveSlicedCompleted = AtomicLong(0)
+    private val waterSolveSlicedDiscarded = AtomicLong(0)
+    private val hullSamplingDerivedCells = AtomicLong(0)
+    private val hullSamplingFallbacks = AtomicLong(0)
+    private val waterSolveMemoHits = AtomicLong(0)
+    private val scheduledWaterSolveCandidates = AtomicLong(0)
+    private val scheduledWaterSolveBudgetDeferrals = AtomicLong(0)
+    private val scheduledWaterSolveRateSkips = AtomicLong(0)
+    private val scheduledGeometryCandidates = AtomicLong(0)
+    private val scheduledGeometryBudgetDeferrals = AtomicLong(0)
+    private val scheduledQueueDepthHighWater = AtomicLong(0)
+    private val drySleepEntered = AtomicLong(0)
+    private val drySleepWoken = AtomicLong(0)
+    private val drySleepShipTicks = AtomicLong(0)
+    private val buoyancyPlaneRefreshes = AtomicLong(0)
+    private val materializedLogCells = AtomicLong(0)
+    private val materializedSweepCells = AtomicLong(0)
+    private val materializedFullResyncs = AtomicLong(0)
+    private val gravityResettleTicksScheduled = AtomicLong(0)
+    private val gravityResettleBacklog = ResettleBacklogMetrics()
+    private val floodFillOrderRebuilds = AtomicLong(0)
     private val worldSuppressionHits = AtomicLong(0)
     private val floodQueueBacklogHighWater = AtomicLong(0)
     private val microOpeningFilteredCount = AtomicLong(0)
@@ -161,6 +254,185 @@ object ShipWaterPocketManager {
     private val persistedSignatureMismatches = AtomicLong(0)
     private val componentTraversalOverflowCount = AtomicLong(0)
 
+    private class PendingGeometrySubmit(
+        val state: ShipPocketState,
+        val minX: Int,
+        val minY: Int,
+        val minZ: Int,
+        val sizeX: Int,
+        val sizeY: Int,
+        val sizeZ: Int,
+    )
+
+    private class PendingWaterSolveSubmit(
+        val state: ShipPocketState,
+        val shipTransform: ShipTransform,
+    )
+
+    private fun captureScheduleInputs(
+        level: Level,
+        ship: Ship,
+        state: ShipPocketState,
+        now: Long,
+    ): ShipSolveScheduleInputs {
+        // Distance to the ship's hull, not its center: a player on the deck of a large ship is right next to it.
+        val worldAabb = ship.worldAABB
+        var nearestDistSq = Double.POSITIVE_INFINITY
+        for (player in level.players()) {
+            val dx = maxOf(worldAabb.minX() - player.x, 0.0, player.x - worldAabb.maxX())
+            val dy = maxOf(worldAabb.minY() - player.y, 0.0, player.y - worldAabb.maxY())
+            val dz = maxOf(worldAabb.minZ() - player.z, 0.0, player.z - worldAabb.maxZ())
+            nearestDistSq = minOf(nearestDistSq, dx * dx + dy * dy + dz * dz)
+        }
+        val lastSolve = state.lastWaterReachableUpdateTick
+        return ShipSolveScheduleInputs(
+            nearestPlayerDistance = Math.sqrt(nearestDistSq),
+            linearSpeed = ship.velocity.length(),
+            angularSpeed = ship.omega.length(),
+            submerged = state.buoyancy.submergedAirVolume > 0.0 || !state.materializedWater.isEmpty,
+            floodQueueBacklog = state.floodQueueBacklog,
+            ticksSinceLastSolve = if (lastSolve == Long.MIN_VALUE) Long.MAX_VALUE else now - lastSolve,
+        )
+    }
+
+    /**
+     * Dry-ship fast path: a ship whose surroundings and shipyard hold no fluid at all (judged per chunk section, see
+     * WorldFluidSampleCache.regionMayHoldFluid) and that has no flooded or materialized cells has nothing to solve.
+     * Returns true while the ship sleeps; the caller then skips the whole pocket pipeline for it. Geometry edits keep
+     * marking the state dirty meanwhile and are rebuilt once the ship wakes.
+     */
+    private fun tickDrySleep(
+        level: Level,
+        ship: LoadedShip,
+        state: ShipPocketState,
+        minX: Int,
+        minY: Int,
+        minZ: Int,
+        sizeX: Int,
+        sizeY: Int,
+        sizeZ: Int,
+    ): Boolean {
+        val dry = state.flooded.isEmpty &&
+            state.materializedWater.isEmpty &&
+            state.queuedFloodAdds.isEmpty &&
+            state.queuedFloodRemoves.isEmpty &&
+            isShipSurroundingDry(level, ship, minX, minY, minZ, sizeX, sizeY, sizeZ)
+        if (!dry) {
+            if (state.sleepingDry) {
+                state.sleepingDry = false
+                drySleepWoken.incrementAndGet()
+                // Restart the starvation clock: the first solve after waking should go through the async queue.
+                state.lastWaterSolveApplyTick = level.gameTime
+            }
+            return false
+        }
+
+        if (!state.sleepingDry) {
+            state.sleepingDry = true
+            drySleepEntered.incrementAndGet()
+            cancelSlicedWaterSolve(state)
+            state.pendingWaterSolveFuture?.cancel(true)
+            state.pendingWaterSolveFuture = null
+            state.waterSolveJobInFlight = false
+            // The memoized solve described a ship in (or near) water; never reuse it after waking.
+            state.waterSolveMemoCaptureTick = Long.MIN_VALUE
+            state.buoyancy.reset()
+            state.buoyancyProfiles = null
+            updateVsBuoyancyFromPockets(ship, state)
+        }
+        drySleepShipTicks.incrementAndGet()
+        return true
+    }
+
+    private fun isShipSurroundingDry(
+        level: Level,
+        ship: LoadedShip,
+        minX: Int,
+        minY: Int,
+        minZ: Int,
+        sizeX: Int,
+        sizeY: Int,
+        sizeZ: Int,
+    ): Boolean {
+        val worldFluids = WorldFluidSampleCache.forLevel(level)
+        if (worldFluids.regionMayHoldFluid(
+                level,
+                minX,
+                minY,
+                minZ,
+                minX + sizeX - 1,
+                minY + sizeY - 1,
+                minZ + sizeZ - 1,
+                unloadedMayHoldFluid = true,
+            )
+        ) {
+            return false
+        }
+
+        val worldAabb = ship.worldAABB
+        val margin = DRY_SLEEP_WAKE_MARGIN + ship.velocity.length() * DRY_SLEEP_WAKE_LEAD_SECONDS
+        return !worldFluids.regionMayHoldFluid(
+            level,
+            Mth.floor(worldAabb.minX() - margin),
+            Mth.floor(worldAabb.minY() - margin),
+            Mth.floor(worldAabb.minZ() - margin),
+            Mth.floor(worldAabb.maxX() + margin),
+            Mth.floor(worldAabb.maxY() + margin),
+            Mth.floor(worldAabb.maxZ() + margin),
+            unloadedMayHoldFluid = false,
+        )
+    }
+
+    private fun isWaterSolveJobPending(state: ShipPocketState): Boolean {
+        if (state.slicedWaterSolveJob != null) return true
+        val pending = state.pendingWaterSolveFuture ?: return false
+        return !pending.isDone
+    }
+
+    /**
+     * Ticks the ship's oldest unsubmitted shape edit has waited, i.e. since its current edit burst began. Counting from
+     * the latest edit instead would reset a ship that is being edited right now on every edit and let ships edited
+     * once, long ago, outrank it. Bounds changes without a shape edit count as fresh.
+     */
+    private fun geometryWaitingTicks(state: ShipPocketState, now: Long): Long {
+        val burstStart = state.geometryDirtyBurstStartTick
+        if (burstStart == Long.MIN_VALUE || now < burstStart) return 1L
+        return now - burstStart + 1L
+    }
+
+    private fun drainScheduledSubmissions(
+        level: Level,
+        now: Long,
+        geometryQueue: ShipPocketSubmissionQueue<PendingGeometrySubmit>,
+        waterSolveQueue: ShipPocketSubmissionQueue<PendingWaterSolveSubmit>,
+    ) {
+        val depth = (geometryQueue.size + waterSolveQueue.size).toLong()
+        while (true) {
+            val prev = scheduledQueueDepthHighWater.get()
+            if (depth <= prev || scheduledQueueDepthHighWater.compareAndSet(prev, depth)) break
+        }
+        scheduledGeometryCandidates.addAndGet(geometryQueue.size.toLong())
+        scheduledWaterSolveCandidates.addAndGet(waterSolveQueue.size.toLong())
+
+        val geometryDeferred = geometryQueue.drain(GEOMETRY_ASYNC_SUBMISSIONS_PER_LEVEL_PER_TICK) { pending ->
+            trySubmitGeometryJob(
+                level,
+                pending.state,
+                pending.minX,
+                pending.minY,
+                pending.minZ,
+                pending.sizeX,
+                pending.sizeY,
+                pending.sizeZ,
+            )
+        }
+        val waterSolveDeferred = waterSolveQueue.drain(WATER_SOLVER_ASYNC_SUBMISSIONS_PER_LEVEL_PER_TICK) { pending ->
+            trySubmitWaterSolveJob(level, pending.state, pending.shipTransform, now)
+        }
+        scheduledGeometryBudgetDeferrals.addAndGet(geometryDeferred.toLong())
+        scheduledWaterSolveBudgetDeferrals.addAndGet(waterSolveDeferred.toLong())
+    }
+
     private fun mixHash64(acc: Long, value: Long): Long {
         var h = acc xor value
         h *= -7046029254386353131L
@@ -207,21 +479,6 @@ object ShipWaterPocketManager {
         val viscosity: Double,
     )
 
-    private data class FluidCoverageSample(
-        val canonicalFluid: Fluid?,
-        val coverageRatio: Double,
-        val centerSubmerged: Boolean,
-    ) {
-        fun isIngressQualified(): Boolean {
-            val fluid = canonicalFluid ?: return false
-            return centerSubmerged || coverageRatio >= SUBMERGED_INGRESS_MIN_COVERAGE
-        }
-
-        fun isSubmergedAny(): Boolean {
-            return canonicalFluid != null && coverageRatio > 0.0
-        }
-    }
-
     private data class OpeningFaceFluidCoverageSample(
         val canonicalFluid: Fluid?,
         val coverageRatio: Double,
@@ -247,6 +504,10 @@ object ShipWaterPocketManager {
     )
 
     private val buoyancyFluidPropsCache: ConcurrentHashMap<Fluid, BuoyancyFluidProps> = ConcurrentHashMap()
+    // Top fluid block Y of each dimension's sea as seeded by [seedKnownSeaLevel], e.g. from saved level data.
+    private val seededSeaTopFluidY: ConcurrentHashMap<DimensionId, Int> = ConcurrentHashMap()
+    // Top fluid block Y of the last deep open water an exterior surface walk reached in each dimension.
+    private val lastKnownSeaTopFluidY: ConcurrentHashMap<DimensionId, Int> = ConcurrentHashMap()
 
     private fun getBuoyancyFluidProps(fluid: Fluid): BuoyancyFluidProps {
         return buoyancyFluidPropsCache.computeIfAbsent(fluid) { f ->
@@ -281,6 +542,27 @@ object ShipWaterPocketManager {
     @JvmStatic
     fun isBypassingFluidOverrides(): Boolean = bypassFluidOverridesDepth.get()[0] > 0
 
+    /**
+     * Seeds the known sea level of [level]'s dimension: [topFluidBlockY] is the Y of the topmost sea fluid block.
+     * Exterior surface walks starting deep below it may walk all the way up to it instead of stopping at the step cap.
+     * Without a seed the last deep open water seen in the dimension is used, then `level.seaLevel - 1`.
+     */
+    @JvmStatic
+    fun seedKnownSeaLevel(level: Level, topFluidBlockY: Int) {
+        seededSeaTopFluidY[level.dimensionId] = topFluidBlockY
+    }
+
+    @JvmStatic
+    fun clearKnownSeaLevel(level: Level) {
+        seededSeaTopFluidY.remove(level.dimensionId)
+        lastKnownSeaTopFluidY.remove(level.dimensionId)
+    }
+
+    private fun knownSeaTopFluidY(level: Level): Int {
+        val dimensionId = level.dimensionId
+        return seededSeaTopFluidY[dimensionId] ?: lastKnownSeaTopFluidY[dimensionId] ?: (level.seaLevel - 1)
+    }
+
     @JvmStatic
     fun shouldMarkShipGeometryDirtyForBlockChange(
         level: Level,
@@ -338,6 +620,15 @@ object ShipWaterPocketManager {
 
     @JvmStatic
     fun markShipDirty(level: Level, shipId: Long) {
+        markShipDirty(level, shipId, null)
+    }
+
+    /**
+     * Marks ship geometry dirty because the block at [shipPos] changed shape. Known positions let the next rebuild
+     * patch only those voxels; a null position invalidates the whole volume.
+     */
+    @JvmStatic
+    fun markShipDirty(level: Level, shipId: Long, shipPos: BlockPos?) {
         if (!ValkyrienAirConfig.enableShipWaterPockets) return
         val map = (if (level.isClientSide) clientStates else serverStates)
             .computeIfAbsent(level.dimensionId) { ConcurrentHashMap() }
@@ -350,13 +641,117 @@ object ShipWaterPocketManager {
             map[shipId] = created
             created
         }
+        if (shipPos == null || state.pendingGeometryDirtyPositions.size >= INCREMENTAL_GEOMETRY_MAX_DIRTY_VOXELS) {
+            state.geometryDirtyRegionUnknown = true
+            state.pendingGeometryDirtyPositions.clear()
+        } else if (!state.geometryDirtyRegionUnknown) {
+            state.pendingGeometryDirtyPositions.add(shipPos.asLong())
+        }
         val wasAlreadyDirty = state.dirty
         val geometryInFlight = (state.pendingGeometryFuture?.isDone == false) || state.geometryJobInFlight
         state.dirty = true
         state.persistDirty = true
+        val nowTick = level.gameTime
+        if (state.geometryDirtyBurstMarks == 0) state.geometryDirtyBurstStartTick = nowTick
+        state.geometryDirtyBurstMarks++
+        state.lastGeometryDirtyTick = nowTick
         if (!wasAlreadyDirty || geometryInFlight) {
             state.geometryInvalidationStamp++
         }
+        if (geometryInFlight) {
+            // The stamp bump already dooms the in-flight result; stop its worker instead of letting it finish.
+            cancelStaleGeometryJob(state)
+        }
+    }
+
+    private fun cancelStaleGeometryJob(state: ShipPocketState) {
+        val future = state.pendingGeometryFuture ?: return
+        future.cancel(true)
+        state.pendingGeometryFuture = null
+        state.geometryJobInFlight = false
+        restoreInFlightGeometryDirtyRegion(state)
+        geometryJobsCancelledStale.incrementAndGet()
+    }
+
+    private fun cancelStaleWaterSolveJob(state: ShipPocketState) {
+        if (state.slicedWaterSolveJob != null) {
+            cancelSlicedWaterSolve(state)
+            waterSolveJobsCancelledStale.incrementAndGet()
+        }
+        val future = state.pendingWaterSolveFuture ?: return
+        future.cancel(true)
+        state.pendingWaterSolveFuture = null
+        state.waterSolveJobInFlight = false
+        waterSolveJobsCancelledStale.incrementAndGet()
+    }
+
+    private fun cancelSlicedWaterSolve(state: ShipPocketState) {
+        val job = state.slicedWaterSolveJob ?: return
+        job.cancel()
+        state.slicedWaterSolveJob = null
+        state.waterSolveJobInFlight = false
+    }
+
+    /**
+     * Starts a main-thread sliced water solve for a ship whose async solves are starved. The applied result stays live
+     * until the sliced one completes (see runSlicedWaterSolveSlice).
+     */
+    private fun startSlicedWaterSolve(
+        level: Level,
+        state: ShipPocketState,
+        shipTransform: ShipTransform,
+        nowTick: Long,
+    ): Boolean {
+        val generation = state.requestedWaterSolveGeneration + 1L
+        val snapshot = captureWaterSolveSnapshot(
+            level = level,
+            state = state,
+            shipTransform = shipTransform,
+            generation = generation,
+            captureTick = nowTick,
+        ) ?: return false
+
+        state.pendingWaterSolveFuture?.cancel(true)
+        state.pendingWaterSolveFuture = null
+        state.requestedWaterSolveGeneration = generation
+        state.lastWaterSolveSubmitTick = nowTick
+        state.slicedWaterSolveJob = ShipPocketSlicedJob { cancellation ->
+            computeWaterSolveAsync(snapshot, cancellation)
+        }
+        state.waterSolveJobInFlight = true
+        return true
+    }
+
+    /** Runs one slice of the ship's sliced water solve; returns true if it finished and its result was applied. */
+    private fun runSlicedWaterSolveSlice(state: ShipPocketState, nowTick: Long, budgetNanos: Long): Boolean {
+        val job = state.slicedWaterSolveJob ?: return false
+        waterSolveSlicesRun.incrementAndGet()
+        if (!job.runSlice(budgetNanos)) return false
+
+        state.slicedWaterSolveJob = null
+        state.waterSolveJobInFlight = false
+        val result = try {
+            job.result()
+        } catch (t: Throwable) {
+            if (ShipPocketAsyncRuntime.isCancellation(t)) return false
+            val count = waterSolveJobsFailed.incrementAndGet()
+            state.consecutiveWaterSolveDiscards++
+            logThrottledDiag(count, "Sliced water solve failed", t)
+            return false
+        }
+
+        // Slices can span several ticks, so unlike async results the age and transform are not checked: a late
+        // answer still beats the starved one. A geometry change does make it meaningless, though.
+        if (result.generation != state.requestedWaterSolveGeneration ||
+            result.geometryRevision != state.geometryRevision
+        ) {
+            waterSolveSlicedDiscarded.incrementAndGet()
+            state.consecutiveWaterSolveDiscards++
+            return false
+        }
+        applyWaterSolveResult(state, result, appliedTick = nowTick)
+        waterSolveSlicedCompleted.incrementAndGet()
+        return true
     }
 
     private fun clampBitSetToVolume(bits: BitSet, volume: Int): Boolean {
@@ -426,15 +821,15 @@ object ShipWaterPocketManager {
         var changed = false
 
         if (state.faceCondXP.isNotEmpty() && state.faceCondXP.size != volume) {
-            state.faceCondXP = ShortArray(0)
+            state.faceCondXP = ByteArray(0)
             changed = true
         }
         if (state.faceCondYP.isNotEmpty() && state.faceCondYP.size != volume) {
-            state.faceCondYP = ShortArray(0)
+            state.faceCondYP = ByteArray(0)
             changed = true
         }
         if (state.faceCondZP.isNotEmpty() && state.faceCondZP.size != volume) {
-            state.faceCondZP = ShortArray(0)
+            state.faceCondZP = ByteArray(0)
             changed = true
         }
 
@@ -454,7 +849,9 @@ object ShipWaterPocketManager {
 
         val simulationBefore = state.simulationDomain.cardinality()
         state.simulationDomain.and(state.open)
-        if (state.simulationDomain.cardinality() != simulationBefore) changed = true
+        state.simulationCellCount = state.simulationDomain.cardinality()
+        state.simulationCellCountDomain = state.simulationDomain
+        if (state.simulationCellCount != simulationBefore) changed = true
 
         val floodedBefore = state.flooded.cardinality()
         state.flooded.and(state.open)
@@ -464,7 +861,10 @@ object ShipWaterPocketManager {
         val materializedBefore = state.materializedWater.cardinality()
         state.materializedWater.and(state.open)
         state.materializedWater.and(state.simulationDomain)
-        if (state.materializedWater.cardinality() != materializedBefore) changed = true
+        if (state.materializedWater.cardinality() != materializedBefore) {
+            state.materializedRevision++
+            changed = true
+        }
 
         val reachableBefore = state.waterReachable.cardinality()
         state.waterReachable.and(state.open)
@@ -507,6 +907,7 @@ object ShipWaterPocketManager {
 
         if (changed) {
             state.persistDirty = true
+            onGeometryMasksChanged(state)
         }
         return true
     }
@@ -566,7 +967,7 @@ object ShipWaterPocketManager {
         val inBounds = lx in 0 until state.sizeX && ly in 0 until state.sizeY && lz in 0 until state.sizeZ
         if (inBounds) {
             val idx = indexOf(state, lx, ly, lz)
-            if (!state.open.get(idx)) return true
+            if (!isOpenVoxel(state, idx)) return true
             if (shouldPreventExteriorWaterlogging(state, idx)) {
                 val count = blockedExteriorPlacementAttempts.incrementAndGet()
                 logThrottledDiag(count, "Blocked shipyard fluid placement into exterior-connected cell idx={}", idx)
@@ -617,7 +1018,7 @@ object ShipWaterPocketManager {
         if (lx !in 0 until state.sizeX || ly !in 0 until state.sizeY || lz !in 0 until state.sizeZ) return
 
         val idx = indexOf(state, lx, ly, lz)
-        if (!state.open.get(idx)) return
+        if (!isOpenVoxel(state, idx)) return
         if (shouldPreventExteriorWaterlogging(state, idx)) return
         val pointClass = classifyShipPoint(
             state = state,
@@ -639,12 +1040,37 @@ object ShipWaterPocketManager {
         }
 
         state.flooded.set(idx)
-        state.materializedWater.set(idx)
+        setMaterializedWater(state, idx)
         state.queuedFloodAdds.clear(idx)
         state.queuedFloodRemoves.clear(idx)
         state.persistDirty = true
     }
 
+    /**
+     * Notes a block change at [shipPos] that touched fluid and did not come from our own flood writes, so that cell's
+     * `materializedWater` bit is re-read on the ship's next tick instead of by a periodic full rescan.
+     */
+    @JvmStatic
+    fun onShipyardFluidChanged(level: Level, shipId: Long, shipPos: BlockPos) {
+        if (!ValkyrienAirConfig.enableShipWaterPockets) return
+        if (level.isClientSide) return
+
+        val state = serverStates[level.dimensionId]?.get(shipId) ?: return
+        if (state.materializedChangeLogOverflow) return
+        val lx = shipPos.x - state.minX
+        val ly = shipPos.y - state.minY
+        val lz = shipPos.z - state.minZ
+        if (lx !in 0 until state.sizeX || ly !in 0 until state.sizeY || lz !in 0 until state.sizeZ) return
+
+        val log = state.materializedChangeLog
+        if (log.size >= MATERIALIZED_CHANGE_LOG_MAX) {
+            log.clear()
+            state.materializedChangeLogOverflow = true
+            return
+        }
+        log.add(indexOf(state, lx, ly, lz))
+    }
+
     private fun logThrottledDiag(counter: Long, message: String, vararg args: Any?) {
         if (counter <= 3L || counter % 512L == 0L) {
             log.debug(message, *args)
@@ -683,13 +1109,36 @@ object ShipWaterPocketManager {
             state.geometryJobInFlight = true
             return false
         }
+        if (boundsMismatch(state, minX, minY, minZ, sizeX, sizeY, sizeZ)) {
+            val target = boundsKey(minX, minY, minZ, sizeX, sizeY, sizeZ)
+            if (shouldDeferBoundsChange(state, target, level.gameTime)) {
+                geometryBoundsChangesDeferred.incrementAndGet()
+                return false
+            }
+        } else if (shouldDeferGeometrySubmit(state, level.gameTime)) {
+            geometrySubmitsDeferred.incrementAndGet()
+            return false
+        }
 
         val generation = state.requestedGeometryGeneration + 1L
         state.requestedGeometryGeneration = generation
         val invalidationStamp = state.geometryInvalidationStamp
 
-        val snapshot = try {
-            captureGeometryAsyncSnapshot(
+        val incrementalBase = state.geometryIncrementalBase
+        // A grown/shrunk AABB still reuses the previous base: the worker remaps it and only rebuilds the new shell.
+        val dirtyIndices =
+            if (!state.geometryDirtyRegionUnknown &&
+                incrementalBase != null &&
+                incrementalBase.overlapsBounds(minX, minY, minZ, sizeX, sizeY, sizeZ)
+            ) {
+                collectDirtyGeometryIndices(state.pendingGeometryDirtyPositions, minX, minY, minZ, sizeX, sizeY, sizeZ)
+            } else {
+                null
+            }
+        beginInFlightGeometryDirtyRegion(state)
+
+        val capture = try {
+            captureGeometryAsyncSections(
                 level = level,
                 generation = generation,
                 invalidationStamp = invalidationStamp,
@@ -707,17 +1156,22 @@ object ShipWaterPocketManager {
                 prevSizeZ = state.sizeZ,
                 prevSimulationDomain = state.simulationDomain.clone() as BitSet,
                 floodFluid = state.floodFluid,
+                dirtyIndices = dirtyIndices,
+                incrementalBase = if (dirtyIndices != null) incrementalBase else null,
             )
         } catch (t: Throwable) {
             val count = geometryJobsFailed.incrementAndGet()
-            logThrottledDiag(count, "Failed to capture ship pocket geometry snapshot", t)
+            logThrottledDiag(count, "Failed to capture ship pocket geometry sections", t)
+            restoreInFlightGeometryDirtyRegion(state)
             state.dirty = true
             return false
         }
 
-        val submittedFuture = ShipPocketAsyncRuntime.trySubmit(
+        val submittedFuture = ShipPocketAsyncRuntime.trySubmitCancellable(
             subsystem = ShipPocketAsyncSubsystem.GEOMETRY,
-            task = { computeGeometryAsync(snapshot) },
+            task = { cancellation ->
+                computeGeometryAsync(resolveGeometryAsyncSnapshot(capture, cancellation), cancellation)
+            },
         )
         if (submittedFuture == null) {
             val count = asyncQueueFullSkips.incrementAndGet()
@@ -727,18 +1181,36 @@ object ShipWaterPocketManager {
                 ShipPocketAsyncRuntime.pendingJobCount(),
                 ShipPocketAsyncRuntime.maxPendingJobs(),
             )
+            restoreInFlightGeometryDirtyRegion(state)
             state.dirty = true
             return false
         }
         state.pendingGeometryFuture = submittedFuture
         state.geometryJobInFlight = true
+        if (state.geometryDirtyBurstMarks > 1) {
+            geometryDirtyMarksCoalesced.addAndGet(state.geometryDirtyBurstMarks - 1L)
+        }
+        state.geometryDirtyBurstMarks = 0
+        state.geometryDirtyBurstStartTick = Long.MIN_VALUE
+        state.geometryBoundsChangeStartTick = Long.MIN_VALUE
+        state.submittedShapeCacheEpoch = state.shapeCacheEpoch
 
         val count = geometryJobsSubmitted.incrementAndGet()
+        if (capture.dirtyIndices != null) {
+            geometryIncrementalJobs.incrementAndGet()
+            if (capture.incrementalBase?.matchesBounds(minX, minY, minZ, sizeX, sizeY, sizeZ) == false) {
+                geometryBoundsShiftJobs.incrementAndGet()
+            }
+        }
         logThrottledDiag(
             count,
-            "Submitted ship pocket geometry job gen={} invalidation={} bounds=({}, {}, {} ; {}x{}x{})",
+            "Submitted ship pocket geometry job gen={} invalidation={} dirtyVoxels={} sections={} uniformBricks={} contextShapes={} bounds=({}, {}, {} ; {}x{}x{})",
             generation,
             invalidationStamp,
+            capture.dirtyIndices?.size ?: -1,
+            capture.sections.sectionCount,
+            capture.bricks.uniformCount(),
+            capture.contextEntries.size,
             minX,
             minY,
             minZ,
@@ -749,9 +1221,147 @@ object ShipWaterPocketManager {
         return true
     }
 
+    /**
+     * Debounce for bursts of shape edits. Every submit during a burst is invalidated by the next edit and discarded on
+     * completion, so holding off until the burst settles saves whole rebuilds. Small edits (a player placing blocks)
+     * are never delayed, and a continuous stream of edits still gets a rebuild every max-latency window. Bounds
+     * changes go through [shouldDeferBoundsChange] instead; a shape-cache reload since the last submit is never
+     * delayed either, since every voxel's shape may be stale.
+     */
+    private fun shouldDeferGeometrySubmit(state: ShipPocketState, nowTick: Long): Boolean {
+        if (state.submittedShapeCacheEpoch != ShipWaterPocketShapeCache.epoch()) return false
+        if (state.geometryDirtyBurstMarks < GEOMETRY_DEBOUNCE_MIN_BURST_MARKS) return false
+        // Game time can jump backwards (client reconnect, /time); never debounce against a stale timestamp.
+        if (nowTick < state.lastGeometryDirtyTick || nowTick < state.geometryDirtyBurstStartTick) return false
+        if (nowTick - state.geometryDirtyBurstStartTick >= GEOMETRY_DEBOUNCE_MAX_LATENCY_TICKS) return false
+
+        val lastComputeMs = state.geometryLastComputeNanos / 1_000_000L
+        val quietTicks =
+            (GEOMETRY_DEBOUNCE_MIN_QUIET_TICKS + lastComputeMs / GEOMETRY_DEBOUNCE_QUIET_TICK_PER_COMPUTE_MS)
+                .coerceAtMost(GEOMETRY_DEBOUNCE_MAX_QUIET_TICKS)
+        return nowTick - state.lastGeometryDirtyTick < quietTicks
+    }
+
+    /**
+     * Coalescing window for bounds changes. A hull growing block by block changes its AABB with nearly every edit, and
+     * each change rebuilds the new shell (and, past the incremental limits, everything); holding the submit until the
+     * target bounds ([target], see [boundsKey]) stood still for a couple of ticks folds such a run into one rebuild.
+     * The first change of a run is never held back more than GEOMETRY_BOUNDS_MAX_DELAY_TICKS, and a ship without
+     * geometry yet is not held back at all.
+     */
+    private fun shouldDeferBoundsChange(state: ShipPocketState, target: Long, nowTick: Long): Boolean {
+        if (state.sizeX <= 0 || state.sizeY <= 0 || state.sizeZ <= 0) return false
+        val start = state.geometryBoundsChangeStartTick
+        // Game time can jump backwards (client reconnect, /time); restart the window instead of trusting it.
+        if (start == Long.MIN_VALUE || nowTick < start || nowTick < state.geometryBoundsChangeLastTick) {
+            state.geometryBoundsChangeStartTick = nowTick
+            state.geometryBoundsChangeLastTick = nowTick
+            state.geometryBoundsChangeTarget = target
+            return true
+        }
+        if (target != state.geometryBoundsChangeTarget) {
+            state.geometryBoundsChangeTarget = target
+            state.geometryBoundsChangeLastTick = nowTick
+        }
+        if (nowTick - start >= GEOMETRY_BOUNDS_MAX_DELAY_TICKS) return false
+        return nowTick - state.geometryBoundsChangeLastTick < GEOMETRY_BOUNDS_COALESCE_TICKS
+    }
+
+    private fun boundsKey(minX: Int, minY: Int, minZ: Int, sizeX: Int, sizeY: Int, sizeZ: Int): Long {
+        var h = mixHash64(minX.toLong(), minY.toLong())
+        h = mixHash64(h, minZ.toLong())
+        h = mixHash64(h, sizeX.toLong())
+        h = mixHash64(h, sizeY.toLong())
+        return mixHash64(h, sizeZ.toLong())
+    }
+
+    private fun collectDirtyGeometryIndices(
+        positions: LongOpenHashSet,
+        minX: Int,
+        minY: Int,
+        minZ: Int,
+        sizeX: Int,
+        sizeY: Int,
+        sizeZ: Int,
+    ): IntArray {
+        val indices = IntArrayList(positions.size)
+        val iter = positions.iterator()
+        while (iter.hasNext()) {
+            val packed = iter.nextLong()
+            val lx = BlockPos.getX(packed) - minX
+            val ly = BlockPos.getY(packed) - minY
+            val lz = BlockPos.getZ(packed) - minZ
+            if (lx !in 0 until sizeX || ly !in 0 until sizeY || lz !in 0 until sizeZ) continue
+            indices.add(lx + sizeX * (ly + sizeY * lz))
+        }
+        val out = indices.toIntArray()
+        // Sorted so template palette growth (and therefore the result) is independent of hash-set iteration order.
+        out.sort()
+        return out
+    }
+
+    private fun beginInFlightGeometryDirtyRegion(state: ShipPocketState) {
+        state.inFlightGeometryDirtyPositions.clear()
+        state.inFlightGeometryDirtyPositions.addAll(state.pendingGeometryDirtyPositions)
+        state.inFlightGeometryDirtyRegionUnknown = state.geometryDirtyRegionUnknown
+        state.pendingGeometryDirtyPositions.clear()
+        state.geometryDirtyRegionUnknown = false
+    }
+
+    private fun restoreInFlightGeometryDirtyRegion(state: ShipPocketState) {
+        if (state.inFlightGeometryDirtyRegionUnknown) {
+            state.geometryDirtyRegionUnknown = true
+        }
+        if (state.geometryDirtyRegionUnknown) {
+            state.pendingGeometryDirtyPositions.clear()
+        } else {
+            state.pendingGeometryDirtyPositions.addAll(state.inFlightGeometryDirtyPositions)
+        }
+        state.inFlightGeometryDirtyPositions.clear()
+        state.inFlightGeometryDirtyRegionUnknown = false
+    }
+
+    /**
+     * Called after a resource or datapack reload: block shapes may have changed, so cached templates are dropped and
+     * every ship rebuilds its geometry from scratch on its next tick.
+     */
+    @JvmStatic
+    fun onShapeResourcesReloaded() {
+        ShipWaterPocketShapeCache.invalidate()
+    }
+
+    private fun refreshShapeCacheEpoch(state: ShipPocketState) {
+        val epoch = ShipWaterPocketShapeCache.epoch()
+        if (state.shapeCacheEpoch == epoch) return
+        state.shapeCacheEpoch = epoch
+        invalidateGeometryIncrementalBase(state)
+        state.dirty = true
+        state.geometryInvalidationStamp++
+    }
+
+    private fun invalidateGeometryIncrementalBase(state: ShipPocketState) {
+        state.geometryIncrementalBase = null
+        state.geometryDirtyRegionUnknown = true
+        state.pendingGeometryDirtyPositions.clear()
+        state.inFlightGeometryDirtyPositions.clear()
+        state.inFlightGeometryDirtyRegionUnknown = false
+    }
+
+    /** Frees the incremental base of a ship nobody has edited since [GEOMETRY_INCREMENTAL_BASE_IDLE_TICKS]. */
+    private fun dropIdleGeometryIncrementalBase(state: ShipPocketState, nowTick: Long) {
+        if (state.geometryIncrementalBase == null || state.geometryJobInFlight) return
+        if (state.dirty || !state.pendingGeometryDirtyPositions.isEmpty()) return
+        val lastUse = maxOf(state.geometryIncrementalBaseTick, state.lastGeometryDirtyTick)
+        // Game time can jump backwards; only drop against a timestamp from the past.
+        if (nowTick < lastUse || nowTick - lastUse < GEOMETRY_INCREMENTAL_BASE_IDLE_TICKS) return
+        invalidateGeometryIncrementalBase(state)
+        geometryIncrementalBasesDropped.incrementAndGet()
+    }
+
     private fun applyGeometryResult(
         state: ShipPocketState,
         result: GeometryAsyncResult,
+        nowTick: Long,
     ) {
         val wasRestored = state.restoredFromPersistence
         val previousSignature = state.geometrySignature
@@ -785,8 +1395,10 @@ object ShipWaterPocketManager {
         state.strictInterior = result.strictInterior
         state.simulationDomain = result.simulationDomain
         state.interior = result.interior
+        onGeometryMasksChanged(state)
         state.flooded = result.flooded
         state.materializedWater = result.materializedWater
+        state.materializedRevision++
         state.faceCondXP = result.faceCondXP
         state.faceCondYP = result.faceCondYP
         state.faceCondZP = result.faceCondZP
@@ -797,6 +1409,14 @@ object ShipWaterPocketManager {
         state.voxelSimulationComponentMask = result.voxelSimulationComponentMask
         state.componentGraphDegraded = result.componentGraphDegraded
         state.geometrySignature = result.geometrySignature
+        state.geometryIncrementalBase = result.incrementalBase
+        state.geometryIncrementalBaseTick = nowTick
+        state.inFlightGeometryDirtyPositions.clear()
+        state.inFlightGeometryDirtyRegionUnknown = false
+        if (result.incrementalBase == null) {
+            state.geometryDirtyRegionUnknown = true
+            state.pendingGeometryDirtyPositions.clear()
+        }
         state.waterReachable = BitSet(result.sizeX * result.sizeY * result.sizeZ)
         state.unreachableVoid = state.open.clone() as BitSet
         state.floodPlaneByComponent.clear()
@@ -810,6 +1430,9 @@ object ShipWaterPocketManager {
             !prevFaceCondZP.contentEquals(state.faceCondZP)
         ) {
             state.geometryRevision++
+            state.buoyancyProfiles = null
+            // A pending solve was captured against the old geometry revision and would be discarded on apply.
+            cancelStaleWaterSolveJob(state)
         }
 
         val signatureMismatch = wasRestored &&
@@ -827,6 +1450,7 @@ object ShipWaterPocketManager {
             persistedMaterialized.and(state.open)
             persistedMaterialized.and(state.simulationDomain)
             state.materializedWater.or(persistedMaterialized)
+            state.materializedRevision++
             state.waterReachable.clear()
             state.unreachableVoid = state.open.clone() as BitSet
             state.floodPlaneByComponent.clear()
@@ -852,6 +1476,7 @@ object ShipWaterPocketManager {
         sizeX: Int,
         sizeY: Int,
         sizeZ: Int,
+        nowTick: Long,
     ): Boolean {
         val future = state.pendingGeometryFuture ?: return false
         if (!future.isDone) return false
@@ -862,10 +1487,15 @@ object ShipWaterPocketManager {
         val result = try {
             future.join()
         } catch (t: Throwable) {
+            restoreInFlightGeometryDirtyRegion(state)
+            state.dirty = true
+            if (ShipPocketAsyncRuntime.isCancellation(t)) {
+                geometryJobsCancelledStale.incrementAndGet()
+                return false
+            }
             val root = t.cause ?: t
             val count = geometryJobsFailed.incrementAndGet()
             logThrottledDiag(count, "Ship pocket geometry job failed", root)
-            state.dirty = true
             return false
         }
 
@@ -887,20 +1517,29 @@ object ShipWaterPocketManager {
                 result.invalidationStamp,
                 state.geometryInvalidationStamp,
             )
+            restoreInFlightGeometryDirtyRegion(state)
             state.dirty = true
             return false
         }
 
-        applyGeometryResult(state, result)
+        applyGeometryResult(state, result, nowTick)
         geometryComputeNanosTotal.addAndGet(result.computeNanos)
+        if (result.incrementalReunionVoxels > 0) {
+            geometryIncrementalReunionVoxels.addAndGet(result.incrementalReunionVoxels.toLong())
+        }
         val completed = geometryJobsCompleted.incrementAndGet()
         val avgMs = geometryComputeNanosTotal.get().toDouble() / completed.toDouble() / 1_000_000.0
         logThrottledDiag(
             completed,
-            "Applied ship pocket geometry gen={} computeMs={} avgComputeMs={}",
+            "Applied ship pocket geometry gen={} computeMs={} avgComputeMs={} incrementalJobs={} boundsShiftJobs={} reunionVoxels={}/{} maskPages={}",
             result.generation,
             result.computeNanos.toDouble() / 1_000_000.0,
             avgMs,
+            geometryIncrementalJobs.get(),
+            geometryBoundsShiftJobs.get(),
+            result.incrementalReunionVoxels,
+            result.sizeX * result.sizeY * result.sizeZ,
+            result.voxelSimulationComponentMask.allocatedPageCount(),
         )
         return true
     }
@@ -960,13 +1599,13 @@ object ShipWaterPocketManager {
         val wz = Mth.floor(worldPosTmp.z)
         worldBlockPos.set(wx, wy, wz)
 
-        val worldFluid = level.getFluidState(worldBlockPos)
-        if (worldFluid.isEmpty) return null
-        if (worldFluid.isSource) return canonicalFloodSource(worldFluid.type)
+        // Shared by every ship sampling this level this tick; neighbouring cells and ships hit the same blocks.
+        val worldFluids = WorldFluidSampleCache.forLevel(level)
+        val worldFluid = worldFluids.canonicalFluidAt(level, wx, wy, wz) ?: return null
 
-        val height = worldFluid.getHeight(level, worldBlockPos).toDouble()
+        val height = worldFluids.fluidHeightAt(level, wx, wy, wz)
         val localY = worldPosTmp.y - wy.toDouble()
-        return if (localY <= height + epsY) canonicalFloodSource(worldFluid.type) else null
+        return if (localY <= height + epsY) worldFluid else null
     }
 
     private fun estimateExteriorFluidSurfaceYAtShipPoint(
@@ -991,30 +1630,23 @@ object ShipWaterPocketManager {
                 Mth.floor(worldPosTmp.z),
             )
 
-            var y = worldBlockPos.y
-            var steps = 0
-            var lastSurface = Double.NEGATIVE_INFINITY
-
-            while (steps < AIR_PRESSURE_SURFACE_SCAN_MAX_STEPS && y < level.maxBuildHeight) {
-                val fs = level.getFluidState(worldBlockPos)
-                if (fs.isEmpty || canonicalFloodSource(fs.type) != canonical) break
-
-                val h = if (fs.isSource) 1.0 else fs.getHeight(level, worldBlockPos).toDouble()
-                lastSurface = y.toDouble() + h
-                if (h < 1.0 - 1e-6) break
-
-                worldBlockPos.move(0, 1, 0)
-                y++
-                steps++
-            }
-
-            if (!lastSurface.isFinite()) {
-                null
-            } else if (steps >= AIR_PRESSURE_SURFACE_SCAN_MAX_STEPS) {
-                maxOf(lastSurface, (level.seaLevel + 1).toDouble())
-            } else {
-                lastSurface
+            val seaTopFluidY = knownSeaTopFluidY(level)
+            val cache = WorldFluidSampleCache.forLevel(level)
+            val surfaceY = cache.exteriorSurfaceYAt(
+                level,
+                worldBlockPos.x,
+                worldBlockPos.y,
+                worldBlockPos.z,
+                canonical,
+                AIR_PRESSURE_SURFACE_SCAN_MAX_STEPS,
+                seaTopFluidY,
+                (level.seaLevel + 1).toDouble(),
+            )
+            val openWaterTopY = cache.lastOpenWaterTopY
+            if (openWaterTopY != Int.MIN_VALUE && openWaterTopY != seaTopFluidY) {
+                lastKnownSeaTopFluidY[level.dimensionId] = openWaterTopY
             }
+            surfaceY
         }
     }
 
@@ -1040,6 +1672,113 @@ object ShipWaterPocketManager {
         )
     }
 
+    /**
+     * The cheap part of the water solve input key: ship pose (quantized like [transformKey]), geometry and mask
+     * revisions, flood fluid and the materialized-water revision. While the ship moves or its water changes this
+     * differs every tick, so [tryReuseMemoizedWaterSolve] compares it before paying for [computeWaterSolveInputKey].
+     */
+    private fun computeWaterSolveInputHead(state: ShipPocketState, shipTransform: ShipTransform): Long {
+        var h = transformKey(
+            minX = state.minX,
+            minY = state.minY,
+            minZ = state.minZ,
+            shipTransform = shipTransform,
+            shipPosTmp = tmpShipPos2.get(),
+            worldPosTmp = tmpWorldPos2.get(),
+        )
+        h = mixHash64(h, state.geometryRevision)
+        h = mixHash64(h, state.geometryMaskRevision)
+        h = mixHash64(h, System.identityHashCode(state.floodFluid).toLong())
+        return mixHash64(h, state.materializedRevision)
+    }
+
+    /**
+     * Hash of everything a water solve reads: [inputHead] plus the world fluid in the block under each hull-frontier
+     * and hull-shell cell center. Equal keys mean a new solve would reproduce the applied one, up to world fluid
+     * changes away from those centers, which [WATER_SOLVE_MEMO_MAX_AGE_TICKS] bounds.
+     */
+    private fun computeWaterSolveInputKey(
+        level: Level,
+        state: ShipPocketState,
+        shipTransform: ShipTransform,
+        inputHead: Long,
+    ): Long {
+        val shipPosTmp = tmpShipPos2.get()
+        val worldPosTmp = tmpWorldPos2.get()
+        var h = inputHead
+        val volume = state.sizeX * state.sizeY * state.sizeZ
+        val worldFluids = WorldFluidSampleCache.forLevel(level)
+        return withBypassedFluidOverrides {
+            for (cells in arrayOf(hullSamplingFrontier(state), hullSamplingShell(state))) {
+                var idx = cells.nextSetBit(0)
+                while (idx >= 0 && idx < volume) {
+                    val lx = idx % state.sizeX
+                    val t = idx / state.sizeX
+                    val ly = t % state.sizeY
+                    val lz = t / state.sizeY
+                    shipPosTmp.set(state.minX + lx + 0.5, state.minY + ly + 0.5, state.minZ + lz + 0.5)
+                    shipTransform.shipToWorld.transformPosition(shipPosTmp, worldPosTmp)
+                    val wx = Mth.floor(worldPosTmp.x)
+                    val wy = Mth.floor(worldPosTmp.y)
+                    val wz = Mth.floor(worldPosTmp.z)
+                    val fluid = worldFluids.canonicalFluidAt(level, wx, wy, wz)
+                    if (fluid != null) {
+                        h = mixHash64(h, idx.toLong())
+                        h = mixHash64(h, System.identityHashCode(fluid).toLong())
+                        h = mixHash64(h, worldFluids.fluidHeightAt(level, wx, wy, wz).toRawBits())
+                    }
+                    idx = cells.nextSetBit(idx + 1)
+                }
+            }
+            h
+        }
+    }
+
+    /**
+     * Whether the water solve should run this tick: right after a geometry change, otherwise once [intervalTicks]
+     * (see targetSolveIntervalTicks) have passed since the last solve or memo reuse.
+     */
+    private fun isWaterSolveDue(
+        state: ShipPocketState,
+        geometryApplied: Boolean,
+        now: Long,
+        intervalTicks: Long,
+    ): Boolean {
+        if (state.sizeX <= 0 || state.sizeY <= 0 || state.sizeZ <= 0) return false
+        if (geometryApplied) return true
+        val last = state.lastWaterReachableUpdateTick
+        if (last == Long.MIN_VALUE || now - last >= intervalTicks) return true
+        if (now != last) scheduledWaterSolveRateSkips.incrementAndGet()
+        return false
+    }
+
+    /**
+     * Reuses the applied water solve when nothing it depends on changed since its capture, so moored ships skip both
+     * the snapshot capture and the job.
+     */
+    private fun tryReuseMemoizedWaterSolve(
+        level: Level,
+        state: ShipPocketState,
+        shipTransform: ShipTransform,
+        nowTick: Long,
+    ): Boolean {
+        if (state.waterSolveMemoCaptureTick == Long.MIN_VALUE) return false
+        if (nowTick - state.waterSolveMemoCaptureTick > WATER_SOLVE_MEMO_MAX_AGE_TICKS) return false
+        // Let an in-flight solve land first; it may have been captured against different inputs.
+        if (state.pendingWaterSolveFuture != null) return false
+        // Counters first; the frontier walk only runs for ships that look unchanged.
+        val inputHead = computeWaterSolveInputHead(state, shipTransform)
+        if (state.appliedWaterSolveInputHead != inputHead) return false
+        if (state.appliedWaterSolveInputKey != computeWaterSolveInputKey(level, state, shipTransform, inputHead)) {
+            return false
+        }
+
+        state.lastWaterReachableUpdateTick = nowTick
+        state.lastWaterSolveApplyTick = nowTick
+        waterSolveMemoHits.incrementAndGet()
+        return true
+    }
+
     private fun captureWaterSolveSnapshot(
         level: Level,
         state: ShipPocketState,
@@ -1053,6 +1792,8 @@ object ShipWaterPocketManager {
         val volumeLong = sizeX.toLong() * sizeY.toLong() * sizeZ.toLong()
         if (volumeLong <= 0 || volumeLong > MAX_SIM_VOLUME.toLong()) return null
         val volume = volumeLong.toInt()
+        val inputHead = computeWaterSolveInputHead(state, shipTransform)
+        val inputKey = computeWaterSolveInputKey(level, state, shipTransform, inputHead)
 
         val shipPosTmp = tmpShipPos2.get()
         val worldPosTmp = tmpWorldPos2.get()
@@ -1093,10 +1834,21 @@ object ShipWaterPocketManager {
         }
         java.util.Arrays.fill(surfaceYByCell, 0, volume, Double.NaN)
 
-        val floodFluidScores = HashMap<Fluid, Double>()
+        // Indexed by [FluidCoverageIds] id; grown if sampling meets a fluid first seen after this was sized.
+        var floodFluidScores = DoubleArray(FluidCoverageIds.idBound())
         val open = state.open
-        var idx = open.nextSetBit(0)
-        while (idx >= 0 && idx < volume) {
+        val hullSamples = HullSampleSummary()
+
+        fun cellCenterWorldY(idx: Int): Double {
+            val lx = idx % sizeX
+            val t = idx / sizeX
+            val ly = t % sizeY
+            val lz = t / sizeY
+            return affine.baseWorldY + affine.incX * (lx + 0.5) + affine.incY * (ly + 0.5) + affine.incZ * (lz + 0.5)
+        }
+
+        // [hullOnly] cells (solid shell) only tell where the exterior fluid is; their own coverage is not recorded.
+        fun sampleCell(idx: Int, hullOnly: Boolean = false) {
             posFromIndex(state, idx, shipBlockPos)
             val coverage = getShipCellFluidCoverage(
                 level = level,
@@ -1106,18 +1858,26 @@ object ShipWaterPocketManager {
                 worldPosTmp = worldPosTmp,
                 worldBlockPos = worldBlockPos,
             )
-            val fluid = coverage.canonicalFluid
-            if (coverage.isSubmergedAny() && fluid != null) {
-                submergedCoverage[idx] = coverage.coverageRatio
-                val score = if (coverage.isIngressQualified()) {
-                    coverage.coverageRatio.coerceAtLeast(SUBMERGED_INGRESS_MIN_COVERAGE)
+            val fluid = fluidCoverageFluid(coverage)
+            if (!isFluidCoverageSubmergedAny(coverage) || fluid == null) {
+                hullSamples.addDry(cellCenterWorldY(idx))
+            } else {
+                val ratio = fluidCoverageRatio(coverage)
+                if (!hullOnly) submergedCoverage[idx] = ratio
+                val score = if (isCoverageIngressQualified(coverage)) {
+                    ratio.coerceAtLeast(SUBMERGED_INGRESS_MIN_COVERAGE)
                 } else {
-                    coverage.coverageRatio * 0.25
+                    ratio * 0.25
                 }
-                floodFluidScores[fluid] = (floodFluidScores[fluid] ?: 0.0) + score
+                val fluidId = fluidCoverageFluidId(coverage)
+                if (fluidId >= floodFluidScores.size) {
+                    floodFluidScores = floodFluidScores.copyOf(maxOf(fluidId + 1, FluidCoverageIds.idBound()))
+                }
+                floodFluidScores[fluidId] += score
 
-                if (coverage.isIngressQualified()) {
-                    submerged.set(idx)
+                var surfaceY = Double.NaN
+                if (isCoverageIngressQualified(coverage)) {
+                    if (!hullOnly) submerged.set(idx)
                     val surface = estimateExteriorFluidSurfaceY(
                         level = level,
                         shipTransform = shipTransform,
@@ -1128,19 +1888,90 @@ object ShipWaterPocketManager {
                         worldBlockPos = worldBlockPos,
                     )
                     if (surface != null && surface.isFinite()) {
-                        surfaceYByCell[idx] = surface
+                        if (!hullOnly) surfaceYByCell[idx] = surface
+                        surfaceY = surface
                     }
                 }
+                hullSamples.addWet(fluidId, surfaceY)
             }
-            idx = open.nextSetBit(idx + 1)
+        }
+
+        // Sample the hull-contact frontier and the solid shell around it only; deeper interior cells are derived below
+        // when the world around the hull is unambiguous.
+        val frontier = hullSamplingFrontier(state)
+        var idx = frontier.nextSetBit(0)
+        while (idx >= 0 && idx < volume) {
+            sampleCell(idx)
+            idx = frontier.nextSetBit(idx + 1)
+        }
+        val shell = hullSamplingShell(state)
+        idx = shell.nextSetBit(0)
+        while (idx >= 0 && idx < volume) {
+            sampleCell(idx, hullOnly = true)
+            idx = shell.nextSetBit(idx + 1)
         }
 
         var dominantFloodFluid: Fluid? = null
         var dominantScore = Double.NEGATIVE_INFINITY
-        for ((fluid, score) in floodFluidScores) {
-            if (score > dominantScore) {
+        for (fluidId in 1 until floodFluidScores.size) {
+            val score = floodFluidScores[fluidId]
+            if (score > 0.0 && score > dominantScore) {
                 dominantScore = score
-                dominantFloodFluid = fluid
+                dominantFloodFluid = FluidCoverageIds.fluidOf(fluidId)
+            }
+        }
+
+        val hullSamplingMode = hullSamples.mode(HULL_SAMPLING_MAX_SURFACE_SPREAD)
+        if (hullSamplingMode == HullSamplingMode.DRY) {
+            // The frontier and the shell enclose the rest of the volume, so with both dry the interior is dry as well.
+            hullSamplingDerivedCells.addAndGet(open.cardinality().toLong() - frontier.cardinality().toLong())
+        } else if (hullSamplingMode == HullSamplingMode.FLAT_SURFACE) {
+            // One fluid with a flat surface: coverage of every inner cell follows from the world-Y affine alone.
+            val surfaceY = hullSamples.maxSurfaceY
+            val insetHalf = 0.5 - 1.0e-4
+            val spanX = kotlin.math.abs(affine.incX) * insetHalf
+            val spanY = kotlin.math.abs(affine.incY) * insetHalf
+            val spanZ = kotlin.math.abs(affine.incZ) * insetHalf
+            var derived = 0L
+            idx = open.nextSetBit(0)
+            while (idx >= 0 && idx < volume) {
+                if (!frontier.get(idx)) {
+                    derived++
+                    val lx = idx % sizeX
+                    val t = idx / sizeX
+                    val ly = t % sizeY
+                    val lz = t / sizeY
+                    val centerY =
+                        affine.baseWorldY + affine.incX * (lx + 0.5) + affine.incY * (ly + 0.5) + affine.incZ * (lz + 0.5)
+                    val limit = surfaceY + 1.0e-5
+                    var submergedSamples = if (centerY <= limit) 1 else 0
+                    for (corner in 0 until 8) {
+                        val cornerY = centerY +
+                            (if ((corner and 1) != 0) spanX else -spanX) +
+                            (if ((corner and 2) != 0) spanY else -spanY) +
+                            (if ((corner and 4) != 0) spanZ else -spanZ)
+                        if (cornerY <= limit) submergedSamples++
+                    }
+                    if (submergedSamples > 0) {
+                        val ratio = submergedSamples / 9.0
+                        submergedCoverage[idx] = ratio
+                        if (centerY <= limit || ratio >= SUBMERGED_INGRESS_MIN_COVERAGE) {
+                            submerged.set(idx)
+                            surfaceYByCell[idx] = surfaceY
+                        }
+                    }
+                }
+                idx = open.nextSetBit(idx + 1)
+            }
+            hullSamplingDerivedCells.addAndGet(derived)
+        } else {
+            // Mixed fluids, a sloped surface (rivers, falls) or terrain/air below the surface: sample every remaining
+            // cell.
+            hullSamplingFallbacks.incrementAndGet()
+            idx = open.nextSetBit(0)
+            while (idx >= 0 && idx < volume) {
+                if (!frontier.get(idx)) sampleCell(idx)
+                idx = open.nextSetBit(idx + 1)
             }
         }
 
@@ -1493,7 +2324,7 @@ object ShipWaterPocketManager {
             if (!open.get(nIdx)) return
             // Only capture samples for *true* outside openings (simulationDomain -> outsideVoid).
             if (simulationDomain.get(nIdx)) return
-            if (!state.outsideVoid.get(nIdx)) return
+            if (!isOutsideVoidVoxel(state, nIdx)) return
             var curMaskForSample = -1L
             var nMaskForSample = -1L
             val conductance = if (hasComponentConnectivity) {
@@ -1586,6 +2417,9 @@ object ShipWaterPocketManager {
             incX = affine.incX,
             incY = affine.incY,
             incZ = affine.incZ,
+            heightOrder = pocketHeightOrder(state),
+            inputHead = inputHead,
+            inputKey = inputKey,
         )
     }
 
@@ -1618,9 +2452,9 @@ object ShipWaterPocketManager {
             return false
         } ?: return false
 
-        val submittedFuture = ShipPocketAsyncRuntime.trySubmit(
+        val submittedFuture = ShipPocketAsyncRuntime.trySubmitCancellable(
             subsystem = ShipPocketAsyncSubsystem.WATER_SOLVER,
-            task = { computeWaterSolveAsync(snapshot) },
+            task = { cancellation -> computeWaterSolveAsync(snapshot, cancellation) },
         )
         if (submittedFuture == null) {
             val count = asyncQueueFullSkips.incrementAndGet()
@@ -1659,6 +2493,7 @@ object ShipWaterPocketManager {
         state.buoyancy.submergedAirSumX = result.buoyancy.submergedAirSumX
         state.buoyancy.submergedAirSumY = result.buoyancy.submergedAirSumY
         state.buoyancy.submergedAirSumZ = result.buoyancy.submergedAirSumZ
+        state.buoyancyProfiles = result.buoyancyProfiles
 
         val floodFluid = result.floodFluid
         if (floodFluid != null) {
@@ -1674,6 +2509,9 @@ object ShipWaterPocketManager {
         state.waterSolveComputeCount++
         state.lastWaterReachableUpdateTick = appliedTick
         state.lastWaterSolveApplyTick = appliedTick
+        state.appliedWaterSolveInputHead = result.inputHead
+        state.appliedWaterSolveInputKey = result.inputKey
+        state.waterSolveMemoCaptureTick = result.captureTick
         state.consecutiveWaterSolveDiscards = 0
         state.persistDirty = true
     }
@@ -1692,6 +2530,10 @@ object ShipWaterPocketManager {
         val result = try {
             future.join()
         } catch (t: Throwable) {
+            if (ShipPocketAsyncRuntime.isCancellation(t)) {
+                waterSolveJobsCancelledStale.incrementAndGet()
+                return false
+            }
             val root = t.cause ?: t
             val count = waterSolveJobsFailed.incrementAndGet()
             state.consecutiveWaterSolveDiscards++
@@ -1784,9 +2626,11 @@ object ShipWaterPocketManager {
 
         val states = serverStates.computeIfAbsent(level.dimensionId) { ConcurrentHashMap() }
         val loadedShipIds = LongOpenHashSet()
-        var remainingGeometrySubmissions = GEOMETRY_ASYNC_SUBMISSIONS_PER_LEVEL_PER_TICK
-        var remainingWaterSolveSubmissions = WATER_SOLVER_ASYNC_SUBMISSIONS_PER_LEVEL_PER_TICK
-        var remainingWaterSolveSyncFallbacks = MAX_SYNC_WATER_SOLVE_PER_LEVEL_PER_TICK
+        val geometryQueue = ShipPocketSubmissionQueue<PendingGeometrySubmit>()
+        val waterSolveQueue = ShipPocketSubmissionQueue<PendingWaterSolveSubmit>()
+        val gravityResettleQueue = ShipPocketSubmissionQueue<ShipPocketState>()
+        var remainingSliceBudgetNanos = WATER_SOLVE_SLICE_BUDGET_MICROS_PER_LEVEL_PER_TICK * 1_000L
+        var activeSlicedWaterSolves = states.values.count { it.slicedWaterSolveJob != null }
 
         level.shipObjectWorld.loadedShips.forEach { ship ->
             loadedShipIds.add(ship.id)
@@ -1819,6 +2663,8 @@ object ShipWaterPocketManager {
                 state.pendingGeometryFuture?.cancel(true)
                 state.pendingGeometryFuture = null
                 state.geometryJobInFlight = false
+                invalidateGeometryIncrementalBase(state)
+                cancelSlicedWaterSolve(state)
                 state.pendingWaterSolveFuture?.cancel(true)
                 state.pendingWaterSolveFuture = null
                 state.waterSolveJobInFlight = false
@@ -1833,6 +2679,17 @@ object ShipWaterPocketManager {
                 return@forEach
             }
 
+            if (tickDrySleep(level, ship, state, minX, minY, minZ, sizeX, sizeY, sizeZ)) {
+                flushPersistedServerState(
+                    level = level,
+                    shipId = ship.id,
+                    state = state,
+                    force = false,
+                    nowTick = level.gameTime,
+                )
+                return@forEach
+            }
+
             val geometryApplied = tryApplyCompletedGeometryJob(
                 state = state,
                 minX = minX,
@@ -1841,7 +2698,13 @@ object ShipWaterPocketManager {
                 sizeX = sizeX,
                 sizeY = sizeY,
                 sizeZ = sizeZ,
+                nowTick = level.gameTime,
             )
+            refreshShapeCacheEpoch(state)
+            val now = level.gameTime
+            dropIdleGeometryIncrementalBase(state, now)
+            val shipTransform = getQueryTransform(ship)
+            val scheduleInputs = captureScheduleInputs(level, ship, state, now)
             if (state.componentGraphDegraded) {
                 val count = componentTraversalOverflowCount.incrementAndGet()
                 logThrottledDiag(count, "Component graph degraded for shipId={} (running coarse fallback paths)", ship.id)
@@ -1855,10 +2718,11 @@ object ShipWaterPocketManager {
                 // update marks the ship dirty again.
                 if (!areShipyardChunksLoaded(level, baseMinX, baseMinY, baseMinZ, baseSizeX, baseSizeY, baseSizeZ)) {
                     state.dirty = true
-                } else if (remainingGeometrySubmissions > 0 &&
-                    trySubmitGeometryJob(level, state, minX, minY, minZ, sizeX, sizeY, sizeZ)
-                ) {
-                    remainingGeometrySubmissions--
+                } else {
+                    geometryQueue.add(
+                        solvePriority(scheduleInputs.copy(ticksSinceLastSolve = geometryWaitingTicks(state, now)), 1L),
+                        PendingGeometrySubmit(state, minX, minY, minZ, sizeX, sizeY, sizeZ),
+                    )
                 }
             }
 
@@ -1887,9 +2751,6 @@ object ShipWaterPocketManager {
                 ensureOutsideVoidMask(state)
             }
 
-            val now = level.gameTime
-            val shipTransform = getQueryTransform(ship)
-
             val pendingWaterSolve = state.pendingWaterSolveFuture
             if (pendingWaterSolve != null &&
                 !pendingWaterSolve.isDone &&
@@ -1922,22 +2783,17 @@ object ShipWaterPocketManager {
             } else if (lastGravity != gravityDown) {
                 state.lastGravityDownDir = gravityDown
                 state.pendingGravityResettleNextIdx = 0
+                state.gravityResettleInteriorPass = false
+            }
+            if (state.pendingGravityResettleNextIdx >= 0) {
+                gravityResettleQueue.add(resettlePriority(scheduleInputs), state)
             }
-            tickGravityResettle(level, state)
 
             var waterSolveUpdated = tryApplyCompletedWaterSolveJob(state, now, shipTransform)
 
-            if ((geometryApplied || now != state.lastWaterReachableUpdateTick) &&
-                state.sizeX > 0 &&
-                state.sizeY > 0 &&
-                state.sizeZ > 0
-            ) {
-                if (remainingWaterSolveSubmissions > 0 &&
-                    trySubmitWaterSolveJob(level, state, shipTransform, now)
-                ) {
-                    remainingWaterSolveSubmissions--
-                }
-
+            val waterSolveInterval = targetSolveIntervalTicks(scheduleInputs)
+            val waterSolveDue = isWaterSolveDue(state, geometryApplied, now, waterSolveInterval)
+            if (waterSolveDue && !tryReuseMemoizedWaterSolve(level, state, shipTransform, now)) {
                 val staleTicks = if (state.lastWaterSolveApplyTick != Long.MIN_VALUE) {
                     now - state.lastWaterSolveApplyTick
                 } else if (state.lastWaterSolveSubmitTick != Long.MIN_VALUE) {
@@ -1945,48 +2801,44 @@ object ShipWaterPocketManager {
                 } else {
                     Long.MAX_VALUE
                 }
-                if (!waterSolveUpdated &&
-                    staleTicks >= WATER_SOLVE_STARVATION_SYNC_FALLBACK_TICKS &&
-                    remainingWaterSolveSyncFallbacks > 0
+                // Stale relative to the ship's own solve rate; idle ships are not "starved" between their slots.
+                val overdue = !waterSolveUpdated &&
+                    staleTicks >= WATER_SOLVE_STARVATION_SYNC_FALLBACK_TICKS + waterSolveInterval - 1L
+                if (overdue &&
+                    state.slicedWaterSolveJob == null &&
+                    activeSlicedWaterSolves < MAX_ACTIVE_SLICED_WATER_SOLVES_PER_LEVEL &&
+                    startSlicedWaterSolve(level, state, shipTransform, now)
                 ) {
-                    val generation = state.requestedWaterSolveGeneration + 1L
-                    val snapshot = captureWaterSolveSnapshot(
-                        level = level,
-                        state = state,
-                        shipTransform = shipTransform,
-                        generation = generation,
-                        captureTick = now,
+                    activeSlicedWaterSolves++
+                    val fallbackCount = waterSolveSyncFallbacks.incrementAndGet()
+                    waterSolveStarvationFallbackCount.incrementAndGet()
+                    logThrottledDiag(
+                        fallbackCount,
+                        "Started sliced main-thread water solve generation={} shipId={}",
+                        state.requestedWaterSolveGeneration,
+                        ship.id,
+                    )
+                }
+                if (!isWaterSolveJobPending(state)) {
+                    waterSolveQueue.add(
+                        solvePriority(scheduleInputs, waterSolveInterval),
+                        PendingWaterSolveSubmit(state, shipTransform),
                     )
-                    if (snapshot != null) {
-                        state.pendingWaterSolveFuture?.cancel(true)
-                        state.pendingWaterSolveFuture = null
-                        state.waterSolveJobInFlight = false
-                        state.requestedWaterSolveGeneration = generation
-                        state.lastWaterSolveSubmitTick = now
-                        val result = computeWaterSolveAsync(snapshot)
-                        applyWaterSolveResult(state, result, appliedTick = now)
-                        remainingWaterSolveSyncFallbacks--
-                        waterSolveUpdated = true
-
-                        val fallbackCount = waterSolveSyncFallbacks.incrementAndGet()
-                        waterSolveStarvationFallbackCount.incrementAndGet()
-                        logThrottledDiag(
-                            fallbackCount,
-                            "Ran synchronous water solve fallback generation={} shipId={}",
-                            generation,
-                            ship.id,
-                        )
-                    }
                 }
             }
-            if (waterSolveUpdated) {
-                updateVsBuoyancyFromPockets(ship, state)
+            if (state.slicedWaterSolveJob != null && remainingSliceBudgetNanos > 0L) {
+                val sliceStart = System.nanoTime()
+                if (runSlicedWaterSolveSlice(state, now, remainingSliceBudgetNanos)) waterSolveUpdated = true
+                if (state.slicedWaterSolveJob == null) activeSlicedWaterSolves--
+                remainingSliceBudgetNanos -= System.nanoTime() - sliceStart
             }
-            if (state.sizeX > 0 && state.sizeY > 0 && state.sizeZ > 0 &&
-                (geometryApplied || now - state.lastMaterializedResyncTick >= MATERIALIZED_RESYNC_INTERVAL_TICKS)
-            ) {
-                syncMaterializedFloodFluidFromWorld(level, state)
-                state.lastMaterializedResyncTick = now
+            if (state.sizeX > 0 && state.sizeY > 0 && state.sizeZ > 0) {
+                if (geometryApplied || state.materializedChangeLogOverflow) {
+                    startMaterializedResync(state)
+                } else {
+                    applyMaterializedChangeLog(level, state)
+                }
+                sweepMaterializedSlice(level, state)
             }
             cleanupLeakedShipyardWater(level, state)
             needsRecompute = state.dirty || boundsMismatch(state, minX, minY, minZ, sizeX, sizeY, sizeZ)
@@ -1998,6 +2850,7 @@ object ShipWaterPocketManager {
                 updateFlooding(level, state, shipTransform)
                 state.lastFloodUpdateTick = now
             }
+            refreshBuoyancyFromFloodPlanes(ship, state, shipTransform, forcePublish = waterSolveUpdated)
 
             val flushResult = flushFloodWriteQueue(
                 level = level,
@@ -2023,8 +2876,8 @@ object ShipWaterPocketManager {
                             worldPosTmp = worldPosTmp,
                             worldBlockPos = worldBlockPos,
                         )
-                        val submergedFluid = submergedSample.canonicalFluid
-                        submergedSample.isIngressQualified() &&
+                        val submergedFluid = fluidCoverageFluid(submergedSample)
+                        isCoverageIngressQualified(submergedSample) &&
                             submergedFluid != null &&
                             canonicalFloodSource(submergedFluid) == state.floodFluid
                     }
@@ -2044,6 +2897,7 @@ object ShipWaterPocketManager {
             if (flushResult.added > 0 || flushResult.removed > 0) {
                 state.persistDirty = true
             }
+            state.floodQueueBacklog = flushResult.remainingQueued
             if (flushResult.remainingQueued > 0) {
                 while (true) {
                     val prev = floodQueueBacklogHighWater.get()
@@ -2069,6 +2923,9 @@ object ShipWaterPocketManager {
             )
         }
 
+        drainScheduledSubmissions(level, level.gameTime, geometryQueue, waterSolveQueue)
+        drainGravityResettles(level, gravityResettleQueue)
+
         // Cleanup unloaded ships
         states.entries.removeIf { entry ->
             if (loadedShipIds.contains(entry.key)) return@removeIf false
@@ -2079,6 +2936,7 @@ object ShipWaterPocketManager {
                 force = true,
                 nowTick = level.gameTime,
             )
+            cancelSlicedWaterSolve(entry.value)
             entry.value.pendingGeometryFuture?.cancel(true)
             entry.value.pendingGeometryFuture = null
             entry.value.geometryJobInFlight = false
@@ -2090,13 +2948,18 @@ object ShipWaterPocketManager {
 
         if (log.isDebugEnabled && level.gameTime % ASYNC_DIAG_SUMMARY_INTERVAL_TICKS == 0L) {
             log.debug(
-                "Async water-solver diag: submitted={}, completed={}, discarded={}, ageDiscard={}, overAgeCancel={}, starvationFallbacks={}, applyAgeBuckets=[{}, {}, {}, {}, {}, {}], pending={}, blockedExteriorWaterlogs={}, blockedExteriorPlacements={}, rejectedQueueAdds={}, missingFaceSamples={}, suppressionHits={}",
+                "Async water-solver diag: submitted={}, completed={}, discarded={}, ageDiscard={}, overAgeCancel={}, staleCancel={}, workerCancelled={}, starvationFallbacks={}, slices={}, slicedCompleted={}, slicedDiscarded={}, applyAgeBuckets=[{}, {}, {}, {}, {}, {}], pending={}, blockedExteriorWaterlogs={}, blockedExteriorPlacements={}, rejectedQueueAdds={}, missingFaceSamples={}, suppressionHits={}, hullDerivedCells={}, hullSamplingFallbacks={}, memoHits={}, scheduled={}, budgetDeferred={}, rateSkipped={}, queueDepthHighWater={}, drySleeps={}, dryWakes={}, drySleepShipTicks={}, buoyancyPlaneRefreshes={}, materializedLogCells={}, materializedSweepCells={}, materializedFullResyncs={}, resettleTicks={}, resettleBacklogShipTicks={}, resettleBacklogHighWater={}, fillOrderRebuilds={}",
                 waterSolveJobsSubmitted.get(),
                 waterSolveJobsCompleted.get(),
                 waterSolveJobsDiscarded.get(),
                 waterSolveAgeDiscardCount.get(),
                 waterSolveCancelledOverAgeCount.get(),
+                waterSolveJobsCancelledStale.get(),
+                ShipPocketAsyncRuntime.cancelled(ShipPocketAsyncSubsystem.WATER_SOLVER),
                 waterSolveStarvationFallbackCount.get(),
+                waterSolveSlicesRun.get(),
+                waterSolveSlicedCompleted.get(),
+                waterSolveSlicedDiscarded.get(),
                 waterSolveApplyAgeBuckets[0].get(),
                 waterSolveApplyAgeBuckets[1].get(),
                 waterSolveApplyAgeBuckets[2].get(),
@@ -2109,6 +2972,42 @@ object ShipWaterPocketManager {
                 rejectedFloodQueueAdds.get(),
                 asyncOpeningFaceFallbackCount.get(),
                 worldSuppressionHits.get(),
+                hullSamplingDerivedCells.get(),
+                hullSamplingFallbacks.get(),
+                waterSolveMemoHits.get(),
+                scheduledWaterSolveCandidates.get(),
+                scheduledWaterSolveBudgetDeferrals.get(),
+                scheduledWaterSolveRateSkips.get(),
+                scheduledQueueDepthHighWater.get(),
+                drySleepEntered.get(),
+                drySleepWoken.get(),
+                drySleepShipTicks.get(),
+                buoyancyPlaneRefreshes.get(),
+                materializedLogCells.get(),
+                materializedSweepCells.get(),
+                materializedFullResyncs.get(),
+                gravityResettleTicksScheduled.get(),
+                gravityResettleBacklog.backlogShipTicks,
+                gravityResettleBacklog.backlogHighWater,
+                floodFillOrderRebuilds.get(),
+            )
+            log.debug(
+                "Async geometry diag: submitted={}, completed={}, discarded={}, staleCancel={}, workerCancelled={}, failed={}, incremental={}, boundsShift={}, reunionVoxels={}, idleBasesDropped={}, deferredSubmits={}, deferredBoundsChanges={}, coalescedDirtyMarks={}, scheduled={}, budgetDeferred={}",
+                geometryJobsSubmitted.get(),
+                geometryJobsCompleted.get(),
+                geometryJobsDiscarded.get(),
+                geometryJobsCancelledStale.get(),
+                ShipPocketAsyncRuntime.cancelled(ShipPocketAsyncSubsystem.GEOMETRY),
+                geometryJobsFailed.get(),
+                geometryIncrementalJobs.get(),
+                geometryBoundsShiftJobs.get(),
+                geometryIncrementalReunionVoxels.get(),
+                geometryIncrementalBasesDropped.get(),
+                geometrySubmitsDeferred.get(),
+                geometryBoundsChangesDeferred.get(),
+                geometryDirtyMarksCoalesced.get(),
+                scheduledGeometryCandidates.get(),
+                scheduledGeometryBudgetDeferrals.get(),
             )
         }
     }
@@ -2155,30 +3054,100 @@ object ShipWaterPocketManager {
         return best
     }
 
-    private fun tickGravityResettle(level: ServerLevel, state: ShipPocketState) {
+    /** Hands the level's gravity-resettle budget to the queued ships (see [drainGravityResettlePasses]). */
+    private fun drainGravityResettles(level: ServerLevel, queue: ShipPocketSubmissionQueue<ShipPocketState>) {
+        val ordered = queue.takeInPriorityOrder()
+        if (ordered.isEmpty()) return
+
+        val budget = ResettleBudget(
+            fluidTicks = GRAVITY_RESETTLE_TICKS_PER_LEVEL_PER_TICK,
+            scanCells = GRAVITY_RESETTLE_SCAN_CELLS_PER_LEVEL_PER_TICK,
+        )
+        val backlog = drainGravityResettlePasses(
+            ordered,
+            budget,
+            pending = { it.pendingGravityResettleNextIdx >= 0 },
+        ) { state, interiorPass ->
+            tickGravityResettle(level, state, budget, interiorPass)
+        }
+        val scheduled = GRAVITY_RESETTLE_TICKS_PER_LEVEL_PER_TICK - budget.fluidTicks
+        gravityResettleTicksScheduled.addAndGet(scheduled.toLong())
+        gravityResettleBacklog.record(backlog)
+    }
+
+    /**
+     * Schedules fluid ticks of the ship's pending gravity resettle out of the level's [budget], charging it for every
+     * tick scheduled and every cell scanned.
+     *
+     * The resettle walks `materializedWater` twice: first the frontier cells (next to open space without water), whose
+     * fluid can actually move under the new gravity, then the enclosed cells, which only get what budget is left after
+     * every ship's frontier pass since the frontier's flow usually wakes them through neighbor updates anyway.
+     */
+    private fun tickGravityResettle(
+        level: ServerLevel,
+        state: ShipPocketState,
+        budget: ResettleBudget,
+        interiorPass: Boolean,
+    ) {
         val nextIdx = state.pendingGravityResettleNextIdx
-        if (nextIdx < 0) return
+        if (nextIdx < 0 || budget.exhausted || state.gravityResettleInteriorPass != interiorPass) return
 
         val fluidBlocks = state.materializedWater
-        if (fluidBlocks.isEmpty) {
+        val volume = state.sizeX * state.sizeY * state.sizeZ
+        if (fluidBlocks.isEmpty || volume <= 0) {
             state.pendingGravityResettleNextIdx = -1
+            state.gravityResettleInteriorPass = false
             return
         }
 
         val pos = BlockPos.MutableBlockPos()
         var idx = fluidBlocks.nextSetBit(nextIdx)
         var scheduled = 0
-        while (idx >= 0 && scheduled < GRAVITY_RESETTLE_MAX_SCHEDULED_TICKS_PER_SHIP_PER_TICK) {
-            posFromIndex(state, idx, pos)
-            val fs = level.getFluidState(pos)
-            if (!fs.isEmpty) {
-                level.scheduleTick(pos, fs.type, 1)
-                scheduled++
+        var scanned = 0
+        while (idx >= 0 && idx < volume && scheduled < budget.fluidTicks && scanned < budget.scanCells) {
+            scanned++
+            if (isGravityResettleFrontier(state, idx) != interiorPass) {
+                posFromIndex(state, idx, pos)
+                val fs = level.getFluidState(pos)
+                if (!fs.isEmpty) {
+                    level.scheduleTick(pos, fs.type, 1)
+                    scheduled++
+                }
             }
             idx = fluidBlocks.nextSetBit(idx + 1)
         }
+        budget.fluidTicks -= scheduled
+        budget.scanCells -= scanned
 
-        state.pendingGravityResettleNextIdx = idx
+        if (idx >= 0 && idx < volume) {
+            state.pendingGravityResettleNextIdx = idx
+        } else if (!interiorPass) {
+            state.pendingGravityResettleNextIdx = 0
+            state.gravityResettleInteriorPass = true
+        } else {
+            state.pendingGravityResettleNextIdx = -1
+            state.gravityResettleInteriorPass = false
+        }
+    }
+
+    // Whether a fluid cell touches open space that holds no flood fluid, i.e. its fluid can still move.
+    private fun isGravityResettleFrontier(state: ShipPocketState, idx: Int): Boolean {
+        val sizeX = state.sizeX
+        val sizeY = state.sizeY
+        val strideZ = sizeX * sizeY
+        val lx = idx % sizeX
+        val t = idx / sizeX
+        val ly = t % sizeY
+        val lz = t / sizeY
+        val open = state.open
+        val water = state.materializedWater
+        fun dry(n: Int): Boolean = open.get(n) && !water.get(n)
+        return (lx > 0 && dry(idx - 1)) ||
+            (lx + 1 < sizeX && dry(idx + 1)) ||
+            (ly > 0 && dry(idx - sizeX)) ||
+            (ly + 1 < sizeY && dry(idx + sizeX)) ||
+            (lz > 0 && dry(idx - strideZ)) ||
+            (lz + 1 < state.sizeZ && dry(idx + strideZ))
     }
 
     private fun cleanupLeakedShipyardWater(level: ServerLevel, state: ShipPocketState) {
@@ -2195,89 +3164,177 @@ object ShipWaterPocketManager {
         applyBlockChanges(level, state, toRemove, toWater = false, pos = BlockPos.MutableBlockPos())
     }
 
-    private fun syncMaterializedFloodFluidFromWorld(level: ServerLevel, state: ShipPocketState) {
-        val open = state.open
+    /**
+     * Starts a full re-read of every open cell into `materializedWater`, run by [sweepMaterializedSlice] at
+     * [MATERIALIZED_RESYNC_CELLS_PER_TICK]. Only needed when the geometry changed or the change log overflowed;
+     * otherwise [applyMaterializedChangeLog] and the regular sweep keep the mask in sync.
+     */
+    private fun startMaterializedResync(state: ShipPocketState) {
+        state.materializedChangeLog.clear()
+        state.materializedChangeLogOverflow = false
+        state.floodFillOrder = null
+        materializedFullResyncs.incrementAndGet()
+
+        val materialized = state.materializedWater
+        val beforeCount = materialized.cardinality()
+        materialized.and(state.open)
+        if (materialized.cardinality() != beforeCount) {
+            state.materializedRevision++
+            state.persistDirty = true
+        }
+        state.materializedSweepCursor = 0
+        state.materializedResyncCellsLeft = openCellCount(state)
+    }
+
+    /** Re-reads the cells whose fluid changed outside our own writes since last tick (see [onShipyardFluidChanged]). */
+    private fun applyMaterializedChangeLog(level: ServerLevel, state: ShipPocketState) {
+        val log = state.materializedChangeLog
+        if (log.isEmpty) return
         val volume = state.sizeX * state.sizeY * state.sizeZ
-        if (volume <= 0 || open.isEmpty) {
-            state.materializedWater.clear()
+        val pos = BlockPos.MutableBlockPos()
+        var changed = false
+        for (i in 0 until log.size) {
+            val idx = log.getInt(i)
+            if (idx in 0 until volume && syncMaterializedCell(level, state, idx, pos)) changed = true
+        }
+        materializedLogCells.addAndGet(log.size.toLong())
+        log.clear()
+        if (changed) {
             state.persistDirty = true
+        }
+    }
+
+    /**
+     * Consistency sweep: re-reads the next open cells after the sweep cursor, wrapping around but never past where
+     * this slice started, so changes no event reports (direct section writes by other mods, missed ticks) still
+     * converge within [MATERIALIZED_SWEEP_PERIOD_TICKS]. Also carries a pending full resync at its own budget.
+     */
+    private fun sweepMaterializedSlice(level: ServerLevel, state: ShipPocketState) {
+        val open = state.open
+        val volume = state.sizeX * state.sizeY * state.sizeZ
+        val openCount = openCellCount(state)
+        if (volume <= 0 || openCount == 0) {
+            state.materializedResyncCellsLeft = 0
             return
         }
+        val budget = if (state.materializedResyncCellsLeft > 0) {
+            MATERIALIZED_RESYNC_CELLS_PER_TICK
+        } else {
+            ((openCount + MATERIALIZED_SWEEP_PERIOD_TICKS - 1) / MATERIALIZED_SWEEP_PERIOD_TICKS)
+                .coerceIn(MATERIALIZED_SWEEP_MIN_CELLS_PER_TICK, MATERIALIZED_SWEEP_MAX_CELLS_PER_TICK)
+        }
+        val pos = BlockPos.MutableBlockPos()
+        var changed = false
+        var swept = 0
+        val start = state.materializedSweepCursor.coerceIn(0, volume)
+        var wrapped = false
+        var idx = open.nextSetBit(start)
+        while (swept < budget) {
+            if (idx < 0 || idx >= volume) {
+                if (wrapped) break
+                wrapped = true
+                idx = open.nextSetBit(0)
+                continue
+            }
+            if (wrapped && idx >= start) break
+            if (syncMaterializedCell(level, state, idx, pos)) changed = true
+            swept++
+            idx = open.nextSetBit(idx + 1)
+        }
+        state.materializedSweepCursor = if (idx in 0 until volume) idx else 0
+        state.materializedResyncCellsLeft = maxOf(0, state.materializedResyncCellsLeft - swept)
+        materializedSweepCells.addAndGet(swept.toLong())
+        if (changed) {
+            state.persistDirty = true
+        }
+    }
 
+    /** Re-reads one cell from the world into `materializedWater`; returns whether its bit changed. */
+    private fun syncMaterializedCell(
+        level: ServerLevel,
+        state: ShipPocketState,
+        idx: Int,
+        pos: BlockPos.MutableBlockPos,
+    ): Boolean {
         val materialized = state.materializedWater
-        val beforeMaterialized = materialized.clone() as BitSet
-        materialized.and(open)
-        var changed = beforeMaterialized != materialized
-        var internalUpdatesActive = false
-
-        fun beginInternalUpdates() {
-            if (!internalUpdatesActive) {
-                applyingInternalUpdates = true
-                internalUpdatesActive = true
+        if (!state.open.get(idx)) {
+            if (!materialized.get(idx)) return false
+            clearMaterializedWater(state, idx)
+            return true
+        }
+
+        posFromIndex(state, idx, pos)
+        val current = level.getBlockState(pos)
+        val isWaterloggable = isWaterloggableForFlood(current, state.floodFluid)
+        if (isWaterloggable &&
+            current.getValue(BlockStateProperties.WATERLOGGED) &&
+            shouldPreventExteriorWaterlogging(state, idx)
+        ) {
+            val count = blockedExteriorWaterlogAttempts.incrementAndGet()
+            logThrottledDiag(count, "Drained exterior waterlogged block during materialized-fluid sync")
+            val wasApplyingInternalUpdates = applyingInternalUpdates
+            applyingInternalUpdates = true
+            try {
+                val drained = current.setValue(BlockStateProperties.WATERLOGGED, false)
+                level.setBlock(pos, drained, 3)
+                level.scheduleTick(pos, Fluids.WATER, 1)
+            } finally {
+                applyingInternalUpdates = wasApplyingInternalUpdates
             }
+            if (!materialized.get(idx)) return false
+            clearMaterializedWater(state, idx)
+            return true
         }
 
-        val pos = BlockPos.MutableBlockPos()
-        try {
-            var idx = open.nextSetBit(0)
-            while (idx >= 0 && idx < volume) {
-                posFromIndex(state, idx, pos)
-                val current = level.getBlockState(pos)
-                val isWaterloggable = isWaterloggableForFlood(current, state.floodFluid)
-                val inSimulationDomain = state.simulationDomain.get(idx)
-                if (isWaterloggable &&
-                    current.getValue(BlockStateProperties.WATERLOGGED) &&
-                    shouldPreventExteriorWaterlogging(state, idx)
-                ) {
-                    val count = blockedExteriorWaterlogAttempts.incrementAndGet()
-                    logThrottledDiag(count, "Drained exterior waterlogged block during materialized-fluid sync")
-                    beginInternalUpdates()
-                    val drained = current.setValue(BlockStateProperties.WATERLOGGED, false)
-                    level.setBlock(pos, drained, 3)
-                    level.scheduleTick(pos, Fluids.WATER, 1)
-                    if (materialized.get(idx)) {
-                        changed = true
-                        materialized.clear(idx)
-                    }
-                    idx = open.nextSetBit(idx + 1)
-                    continue
-                }
+        val currentFluid = current.fluidState
+        val hasFloodFluid = isSimulationVoxel(state, idx) &&
+            !currentFluid.isEmpty &&
+            canonicalFloodSource(currentFluid.type) == state.floodFluid &&
+            (current.block is LiquidBlock || (isWaterloggable && current.getValue(BlockStateProperties.WATERLOGGED)))
+        if (materialized.get(idx) == hasFloodFluid) return false
+        if (hasFloodFluid) setMaterializedWater(state, idx) else clearMaterializedWater(state, idx)
+        return true
+    }
 
-                if (!inSimulationDomain) {
-                    if (materialized.get(idx)) {
-                        changed = true
-                        materialized.clear(idx)
-                    }
-                    idx = open.nextSetBit(idx + 1)
-                    continue
-                }
+    /**
+     * Re-derives the submerged air from the applied solve's per-component profiles and this tick's flood planes, so
+     * buoyancy tracks filling and draining between solves, and pushes it to VS2 when it moved (or [forcePublish]).
+     */
+    private fun refreshBuoyancyFromFloodPlanes(
+        ship: LoadedShip,
+        state: ShipPocketState,
+        shipTransform: ShipTransform,
+        forcePublish: Boolean,
+    ) {
+        val profiles = state.buoyancyProfiles
+        var changed = false
+        if (profiles != null && profiles.geometryRevision == state.geometryRevision) {
+            val shipPosTmp = tmpShipPos2.get()
+            val worldPosTmp = tmpWorldPos2.get()
+            shipPosTmp.set(state.minX.toDouble(), state.minY.toDouble(), state.minZ.toDouble())
+            shipTransform.shipToWorld.transformPosition(shipPosTmp, worldPosTmp)
+            val buoyancy = state.buoyancy
+            val volume = buoyancy.submergedAirVolume
+            val sumX = buoyancy.submergedAirSumX
+            val sumY = buoyancy.submergedAirSumY
+            val sumZ = buoyancy.submergedAirSumZ
+            profiles.accumulateAir(state.floodPlaneByComponent, worldPosTmp.y, FLOOD_ENTER_PLANE_EPS, buoyancy)
+            changed = kotlin.math.abs(buoyancy.submergedAirVolume - volume) > BUOYANCY_REPUBLISH_EPS ||
+                kotlin.math.abs(buoyancy.submergedAirSumX - sumX) > BUOYANCY_REPUBLISH_EPS ||
+                kotlin.math.abs(buoyancy.submergedAirSumY - sumY) > BUOYANCY_REPUBLISH_EPS ||
+                kotlin.math.abs(buoyancy.submergedAirSumZ - sumZ) > BUOYANCY_REPUBLISH_EPS
+            if (changed) buoyancyPlaneRefreshes.incrementAndGet()
+        }
+        if (changed || forcePublish) updateVsBuoyancyFromPockets(ship, state)
+    }
 
-                val currentFluid = current.fluidState
-                val hasFloodFluid = !currentFluid.isEmpty && canonicalFloodSource(currentFluid.type) == state.floodFluid
-                if (hasFloodFluid &&
-                    (current.block is LiquidBlock ||
-                        (isWaterloggable && current.getValue(BlockStateProperties.WATERLOGGED)))
-                ) {
-                    if (!materialized.get(idx)) {
-                        changed = true
-                        materialized.set(idx)
-                    }
-                } else {
-                    if (materialized.get(idx)) {
-                        changed = true
-                        materialized.clear(idx)
-                    }
-                }
-                idx = open.nextSetBit(idx + 1)
-            }
-        } finally {
-            if (internalUpdatesActive) {
-                applyingInternalUpdates = false
-            }
-        }
-        if (changed) {
-            state.persistDirty = true
+    private fun simulationCellCount(state: ShipPocketState): Int {
+        val domain = state.simulationDomain
+        if (state.simulationCellCountDomain !== domain) {
+            state.simulationCellCount = domain.cardinality()
+            state.simulationCellCountDomain = domain
         }
+        return state.simulationCellCount
     }
 
     private fun updateVsBuoyancyFromPockets(ship: LoadedShip, state: ShipPocketState) {
@@ -2291,7 +3348,7 @@ object ShipWaterPocketManager {
 
         // The additional buoyant force from pockets is just the volume of *submerged interior air* that is currently
         // not flooded (i.e. displacing world water).
-        val maxAbs = state.simulationDomain.cardinality().toDouble().coerceAtLeast(1.0)
+        val maxAbs = simulationCellCount(state).toDouble().coerceAtLeast(1.0)
         val displaced = state.buoyancy.submergedAirVolume.coerceIn(0.0, maxAbs)
         buoyancyDuck?.`valkyrienair$setDisplacedVolume`(displaced)
 
@@ -2317,8 +3374,8 @@ object ShipWaterPocketManager {
 
         val states = clientStates.computeIfAbsent(level.dimensionId) { ConcurrentHashMap() }
         val loadedShipIds = LongOpenHashSet()
-        var remainingGeometrySubmissions = GEOMETRY_ASYNC_SUBMISSIONS_PER_LEVEL_PER_TICK
-        var remainingWaterSolveSubmissions = WATER_SOLVER_ASYNC_SUBMISSIONS_PER_LEVEL_PER_TICK
+        val geometryQueue = ShipPocketSubmissionQueue<PendingGeometrySubmit>()
+        val waterSolveQueue = ShipPocketSubmissionQueue<PendingWaterSolveSubmit>()
 
         level.shipObjectWorld.loadedShips.forEach { ship ->
             loadedShipIds.add(ship.id)
@@ -2344,6 +3401,8 @@ object ShipWaterPocketManager {
                 state.pendingGeometryFuture?.cancel(true)
                 state.pendingGeometryFuture = null
                 state.geometryJobInFlight = false
+                invalidateGeometryIncrementalBase(state)
+                cancelSlicedWaterSolve(state)
                 state.pendingWaterSolveFuture?.cancel(true)
                 state.pendingWaterSolveFuture = null
                 state.waterSolveJobInFlight = false
@@ -2351,6 +3410,8 @@ object ShipWaterPocketManager {
                 return@forEach
             }
 
+            if (tickDrySleep(level, ship, state, minX, minY, minZ, sizeX, sizeY, sizeZ)) return@forEach
+
             val geometryApplied = tryApplyCompletedGeometryJob(
                 state = state,
                 minX = minX,
@@ -2359,7 +3420,13 @@ object ShipWaterPocketManager {
                 sizeX = sizeX,
                 sizeY = sizeY,
                 sizeZ = sizeZ,
+                nowTick = level.gameTime,
             )
+            refreshShapeCacheEpoch(state)
+            val now = level.gameTime
+            dropIdleGeometryIncrementalBase(state, now)
+            val shipTransform = getQueryTransform(ship)
+            val scheduleInputs = captureScheduleInputs(level, ship, state, now)
             val needsRecompute =
                 state.dirty || boundsMismatch(state, minX, minY, minZ, sizeX, sizeY, sizeZ)
             if (needsRecompute) {
@@ -2369,34 +3436,36 @@ object ShipWaterPocketManager {
                 // update marks the ship dirty again.
                 if (!areShipyardChunksLoaded(level, baseMinX, baseMinY, baseMinZ, baseSizeX, baseSizeY, baseSizeZ)) {
                     state.dirty = true
-                } else if (remainingGeometrySubmissions > 0 &&
-                    trySubmitGeometryJob(level, state, minX, minY, minZ, sizeX, sizeY, sizeZ)
-                ) {
-                    remainingGeometrySubmissions--
+                } else {
+                    geometryQueue.add(
+                        solvePriority(scheduleInputs.copy(ticksSinceLastSolve = geometryWaitingTicks(state, now)), 1L),
+                        PendingGeometrySubmit(state, minX, minY, minZ, sizeX, sizeY, sizeZ),
+                    )
                 }
             }
 
-            val now = level.gameTime
-            val shipTransform = getQueryTransform(ship)
             tryApplyCompletedWaterSolveJob(state, now, shipTransform)
-            if ((geometryApplied || now != state.lastWaterReachableUpdateTick) &&
-                state.sizeX > 0 &&
-                state.sizeY > 0 &&
-                state.sizeZ > 0
+            val waterSolveInterval = targetSolveIntervalTicks(scheduleInputs)
+            val waterSolveDue = isWaterSolveDue(state, geometryApplied, now, waterSolveInterval)
+            if (waterSolveDue &&
+                !tryReuseMemoizedWaterSolve(level, state, shipTransform, now) &&
+                !isWaterSolveJobPending(state)
             ) {
-                if (remainingWaterSolveSubmissions > 0 &&
-                    trySubmitWaterSolveJob(level, state, shipTransform, now)
-                ) {
-                    remainingWaterSolveSubmissions--
-                }
+                waterSolveQueue.add(
+                    solvePriority(scheduleInputs, waterSolveInterval),
+                    PendingWaterSolveSubmit(state, shipTransform),
+                )
             }
 
             // Server-authoritative ingress particles are emitted from confirmed flood-write adds.
             // Keep client heuristic disabled to avoid duplicate/false-positive leak effects.
         }
 
+        drainScheduledSubmissions(level, level.gameTime, geometryQueue, waterSolveQueue)
+
         states.entries.removeIf { entry ->
             if (loadedShipIds.contains(entry.key)) return@removeIf false
+            cancelSlicedWaterSolve(entry.value)
             entry.value.pendingGeometryFuture?.cancel(true)
             entry.value.pendingGeometryFuture = null
             entry.value.geometryJobInFlight = false
@@ -2660,6 +3729,15 @@ object ShipWaterPocketManager {
     }
 
     private fun spawnLeakParticlesClient(level: Level, state: ShipPocketState, shipTransform: ShipTransform) {
+        tmpScratchMasks.get().frame { scratch -> spawnLeakParticlesClient(level, state, shipTransform, scratch) }
+    }
+
+    private fun spawnLeakParticlesClient(
+        level: Level,
+        state: ShipPocketState,
+        shipTransform: ShipTransform,
+        scratch: ShipPocketScratchMasks,
+    ) {
         if (!level.isClientSide) return
 
         val interior = state.simulationDomain
@@ -2668,11 +3746,11 @@ object ShipWaterPocketManager {
         val targetWet = state.waterReachable
         if (targetWet.isEmpty) return
 
-        val targetWetInterior = targetWet.clone() as BitSet
+        val targetWetInterior = scratch.copyOf(targetWet)
         targetWetInterior.and(interior)
         if (targetWetInterior.isEmpty) return
 
-        val missing = targetWetInterior.clone() as BitSet
+        val missing = scratch.copyOf(targetWetInterior)
         missing.andNot(state.materializedWater)
         if (missing.isEmpty) return
 
@@ -3266,7 +4344,7 @@ object ShipWaterPocketManager {
                 out = shipBlockPosTmp,
             )
             if (!isAirPocketClassification(state, classification)) continue
-            return BlockPos(classification.voxelX, classification.voxelY, classification.voxelZ)
+            return posFromIndex(state, classification.voxelIndex, shipBlockPosTmp).immutable()
         }
 
         return null
@@ -3304,15 +4382,16 @@ object ShipWaterPocketManager {
         out: BitSet,
         exteriorOpen: BitSet? = null,
         buoyancyOut: BuoyancyMetrics? = null,
+        buoyancyProfilesOut: BuoyancyComponentProfiles? = null,
         materializedWater: BitSet? = null,
         floodFluidOut: AtomicReference<Fluid?>? = null,
-        faceCondXP: ShortArray? = null,
-        faceCondYP: ShortArray? = null,
-        faceCondZP: ShortArray? = null,
+        faceCondXP: ByteArray? = null,
+        faceCondYP: ByteArray? = null,
+        faceCondZP: ByteArray? = null,
         templatePalette: List<ShapeCellTemplate>? = null,
         templateIndexByVoxel: IntArray? = null,
-        voxelExteriorComponentMask: LongArray? = null,
-        voxelInteriorComponentMask: LongArray? = null,
+        voxelExteriorComponentMask: SparseVoxelLongArray? = null,
+        voxelInteriorComponentMask: SparseVoxelLongArray? = null,
         precomputedSubmerged: BitSet? = null,
         precomputedSubmergedCoverage: DoubleArray? = null,
         precomputedDominantFloodFluid: Fluid? = null,
@@ -3320,6 +4399,8 @@ object ShipWaterPocketManager {
         precomputedOpeningFaceSamples: Long2ObjectOpenHashMap<OpeningFaceCoverageSnapshot>? = null,
         precomputedAffine: WorldYAffine? = null,
         allowWorldSurfaceScan: Boolean = true,
+        heightOrder: PocketHeightOrder? = null,
+        cancellation: ShipPocketJobCancellation = ShipPocketJobCancellation.NONE,
     ): BitSet {
         out.clear()
 
@@ -3386,9 +4467,9 @@ object ShipWaterPocketManager {
                 return out
             }
 
-            val floodFluidScores = HashMap<Fluid, Double>()
+            var floodFluidScores = DoubleArray(FluidCoverageIds.idBound())
 
-            fun shipCellFluidCoverage(idx: Int): FluidCoverageSample {
+            fun shipCellFluidCoverage(idx: Int): Int {
                 val lx = idx % sizeX
                 val t = idx / sizeX
                 val ly = t % sizeY
@@ -3408,27 +4489,33 @@ object ShipWaterPocketManager {
             var idx = open.nextSetBit(0)
             while (idx >= 0 && idx < volume) {
                 val coverage = shipCellFluidCoverage(idx)
-                val fluid = coverage.canonicalFluid
-                if (coverage.isSubmergedAny() && fluid != null) {
-                    submergedCoverage[idx] = coverage.coverageRatio
-                    val score = if (coverage.isIngressQualified()) {
-                        coverage.coverageRatio.coerceAtLeast(SUBMERGED_INGRESS_MIN_COVERAGE)
+                val fluid = fluidCoverageFluid(coverage)
+                if (isFluidCoverageSubmergedAny(coverage) && fluid != null) {
+                    val ratio = fluidCoverageRatio(coverage)
+                    submergedCoverage[idx] = ratio
+                    val score = if (isCoverageIngressQualified(coverage)) {
+                        ratio.coerceAtLeast(SUBMERGED_INGRESS_MIN_COVERAGE)
                     } else {
-                        coverage.coverageRatio * 0.25
+                        ratio * 0.25
+                    }
+                    val fluidId = fluidCoverageFluidId(coverage)
+                    if (fluidId >= floodFluidScores.size) {
+                        floodFluidScores = floodFluidScores.copyOf(maxOf(fluidId + 1, FluidCoverageIds.idBound()))
                     }
-                    floodFluidScores[fluid] = (floodFluidScores[fluid] ?: 0.0) + score
+                    floodFluidScores[fluidId] += score
                 }
-                if (coverage.isIngressQualified()) {
+                if (isCoverageIngressQualified(coverage)) {
                     submerged.set(idx)
                 }
                 idx = open.nextSetBit(idx + 1)
             }
 
             var dominantScore = Double.NEGATIVE_INFINITY
-            for ((fluid, score) in floodFluidScores) {
-                if (score > dominantScore) {
+            for (fluidId in 1 until floodFluidScores.size) {
+                val score = floodFluidScores[fluidId]
+                if (score > 0.0 && score > dominantScore) {
                     dominantScore = score
-                    dominantFloodFluid = fluid
+                    dominantFloodFluid = FluidCoverageIds.fluidOf(fluidId)
                 }
             }
         }
@@ -3449,12 +4536,12 @@ object ShipWaterPocketManager {
         fun edgeCond(idx: Int, lx: Int, ly: Int, lz: Int, dirCode: Int): Int {
             if (!hasFaceConductance) return 1
             return when (dirCode) {
-                0 -> if (lx > 0) faceCondXP[idx - 1].toInt() and 0xFFFF else 0
-                1 -> if (lx + 1 < sizeX) faceCondXP[idx].toInt() and 0xFFFF else 0
-                2 -> if (ly > 0) faceCondYP[idx - strideY].toInt() and 0xFFFF else 0
-                3 -> if (ly + 1 < sizeY) faceCondYP[idx].toInt() and 0xFFFF else 0
-                4 -> if (lz > 0) faceCondZP[idx - strideZ].toInt() and 0xFFFF else 0
-                else -> if (lz + 1 < sizeZ) faceCondZP[idx].toInt() and 0xFFFF else 0
+                0 -> if (lx > 0) faceCondXP[idx - 1].toInt() and 0xFF else 0
+                1 -> if (lx + 1 < sizeX) faceCondXP[idx].toInt() and 0xFF else 0
+                2 -> if (ly > 0) faceCondYP[idx - strideY].toInt() and 0xFF else 0
+                3 -> if (ly + 1 < sizeY) faceCondYP[idx].toInt() and 0xFF else 0
+                4 -> if (lz > 0) faceCondZP[idx - strideZ].toInt() and 0xFF else 0
+                else -> if (lz + 1 < sizeZ) faceCondZP[idx].toInt() and 0xFF else 0
             }
         }
 
@@ -3954,11 +5041,14 @@ object ShipWaterPocketManager {
                 componentQueue[tail++] = i
             }
 
+            var boundarySeeds = 0
             forEachBoundaryIndexGraph(sizeX, sizeY, sizeZ) { boundaryIdx ->
+                if ((boundarySeeds++ and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                 tryEnqueueExterior(boundaryIdx)
             }
 
             while (head < tail) {
+                if ((head and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                 val cur = componentQueue[head++]
 
                 val lx = cur % sizeX
@@ -4012,6 +5102,7 @@ object ShipWaterPocketManager {
                 start = interior.nextSetBit(start + 1)
                 continue
             }
+            cancellation.throwIfCancelled()
 
             var head = 0
             var tail = 0
@@ -4094,6 +5185,7 @@ object ShipWaterPocketManager {
             }
 
             while (head < tail) {
+                if ((head and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                 val cur = componentQueue[head++]
 
                 val lx = cur % sizeX
@@ -4373,14 +5465,16 @@ object ShipWaterPocketManager {
                         val ly = t % sizeY
                         val lz = t / sizeY
                         shipBlockPos.set(minX + lx, minY + ly, minZ + lz)
-                        sampleFluid = getShipCellFluidCoverage(
-                            level = level,
-                            shipTransform = shipTransform,
-                            shipBlockPos = shipBlockPos,
-                            shipPosTmp = shipPosTmp,
-                            worldPosTmp = worldPosTmp,
-                            worldBlockPos = worldBlockPos,
-                        ).canonicalFluid
+                        sampleFluid = fluidCoverageFluid(
+                            getShipCellFluidCoverage(
+                                level = level,
+                                shipTransform = shipTransform,
+                                shipBlockPos = shipBlockPos,
+                                shipPosTmp = shipPosTmp,
+                                worldPosTmp = worldPosTmp,
+                                worldBlockPos = worldBlockPos,
+                            ),
+                        )
                     }
                     if (sampleFluid != null) sampleFluid = canonicalFloodSource(sampleFluid)
                     if (sampleFluid != null) {
@@ -4416,37 +5510,47 @@ object ShipWaterPocketManager {
                         }
 
                         if (surfaceY != null) {
-                            val surfaceYClamped = maxOf(surfaceY, waterLevel)
-                            val density = getBuoyancyFluidProps(sampleFluid).density
-                            var plane = waterLevel
-                            val totalVol = tail.toDouble()
-
-                            repeat(AIR_PRESSURE_SOLVER_ITERS) {
-                                var airCells = 0
+                            cancellation.throwIfCancelled()
+                            // Cell heights sorted once; every air-volume evaluation of the solve is a binary search.
+                            // The ship's cached order usually needs no sorting at all (see PocketHeightOrder).
+                            var cellY = tmpPressureCellY.get()
+                            if (cellY.size < tail) {
+                                cellY = DoubleArray(tail)
+                                tmpPressureCellY.set(cellY)
+                            }
+                            if (heightOrder != null) {
+                                heightOrder.sortedHeights(
+                                    start,
+                                    componentQueue,
+                                    tail,
+                                    baseWorldY,
+                                    incX,
+                                    incY,
+                                    incZ,
+                                    cellY,
+                                    cancellation,
+                                )
+                            } else {
                                 for (i in 0 until tail) {
+                                    if ((i and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                                     val cellIdx = componentQueue[i]
                                     val cx = cellIdx % sizeX
                                     val ct = cellIdx / sizeX
                                     val cy = ct % sizeY
                                     val cz = ct / sizeY
-                                    if (cellCenterWorldY(cx, cy, cz) > plane + AIR_PRESSURE_Y_EPS) {
-                                        airCells++
-                                    }
+                                    cellY[i] = cellCenterWorldY(cx, cy, cz)
                                 }
-
-                                val effectiveAirVol =
-                                    maxOf(airCells.toDouble(), AIR_PRESSURE_MIN_EFFECTIVE_AIR_VOLUME)
-                                        .coerceAtMost(totalVol)
-                                val pAir = AIR_PRESSURE_ATM * (totalVol / effectiveAirVol)
-
-                                val planeNew =
-                                    surfaceYClamped - (pAir - AIR_PRESSURE_ATM) / (density * AIR_PRESSURE_PER_BLOCK_PER_DENSITY)
-                                // Damped relaxation: the discrete voxel air-volume function can cause oscillation.
-                                val targetPlane = maxOf(waterLevel, planeNew).coerceAtMost(surfaceYClamped)
-                                plane = plane * 0.5 + targetPlane * 0.5
+                                java.util.Arrays.sort(cellY, 0, tail)
                             }
-
-                            pressurizedPlane = plane
+                            cancellation.throwIfCancelled()
+
+                            pressurizedPlane = solvePressurizedFloodPlane(
+                                sortedCellCenterY = cellY,
+                                cellCount = tail,
+                                waterLevel = waterLevel,
+                                surfaceY = surfaceY,
+                                density = getBuoyancyFluidProps(sampleFluid).density,
+                            )
                         }
                     }
                 }
@@ -4475,10 +5579,12 @@ object ShipWaterPocketManager {
 
                 // Seed from interior cells adjacent to submerged exterior openings.
                 for (i in 0 until seedCount) {
+                    if ((i and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                     tryEnqueueWater(waterQueue[i])
                 }
 
                 while (waterHead < waterTail) {
+                    if ((waterHead and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                     val cur = waterQueue[waterHead++]
 
                     val lx = cur % sizeX
@@ -4525,8 +5631,11 @@ object ShipWaterPocketManager {
 
             // Buoyancy accounting:
             // - Only *submerged* interior air displaces world water and contributes buoyancy.
-            if (buoyancy != null) {
+            // - The per-component profile keeps every submerged cell, so buoyancy can follow the flood plane later.
+            buoyancyProfilesOut?.beginComponent(start)
+            if (buoyancy != null || buoyancyProfilesOut != null) {
                 for (i in 0 until tail) {
+                    if ((i and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
                     val cellIdx = componentQueue[i]
                     val coverage = submergedCoverage[cellIdx].coerceIn(0.0, 1.0)
                     if (coverage <= 1.0e-6) continue
@@ -4540,7 +5649,16 @@ object ShipWaterPocketManager {
                     val sy = minY + ly + 0.5
                     val sz = minZ + lz + 0.5
 
-                    if (materializedWater != null && materializedWater.get(cellIdx)) continue
+                    val displacing = materializedWater == null || !materializedWater.get(cellIdx)
+                    buoyancyProfilesOut?.addCell(
+                        cellCenterWorldY(lx, ly, lz) - baseWorldY,
+                        coverage,
+                        sx,
+                        sy,
+                        sz,
+                        displacing,
+                    )
+                    if (!displacing || buoyancy == null) continue
 
                     buoyancy.submergedAirVolume += coverage
                     buoyancy.submergedAirSumX += sx * coverage
@@ -4548,9 +5666,12 @@ object ShipWaterPocketManager {
                     buoyancy.submergedAirSumZ += sz * coverage
                 }
             }
+            buoyancyProfilesOut?.endComponent()
+            cancellation.throwIfCancelled()
 
             start = interior.nextSetBit(start + 1)
         }
+        buoyancyProfilesOut?.finish()
 
         return out
     }
@@ -4560,6 +5681,8 @@ object ShipWaterPocketManager {
         out: BitSet,
         buoyancyOut: BuoyancyMetrics,
         floodFluidOut: AtomicReference<Fluid?>,
+        buoyancyProfilesOut: BuoyancyComponentProfiles? = null,
+        cancellation: ShipPocketJobCancellation = ShipPocketJobCancellation.NONE,
     ) {
         computeWaterReachableWithPressure(
             level = null,
@@ -4576,6 +5699,7 @@ object ShipWaterPocketManager {
             out = out,
             exteriorOpen = snapshot.exterior,
             buoyancyOut = buoyancyOut,
+            buoyancyProfilesOut = buoyancyProfilesOut,
             materializedWater = snapshot.materializedWater,
             floodFluidOut = floodFluidOut,
             faceCondXP = snapshot.faceCondXP,
@@ -4597,6 +5721,8 @@ object ShipWaterPocketManager {
                 incZ = snapshot.incZ,
             ),
             allowWorldSurfaceScan = false,
+            heightOrder = snapshot.heightOrder,
+            cancellation = cancellation,
         )
     }
 
@@ -4632,6 +5758,7 @@ object ShipWaterPocketManager {
             templateIndexByVoxel = state.templateIndexByVoxel,
             voxelExteriorComponentMask = state.voxelExteriorComponentMask,
             voxelInteriorComponentMask = state.voxelSimulationComponentMask,
+            heightOrder = pocketHeightOrder(state),
         )
         val floodFluid = floodFluidOut.get()
         if (floodFluid != null) {
@@ -4689,16 +5816,27 @@ object ShipWaterPocketManager {
     }
 
     private fun updateFlooding(level: ServerLevel, state: ShipPocketState, shipTransform: ShipTransform) {
-        val open = state.open
-        val interior = state.simulationDomain
-        val materialized = state.materializedWater
-        if (open.isEmpty) {
+        if (state.open.isEmpty) {
             state.floodPlaneByComponent.clear()
             return
         }
+        tmpScratchMasks.get().frame { scratch -> updateFlooding(level, state, shipTransform, scratch) }
+    }
+
+    // Every mask here comes from [scratch] and the plane map is recycled, so a steady flooding tick allocates no
+    // volume-sized buffers.
+    private fun updateFlooding(
+        level: ServerLevel,
+        state: ShipPocketState,
+        shipTransform: ShipTransform,
+        scratch: ShipPocketScratchMasks,
+    ) {
+        val open = state.open
+        val interior = state.simulationDomain
+        val materialized = state.materializedWater
 
         // Target flooded interior (equilibrium) from outside water contact / pressure simulation.
-        val targetWetInterior = state.waterReachable.clone() as BitSet
+        val targetWetInterior = scratch.copyOf(state.waterReachable)
         targetWetInterior.and(interior)
         // NOTE: Even if *some* interior pockets are under exterior water pressure, other pockets may be above the
         // waterline and should still be able to drain out through openings to outside air. We handle this per interior
@@ -4709,13 +5847,14 @@ object ShipWaterPocketManager {
         val sizeZ = state.sizeZ
         val volume = sizeX * sizeY * sizeZ
 
-        val newPlanes = Int2DoubleOpenHashMap()
-        val toAddAll = BitSet(volume)
-        val toRemoveAll = BitSet(volume)
+        val newPlanes = tmpSpareFloodPlanes.get()
+        newPlanes.clear()
+        val toAddAll = scratch.take()
+        val toRemoveAll = scratch.take()
 
         if (!targetWetInterior.isEmpty) {
             // If everything that *should* be wet is already wet, stop the slow-fill simulation.
-            val missing = targetWetInterior.clone() as BitSet
+            val missing = scratch.copyOf(targetWetInterior)
             missing.andNot(materialized)
             if (missing.isEmpty) {
                 // Still water stabilisation: when a pocket reaches its equilibrium fill level and remains connected to
@@ -4757,6 +5896,23 @@ object ShipWaterPocketManager {
                 val strideZ = sizeX * sizeY
                 val hasComponentConnectivity = hasComponentTraversalSupport(state)
 
+                // Reuse the fill order while the geometry and solve are unchanged and the ship has not rotated far
+                // from the orientation it was sorted for; otherwise walk the components again and rebuild it.
+                val cachedOrder = state.floodFillOrder
+                    ?.also { it.retarget(incX, incY, incZ) }
+                    ?.takeIf { it.matches(state) && it.heightSlack <= FLOOD_FILL_ORDER_MAX_HEIGHT_SLACK }
+                val order = cachedOrder ?: FloodFillOrder(
+                    simulationDomain = interior,
+                    geometryRevision = state.geometryRevision,
+                    waterReachable = state.waterReachable.clone() as BitSet,
+                    sizeX = sizeX,
+                    sizeY = sizeY,
+                    sizeZ = sizeZ,
+                    builtIncX = incX,
+                    builtIncY = incY,
+                    builtIncZ = incZ,
+                )
+
                 val visited = tmpFloodComponentVisited.get()
                 visited.clear()
 
@@ -4774,7 +5930,7 @@ object ShipWaterPocketManager {
 
                     var rep = start
                     var minY = Double.POSITIVE_INFINITY
-                    var targetPlane = Double.NEGATIVE_INFINITY
+                    var lowestCell = start
                     var submergedHoleFaces = 0
 
                     while (head < tail) {
@@ -4788,8 +5944,10 @@ object ShipWaterPocketManager {
                         val curInteriorMask = if (hasComponentConnectivity) simulationComponentMaskAt(state, idx) else -1L
 
                         val wy = cellCenterWorldY(lx, ly, lz)
-                        if (wy < minY) minY = wy
-                        if (targetWetInterior.get(idx) && wy > targetPlane) targetPlane = wy
+                        if (wy < minY) {
+                            minY = wy
+                            lowestCell = idx
+                        }
 
                         fun tryNeighbor(n: Int, dirCode: Int) {
                             if (n < 0 || n >= volume) return
@@ -4819,7 +5977,7 @@ object ShipWaterPocketManager {
                             } else {
                                 // Count submerged hull openings into world water as "holes" controlling fill rate.
                                 if (!open.get(n)) return
-                                if (!state.outsideVoid.get(n)) return
+                                if (!isOutsideVoidVoxel(state, n)) return
                                 if (!state.waterReachable.get(n)) return
                                 if (conductance < MIN_OPENING_CONDUCTANCE) {
                                     microOpeningFilteredCount.incrementAndGet()
@@ -4837,42 +5995,53 @@ object ShipWaterPocketManager {
                         if (lz + 1 < sizeZ) tryNeighbor(idx + strideZ, 5)
                     }
 
-                    if (!targetPlane.isFinite()) return
-
-                    val oldPlane = if (state.floodPlaneByComponent.containsKey(rep)) state.floodPlaneByComponent.get(rep) else minY
-                    val floodRateMultiplier = ValkyrienAirConfig.shipPocketFloodRateMultiplier
-                        .coerceIn(0.05, 5.0)
-                    val rise = ((FLOOD_RISE_PER_TICK_BASE +
-                        submergedHoleFaces.coerceAtLeast(1).toDouble() * FLOOD_RISE_PER_TICK_PER_HOLE_FACE)
-                        .coerceAtMost(FLOOD_RISE_MAX_PER_TICK)) * floodRateMultiplier
-                    val newPlane = minOf(targetPlane, oldPlane + rise)
-                    newPlanes.put(rep, newPlane)
-
-                    // Materialize new water blocks up to the current plane height, rising from the pocket's lowest point.
+                    order.beginComponent(rep, lowestCell, submergedHoleFaces)
                     for (i in 0 until tail) {
                         val idx = queue[i]
-                        if (!targetWetInterior.get(idx)) continue
-                        if (materialized.get(idx)) continue
+                        if (targetWetInterior.get(idx)) order.addCell(idx)
+                    }
+                    order.endComponent()
+                }
 
-                        val lx = idx % sizeX
-                        val t = idx / sizeX
-                        val ly = t % sizeY
-                        val lz = t / sizeY
-                        val wy = cellCenterWorldY(lx, ly, lz)
-                        if (wy <= newPlane + FLOOD_ENTER_PLANE_EPS) {
-                            toAddAll.set(idx)
+                if (cachedOrder == null) {
+                    var start = missing.nextSetBit(0)
+                    while (start >= 0 && start < volume) {
+                        if (!interior.get(start) || visited.get(start)) {
+                            start = missing.nextSetBit(start + 1)
+                            continue
                         }
+                        scanComponent(start)
+                        start = missing.nextSetBit(start + 1)
                     }
+                    state.floodFillOrder = order
+                    floodFillOrderRebuilds.incrementAndGet()
                 }
 
-                var start = missing.nextSetBit(0)
-                while (start >= 0 && start < volume) {
-                    if (!interior.get(start) || visited.get(start)) {
-                        start = missing.nextSetBit(start + 1)
-                        continue
+                val floodRateMultiplier = ValkyrienAirConfig.shipPocketFloodRateMultiplier
+                    .coerceIn(0.05, 5.0)
+                for (c in 0 until order.componentCount) {
+                    if (!order.advance(c, materialized)) continue
+
+                    val rep = order.rep(c)
+                    val targetPlane = baseWorldY + order.topHeight(c)
+                    val oldPlane = if (state.floodPlaneByComponent.containsKey(rep)) {
+                        state.floodPlaneByComponent.get(rep)
+                    } else {
+                        baseWorldY + order.lowestHeight(c)
                     }
-                    scanComponent(start)
-                    start = missing.nextSetBit(start + 1)
+                    val rise = ((FLOOD_RISE_PER_TICK_BASE +
+                        order.submergedHoleFaces(c).coerceAtLeast(1).toDouble() * FLOOD_RISE_PER_TICK_PER_HOLE_FACE)
+                        .coerceAtMost(FLOOD_RISE_MAX_PER_TICK)) * floodRateMultiplier
+                    val newPlane = minOf(targetPlane, oldPlane + rise)
+                    newPlanes.put(rep, newPlane)
+
+                    // Materialize new water blocks up to the current plane height, rising from the lowest point.
+                    order.collectMissingAtOrBelow(
+                        c,
+                        newPlane + FLOOD_ENTER_PLANE_EPS - baseWorldY,
+                        materialized,
+                        toAddAll,
+                    )
                 }
             }
         }
@@ -4887,6 +6056,7 @@ object ShipWaterPocketManager {
             toRemoveAll = toRemoveAll,
         )
 
+        tmpSpareFloodPlanes.set(state.floodPlaneByComponent)
         state.floodPlaneByComponent = newPlanes
 
         enqueueFloodWriteDiffs(state, toAddAll, toRemoveAll)
@@ -5041,7 +6211,7 @@ object ShipWaterPocketManager {
                 // Keep vent detection strict to avoid draining through arbitrary interior air cells:
                 // allow exterior-open cells, but if geometry heuristics still classify them as interior,
                 // only accept them when they are on the simulation boundary shell.
-                if (state.strictInterior.get(holeIdx) && !isBoundaryCell) return
+                if (isStrictInteriorVoxel(state, holeIdx) && !isBoundaryCell) return
 
                 val shipX = state.minX + lx
                 val shipY = state.minY + ly
@@ -5344,6 +6514,7 @@ object ShipWaterPocketManager {
         val worldPosTmp = tmpWorldPos2.get()
         val shipPosTmp = tmpShipPos2.get()
         val worldBlockPos = BlockPos.MutableBlockPos()
+        val batch = FloodSectionWriteBatch(level)
 
         applyingInternalUpdates = true
         try {
@@ -5353,8 +6524,8 @@ object ShipWaterPocketManager {
 
                 val current = level.getBlockState(pos)
                 if (toWater) {
-                    if (!state.simulationDomain.get(idx)) {
-                        state.materializedWater.clear(idx)
+                    if (!isSimulationVoxel(state, idx)) {
+                        clearMaterializedWater(state, idx)
                         idx = indices.nextSetBit(idx + 1)
                         continue
                     }
@@ -5367,8 +6538,8 @@ object ShipWaterPocketManager {
                             worldPosTmp,
                             worldBlockPos
                         )
-                        val submergedFluid = submergedSample.canonicalFluid
-                        if (!submergedSample.isIngressQualified() || submergedFluid == null || canonicalFloodSource(submergedFluid) != state.floodFluid) {
+                        val submergedFluid = fluidCoverageFluid(submergedSample)
+                        if (!isCoverageIngressQualified(submergedSample) || submergedFluid == null || canonicalFloodSource(submergedFluid) != state.floodFluid) {
                             idx = indices.nextSetBit(idx + 1)
                             continue
                         }
@@ -5376,19 +6547,18 @@ object ShipWaterPocketManager {
 
                     val currentFluid = current.fluidState
                     if (!currentFluid.isEmpty && canonicalFloodSource(currentFluid.type) == state.floodFluid) {
-                        state.materializedWater.set(idx)
+                        setMaterializedWater(state, idx)
                     } else if (current.isAir) {
-                        level.setBlock(pos, sourceBlockState, flags)
-                        level.scheduleTick(pos, state.floodFluid, 1)
-                        state.materializedWater.set(idx)
+                        batch.write(pos, sourceBlockState)
+                        setMaterializedWater(state, idx)
                     } else if (tryPlaceFloodFluidInContainer(level, pos, current, state.floodFluid)) {
-                        state.materializedWater.set(idx)
+                        setMaterializedWater(state, idx)
                     } else if (isWaterloggableForFlood(current, state.floodFluid)) {
                         if (!current.getValue(BlockStateProperties.WATERLOGGED)) {
                             level.setBlock(pos, current.setValue(BlockStateProperties.WATERLOGGED, true), flags)
                             level.scheduleTick(pos, Fluids.WATER, 1)
                         }
-                        state.materializedWater.set(idx)
+                        setMaterializedWater(state, idx)
                     }
                 } else {
                     val currentFluid = current.fluidState
@@ -5396,24 +6566,24 @@ object ShipWaterPocketManager {
                         !currentFluid.isEmpty &&
                         canonicalFloodSource(currentFluid.type) == state.floodFluid
                     ) {
-                        level.setBlock(pos, Blocks.AIR.defaultBlockState(), flags)
-                        level.scheduleTick(pos, state.floodFluid, 1)
-                        state.materializedWater.clear(idx)
+                        batch.write(pos, Blocks.AIR.defaultBlockState())
+                        clearMaterializedWater(state, idx)
                     } else if (tryDrainFloodFluidFromContainer(level, pos, current, state.floodFluid)) {
-                        state.materializedWater.clear(idx)
+                        clearMaterializedWater(state, idx)
                     } else if (isWaterloggableForFlood(current, state.floodFluid) &&
                         current.getValue(BlockStateProperties.WATERLOGGED)
                     ) {
                         level.setBlock(pos, current.setValue(BlockStateProperties.WATERLOGGED, false), flags)
                         level.scheduleTick(pos, Fluids.WATER, 1)
-                        state.materializedWater.clear(idx)
+                        clearMaterializedWater(state, idx)
                     } else {
-                        state.materializedWater.clear(idx)
+                        clearMaterializedWater(state, idx)
                     }
                 }
 
                 idx = indices.nextSetBit(idx + 1)
             }
+            batch.apply()
         } finally {
             applyingInternalUpdates = false
         }
@@ -5428,8 +6598,9 @@ object ShipWaterPocketManager {
         worldPosTmp: Vector3d,
         worldBlockPos: BlockPos.MutableBlockPos,
     ): Boolean {
-        return getShipCellFluidCoverage(level, shipTransform, shipBlockPos, shipPosTmp, worldPosTmp, worldBlockPos)
-            .isIngressQualified()
+        return isCoverageIngressQualified(
+            getShipCellFluidCoverage(level, shipTransform, shipBlockPos, shipPosTmp, worldPosTmp, worldBlockPos),
+        )
     }
 
     private fun getShipCellSubmergedWorldFluidType(
@@ -5441,9 +6612,14 @@ object ShipWaterPocketManager {
         worldBlockPos: BlockPos.MutableBlockPos,
     ): Fluid? {
         val sample = getShipCellFluidCoverage(level, shipTransform, shipBlockPos, shipPosTmp, worldPosTmp, worldBlockPos)
-        return if (sample.isIngressQualified()) sample.canonicalFluid else null
+        return if (isCoverageIngressQualified(sample)) fluidCoverageFluid(sample) else null
     }
 
+    /**
+     * World fluid coverage of one ship cell, packed (see packFluidCoverage): the dominant canonical fluid over the
+     * center and eight corner samples, how many samples it covers and whether the center is among them. Runs for
+     * every open cell of every solve, so it allocates nothing; tallies live in a per-thread scratch array.
+     */
     private fun getShipCellFluidCoverage(
         level: Level,
         shipTransform: ShipTransform,
@@ -5451,111 +6627,61 @@ object ShipWaterPocketManager {
         shipPosTmp: Vector3d,
         worldPosTmp: Vector3d,
         worldBlockPos: BlockPos.MutableBlockPos,
-    ): FluidCoverageSample {
+    ): Int {
         return withBypassedFluidOverrides {
-            val epsCorner = 1e-4
-            val sampledFluids = arrayOfNulls<Fluid>(9)
-            val sampledFluidCounts = IntArray(9)
-            var sampledFluidCount = 0
-            var centerCanonical: Fluid? = null
-            var centerSubmerged = false
-            var submergedSamples = 0
-
-            fun sample(shipX: Double, shipY: Double, shipZ: Double): Fluid? {
-                return sampleCanonicalWorldFluidAtShipPoint(
+            // [0, 9): distinct fluid ids seen, [9, 18): their sample counts.
+            val tally = tmpFluidCoverageTally.get()
+            var distinct = 0
+            var centerId = 0
+
+            val x0 = shipBlockPos.x.toDouble()
+            val y0 = shipBlockPos.y.toDouble()
+            val z0 = shipBlockPos.z.toDouble()
+            val offsets = FLUID_COVERAGE_SAMPLE_OFFSETS
+            for (sampleIdx in 0 until FLUID_COVERAGE_SAMPLE_COUNT) {
+                val o = sampleIdx * 3
+                val fluid = sampleCanonicalWorldFluidAtShipPoint(
                     level = level,
                     shipTransform = shipTransform,
-                    shipX = shipX,
-                    shipY = shipY,
-                    shipZ = shipZ,
+                    shipX = x0 + offsets[o],
+                    shipY = y0 + offsets[o + 1],
+                    shipZ = z0 + offsets[o + 2],
                     shipPosTmp = shipPosTmp,
                     worldPosTmp = worldPosTmp,
                     worldBlockPos = worldBlockPos,
-                )
-            }
-
-            fun registerSample(fluid: Fluid?) {
-                if (fluid == null) return
-                submergedSamples++
-                for (i in 0 until sampledFluidCount) {
-                    if (sampledFluids[i] == fluid) {
-                        sampledFluidCounts[i]++
-                        return
-                    }
+                ) ?: continue
+                val id = FluidCoverageIds.idOf(fluid)
+                if (sampleIdx == 0) centerId = id
+
+                var slot = 0
+                while (slot < distinct && tally[slot] != id) slot++
+                if (slot == distinct) {
+                    tally[slot] = id
+                    tally[FLUID_COVERAGE_SAMPLE_COUNT + slot] = 0
+                    distinct++
                 }
-                if (sampledFluidCount < sampledFluids.size) {
-                    sampledFluids[sampledFluidCount] = fluid
-                    sampledFluidCounts[sampledFluidCount] = 1
-                    sampledFluidCount++
-                } else {
-                    // Should never happen (9 samples max), but keep deterministic behavior.
-                    sampledFluidCounts[0]++
-                }
-            }
-
-            val x0 = shipBlockPos.x.toDouble()
-            val y0 = shipBlockPos.y.toDouble()
-            val z0 = shipBlockPos.z.toDouble()
-
-            centerCanonical = sample(x0 + 0.5, y0 + 0.5, z0 + 0.5)
-            centerSubmerged = centerCanonical != null
-            registerSample(centerCanonical)
-
-            // Near the fluid surface / with rotation, the cell center can be above fluid while a corner is submerged.
-            val lo = epsCorner
-            val hi = 1.0 - epsCorner
-            registerSample(sample(x0 + lo, y0 + lo, z0 + lo))
-            registerSample(sample(x0 + hi, y0 + lo, z0 + lo))
-            registerSample(sample(x0 + lo, y0 + hi, z0 + lo))
-            registerSample(sample(x0 + hi, y0 + hi, z0 + lo))
-            registerSample(sample(x0 + lo, y0 + lo, z0 + hi))
-            registerSample(sample(x0 + hi, y0 + lo, z0 + hi))
-            registerSample(sample(x0 + lo, y0 + hi, z0 + hi))
-            registerSample(sample(x0 + hi, y0 + hi, z0 + hi))
-
-            if (submergedSamples == 0) {
-                return@withBypassedFluidOverrides FluidCoverageSample(
-                    canonicalFluid = null,
-                    coverageRatio = 0.0,
-                    centerSubmerged = false,
-                )
+                tally[FLUID_COVERAGE_SAMPLE_COUNT + slot]++
             }
+            if (distinct == 0) return@withBypassedFluidOverrides FLUID_COVERAGE_NONE
 
-            var bestFluid: Fluid? = null
+            // Most samples wins; ties go to the center's fluid.
+            var bestId = 0
             var bestCount = 0
-            for (i in 0 until sampledFluidCount) {
-                val fluid = sampledFluids[i] ?: continue
-                val count = sampledFluidCounts[i]
-                if (count > bestCount) {
+            for (slot in 0 until distinct) {
+                val id = tally[slot]
+                val count = tally[FLUID_COVERAGE_SAMPLE_COUNT + slot]
+                if (count > bestCount || (count == bestCount && id == centerId)) {
                     bestCount = count
-                    bestFluid = fluid
-                } else if (count == bestCount && centerCanonical != null && fluid == centerCanonical) {
-                    bestFluid = fluid
+                    bestId = id
                 }
             }
-
-            if (bestFluid == null || bestCount <= 0) {
-                val c = coverageFallbackDiagCount.incrementAndGet()
-                if (c <= 3L || c % 500L == 0L) {
-                    log.debug("Fluid coverage fallback triggered (shipCell={}, samples={})", shipBlockPos, submergedSamples)
-                }
-                return@withBypassedFluidOverrides FluidCoverageSample(
-                    canonicalFluid = null,
-                    coverageRatio = 0.0,
-                    centerSubmerged = false,
-                )
-            }
-
-            var ratio = bestCount / 9.0
-            if (!ratio.isFinite()) ratio = 0.0
-            ratio = ratio.coerceIn(0.0, 1.0)
-
-            return@withBypassedFluidOverrides FluidCoverageSample(
-                canonicalFluid = bestFluid,
-                coverageRatio = ratio,
-                centerSubmerged = centerCanonical != null && bestFluid == centerCanonical && centerSubmerged,
-            )
+            packFluidCoverage(bestId, bestCount, centerSubmerged = centerId != 0 && bestId == centerId)
         }
     }
 
+    private fun isCoverageIngressQualified(packed: Int): Boolean {
+        if (fluidCoverageFluidId(packed) == 0) return false
+        return fluidCoverageCenterSubmerged(packed) || fluidCoverageRatio(packed) >= SUBMERGED_INGRESS_MIN_COVERAGE
+    }
+
 }
@@ -37,9 +37,9 @@ internal data class PersistedShipPocketState(
     val materializedWater: BitSet,
     val waterReachable: BitSet,
     val unreachableVoid: BitSet,
-    val faceCondXP: ShortArray,
-    val faceCondYP: ShortArray,
-    val faceCondZP: ShortArray,
+    val faceCondXP: ByteArray,
+    val faceCondYP: ByteArray,
+    val faceCondZP: ByteArray,
     val voxelExteriorComponentMask: LongArray,
     val voxelInteriorComponentMask: LongArray,
     val voxelSimulationComponentMask: LongArray,
@@ -93,9 +93,9 @@ internal class ShipPocketSavedData : SavedData() {
             shipTag.putByteArray(TAG_WATER_REACHABLE, encodeBitSet(state.waterReachable))
             shipTag.putByteArray(TAG_UNREACHABLE_VOID, encodeBitSet(state.unreachableVoid))
 
-            shipTag.putByteArray(TAG_FACE_COND_XP, encodeShortArray(state.faceCondXP))
-            shipTag.putByteArray(TAG_FACE_COND_YP, encodeShortArray(state.faceCondYP))
-            shipTag.putByteArray(TAG_FACE_COND_ZP, encodeShortArray(state.faceCondZP))
+            shipTag.putByteArray(TAG_FACE_COND_XP, encodeFaceConductance(state.faceCondXP))
+            shipTag.putByteArray(TAG_FACE_COND_YP, encodeFaceConductance(state.faceCondYP))
+            shipTag.putByteArray(TAG_FACE_COND_ZP, encodeFaceConductance(state.faceCondZP))
             shipTag.putByteArray(TAG_VOXEL_EXTERIOR_COMPONENT_MASK, encodeLongArray(state.voxelExteriorComponentMask))
             shipTag.putByteArray(TAG_VOXEL_INTERIOR_COMPONENT_MASK, encodeLongArray(state.voxelInteriorComponentMask))
             shipTag.putByteArray(TAG_VOXEL_SIMULATION_COMPONENT_MASK, encodeLongArray(state.voxelSimulationComponentMask))
@@ -196,9 +196,9 @@ internal class ShipPocketSavedData : SavedData() {
                     if (version >= 2) decodeBitSet(shipTag.getByteArray(TAG_SIMULATION_DOMAIN)) else interiorLegacy.clone() as BitSet
                 var requiresResave = version < FORMAT_VERSION
 
-                val faceCondXPRaw = decodeShortArray(shipTag.getByteArray(TAG_FACE_COND_XP))
-                val faceCondYPRaw = decodeShortArray(shipTag.getByteArray(TAG_FACE_COND_YP))
-                val faceCondZPRaw = decodeShortArray(shipTag.getByteArray(TAG_FACE_COND_ZP))
+                val faceCondXPRaw = decodeFaceConductance(shipTag.getByteArray(TAG_FACE_COND_XP))
+                val faceCondYPRaw = decodeFaceConductance(shipTag.getByteArray(TAG_FACE_COND_YP))
+                val faceCondZPRaw = decodeFaceConductance(shipTag.getByteArray(TAG_FACE_COND_ZP))
                 val faceCondXP = sanitizeFaceConductance(faceCondXPRaw, volume).also {
                     if (it.size != faceCondXPRaw.size || (faceCondXPRaw.isNotEmpty() && it.isEmpty())) {
                         requiresResave = true
@@ -349,9 +349,9 @@ internal fun snapshotStateForPersistence(state: ShipPocketState): PersistedShipP
         faceCondXP = state.faceCondXP.copyOf(),
         faceCondYP = state.faceCondYP.copyOf(),
         faceCondZP = state.faceCondZP.copyOf(),
-        voxelExteriorComponentMask = state.voxelExteriorComponentMask.copyOf(),
-        voxelInteriorComponentMask = state.voxelInteriorComponentMask.copyOf(),
-        voxelSimulationComponentMask = state.voxelSimulationComponentMask.copyOf(),
+        voxelExteriorComponentMask = state.voxelExteriorComponentMask.toLongArray(),
+        voxelInteriorComponentMask = state.voxelInteriorComponentMask.toLongArray(),
+        voxelSimulationComponentMask = state.voxelSimulationComponentMask.toLongArray(),
         floodPlaneByComponent = Int2DoubleOpenHashMap(state.floodPlaneByComponent),
         geometryRevision = state.geometryRevision,
         geometrySignature = state.geometrySignature,
@@ -371,9 +371,11 @@ internal fun applyPersistedState(state: ShipPocketState, persisted: PersistedShi
     state.simulationDomain = persisted.simulationDomain.clone() as BitSet
     state.outsideVoid = persisted.outsideVoid.clone() as BitSet
     state.interior = persisted.strictInterior.clone() as BitSet
+    onGeometryMasksChanged(state)
     state.floodFluid = canonicalFloodSource(persisted.floodFluid)
     state.flooded = persisted.flooded.clone() as BitSet
     state.materializedWater = persisted.materializedWater.clone() as BitSet
+    state.materializedRevision++
     state.waterReachable = persisted.waterReachable.clone() as BitSet
     state.unreachableVoid = persisted.unreachableVoid.clone() as BitSet
     state.faceCondXP = persisted.faceCondXP.copyOf()
@@ -381,9 +383,9 @@ internal fun applyPersistedState(state: ShipPocketState, persisted: PersistedShi
     state.faceCondZP = persisted.faceCondZP.copyOf()
     state.shapeTemplatePalette = emptyList()
     state.templateIndexByVoxel = IntArray(0)
-    state.voxelExteriorComponentMask = persisted.voxelExteriorComponentMask.copyOf()
-    state.voxelInteriorComponentMask = persisted.voxelInteriorComponentMask.copyOf()
-    state.voxelSimulationComponentMask = persisted.voxelSimulationComponentMask.copyOf()
+    state.voxelExteriorComponentMask = SparseVoxelLongArray.fromLongArray(persisted.voxelExteriorComponentMask)
+    state.voxelInteriorComponentMask = SparseVoxelLongArray.fromLongArray(persisted.voxelInteriorComponentMask)
+    state.voxelSimulationComponentMask = SparseVoxelLongArray.fromLongArray(persisted.voxelSimulationComponentMask)
     state.componentGraphDegraded = true
     state.floodPlaneByComponent = Int2DoubleOpenHashMap(persisted.floodPlaneByComponent)
     state.geometryRevision = persisted.geometryRevision
@@ -394,9 +396,9 @@ internal fun applyPersistedState(state: ShipPocketState, persisted: PersistedShi
     state.awaitingGeometryValidation = true
 }
 
-private fun sanitizeFaceConductance(values: ShortArray, volume: Int): ShortArray {
+private fun sanitizeFaceConductance(values: ByteArray, volume: Int): ByteArray {
     if (values.isEmpty()) return values
-    return if (values.size >= volume) values.copyOf(volume) else ShortArray(0)
+    return if (values.size >= volume) values.copyOf(volume) else ByteArray(0)
 }
 
 private fun sanitizeVoxelMasks(values: LongArray, volume: Int): LongArray {
@@ -409,9 +411,9 @@ private fun reconstructOutsideVoidForLegacy(
     sizeX: Int,
     sizeY: Int,
     sizeZ: Int,
-    faceCondXP: ShortArray,
-    faceCondYP: ShortArray,
-    faceCondZP: ShortArray,
+    faceCondXP: ByteArray,
+    faceCondYP: ByteArray,
+    faceCondZP: ByteArray,
 ): BitSet {
     val volume = sizeX * sizeY * sizeZ
     val hasValidFaceConductance =
@@ -509,24 +511,25 @@ private fun decodeBitSet(bytes: ByteArray): BitSet {
     return BitSet.valueOf(longs)
 }
 
-private fun encodeShortArray(values: ShortArray): ByteArray {
+// Conductance is held as unsigned bytes in memory but stays u16 on disk, so existing saves load unchanged.
+private fun encodeFaceConductance(values: ByteArray): ByteArray {
     if (values.isEmpty()) return ByteArray(0)
     val raw = ByteArray(values.size * 2)
     val bb = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN)
     for (value in values) {
-        bb.putShort(value)
+        bb.putShort((value.toInt() and 0xFF).toShort())
     }
     return compressBytes(raw)
 }
 
-private fun decodeShortArray(bytes: ByteArray): ShortArray {
-    if (bytes.isEmpty()) return ShortArray(0)
+private fun decodeFaceConductance(bytes: ByteArray): ByteArray {
+    if (bytes.isEmpty()) return ByteArray(0)
     val raw = decompressBytes(bytes)
-    if (raw.isEmpty() || raw.size % 2 != 0) return ShortArray(0)
-    val out = ShortArray(raw.size / 2)
+    if (raw.isEmpty() || raw.size % 2 != 0) return ByteArray(0)
+    val out = ByteArray(raw.size / 2)
     val bb = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN)
     for (i in out.indices) {
-        out[i] = bb.getShort()
+        out[i] = bb.getShort().toInt().coerceIn(0, 0xFF).toByte()
     }
     return out
 }
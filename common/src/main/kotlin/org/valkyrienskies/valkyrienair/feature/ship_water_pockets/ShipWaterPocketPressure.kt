@@ -0,0 +1,146 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap
+
+private const val AIR_PRESSURE_Y_EPS = 1e-7
+private const val AIR_PRESSURE_ATM = 1.0
+// Minecraft-ish hydrostatic pressure: ~1 atm per 10 blocks of water depth for "water-density" fluids.
+// Pressure increase per block is `density * AIR_PRESSURE_PER_BLOCK_PER_DENSITY`.
+private const val AIR_PRESSURE_PER_BLOCK_PER_DENSITY = 1e-4
+private const val AIR_PRESSURE_MIN_EFFECTIVE_AIR_VOLUME = 0.25
+// Bisection steps; halves the [waterLevel, surfaceY] bracket each time, far below voxel resolution after this many.
+private const val AIR_PRESSURE_BISECTION_ITERS = 48
+
+/**
+ * Water plane of a sealed pocket whose submerged openings let water in up to [waterLevel] while the trapped air
+ * (isothermal, Boyle's law) pushes back against the exterior head below [surfaceY].
+ *
+ * [sortedCellCenterY] holds the world Y of each pocket cell center in ascending order (first [cellCount] entries), so
+ * the air volume above a candidate plane is one binary search. The returned plane is the fixed point of
+ * `plane -> clamp(surfaceY - (pAir(plane) - 1 atm) / (density * k), waterLevel, surfaceY)`; that map is non-increasing
+ * in the plane, so the fixed point is unique and bisection finds it (at a step of the discrete air volume if the map
+ * jumps over the diagonal there).
+ */
+internal fun solvePressurizedFloodPlane(
+    sortedCellCenterY: DoubleArray,
+    cellCount: Int,
+    waterLevel: Double,
+    surfaceY: Double,
+    density: Double,
+): Double {
+    val surface = maxOf(surfaceY, waterLevel)
+    if (cellCount <= 0) return waterLevel
+    val totalVol = cellCount.toDouble()
+
+    fun airCellsAbove(plane: Double): Int {
+        // First index whose center is above the plane; every cell from there up still holds air.
+        val threshold = plane + AIR_PRESSURE_Y_EPS
+        var lo = 0
+        var hi = cellCount
+        while (lo < hi) {
+            val mid = (lo + hi) ushr 1
+            if (sortedCellCenterY[mid] > threshold) hi = mid else lo = mid + 1
+        }
+        return cellCount - lo
+    }
+
+    fun targetPlane(plane: Double): Double {
+        val effectiveAirVol =
+            maxOf(airCellsAbove(plane).toDouble(), AIR_PRESSURE_MIN_EFFECTIVE_AIR_VOLUME).coerceAtMost(totalVol)
+        val pAir = AIR_PRESSURE_ATM * (totalVol / effectiveAirVol)
+        val planeNew = surface - (pAir - AIR_PRESSURE_ATM) / (density * AIR_PRESSURE_PER_BLOCK_PER_DENSITY)
+        return maxOf(waterLevel, planeNew).coerceAtMost(surface)
+    }
+
+    // targetPlane(lo) >= lo and targetPlane(hi) <= hi hold at the bracket ends by construction.
+    var lo = waterLevel
+    var hi = surface
+    repeat(AIR_PRESSURE_BISECTION_ITERS) {
+        if (hi - lo <= AIR_PRESSURE_Y_EPS) return lo
+        val mid = 0.5 * (lo + hi)
+        if (targetPlane(mid) >= mid) lo = mid else hi = mid
+    }
+    return lo
+}
+
+/**
+ * Cells of every interior component in the height order [solvePressurizedFloodPlane] needs.
+ *
+ * Components (keyed by their lowest voxel index) only change with the geometry masks, so the order is cached on the
+ * state until they do (see [pocketHeightOrder]). Translation never reorders the cells; after a rotation the stored
+ * order is usually still sorted or nearly so, and [sortedHeights] repairs it in place with a bounded insertion sort
+ * before falling back to a full sort. Solves of one ship may run on different threads, so access is synchronized.
+ */
+internal class PocketHeightOrder(private val sizeX: Int, private val sizeY: Int) {
+    private val cellsByComponent = Int2ObjectOpenHashMap<IntArray>()
+
+    /**
+     * Fills the first [count] entries of [out] with the world Y of the component's cell centers, ascending. [cells]
+     * holds the component's cells in any order and is only read when the component is not cached yet.
+     */
+    @Synchronized
+    fun sortedHeights(
+        component: Int,
+        cells: IntArray,
+        count: Int,
+        baseWorldY: Double,
+        incX: Double,
+        incY: Double,
+        incZ: Double,
+        out: DoubleArray,
+        cancellation: ShipPocketJobCancellation = ShipPocketJobCancellation.NONE,
+    ) {
+        val stored = cellsByComponent.get(component)
+        val cached = stored != null && stored.size == count
+        val order = if (cached) stored!! else cells.copyOf(count).also { cellsByComponent.put(component, it) }
+        for (i in 0 until count) {
+            if ((i and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
+            val idx = order[i]
+            val lx = idx % sizeX
+            val t = idx / sizeX
+            val ly = t % sizeY
+            val lz = t / sizeY
+            out[i] = baseWorldY + incX * (lx + 0.5) + incY * (ly + 0.5) + incZ * (lz + 0.5)
+        }
+        if (cached && insertionSort(order, out, count, maxShifts = count)) return
+
+        it.unimi.dsi.fastutil.Arrays.quickSort(
+            0,
+            count,
+            { a, b -> out[a].compareTo(out[b]) },
+            { a, b ->
+                val cell = order[a]
+                order[a] = order[b]
+                order[b] = cell
+                val height = out[a]
+                out[a] = out[b]
+                out[b] = height
+            },
+        )
+    }
+
+    /** Sorts both arrays by height unless that takes more than [maxShifts] moves; returns whether it finished. */
+    private fun insertionSort(order: IntArray, heights: DoubleArray, count: Int, maxShifts: Int): Boolean {
+        var shifts = 0
+        for (i in 1 until count) {
+            val height = heights[i]
+            if (heights[i - 1] <= height) continue
+            val cell = order[i]
+            var j = i - 1
+            while (j >= 0 && heights[j] > height) {
+                if (++shifts > maxShifts) {
+                    // Put the cell back into the hole so both arrays stay a permutation of the component.
+                    heights[j + 1] = height
+                    order[j + 1] = cell
+                    return false
+                }
+                heights[j + 1] = heights[j]
+                order[j + 1] = order[j]
+                j--
+            }
+            heights[j + 1] = height
+            order[j + 1] = cell
+        }
+        return true
+    }
+}
@@ -0,0 +1,160 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import java.util.concurrent.atomic.AtomicLong
+
+// Ships within this distance of a player are solved every tick; past the far distance they count as idle.
+private const val SCHEDULE_NEAR_PLAYER_DISTANCE = 64.0
+private const val SCHEDULE_FAR_PLAYER_DISTANCE = 192.0
+// Blocks per second / radians per second above which a ship counts as moving.
+private const val SCHEDULE_MOVING_LINEAR_SPEED = 0.5
+private const val SCHEDULE_MOVING_ANGULAR_SPEED = 0.05
+private const val SCHEDULE_SUBMERGED_INTERVAL_TICKS = 4L
+private const val SCHEDULE_IDLE_INTERVAL_TICKS = 20L
+// Flood-queue backlog at which the backlog term of the priority saturates.
+private const val SCHEDULE_BACKLOG_SATURATION = 256.0
+
+/** Per-ship inputs to async job scheduling, sampled once per ship and tick. */
+internal data class ShipSolveScheduleInputs(
+    // Distance from the nearest player to the ship's world AABB (zero aboard).
+    val nearestPlayerDistance: Double,
+    val linearSpeed: Double,
+    val angularSpeed: Double,
+    val submerged: Boolean,
+    val floodQueueBacklog: Int,
+    val ticksSinceLastSolve: Long,
+) {
+    val moving: Boolean
+        get() = linearSpeed > SCHEDULE_MOVING_LINEAR_SPEED || angularSpeed > SCHEDULE_MOVING_ANGULAR_SPEED
+}
+
+/**
+ * How often a ship's water solve should run: every tick near players, while moving or while flood writes are still
+ * queued; every few ticks for submerged ships further away; rarely for idle, far ships.
+ */
+internal fun targetSolveIntervalTicks(inputs: ShipSolveScheduleInputs): Long {
+    val distance = inputs.nearestPlayerDistance
+    return when {
+        distance <= SCHEDULE_NEAR_PLAYER_DISTANCE || inputs.moving || inputs.floodQueueBacklog > 0 -> 1L
+        inputs.submerged && distance <= SCHEDULE_FAR_PLAYER_DISTANCE -> SCHEDULE_SUBMERGED_INTERVAL_TICKS
+        else -> SCHEDULE_IDLE_INTERVAL_TICKS
+    }
+}
+
+/**
+ * Submission priority of a due job; higher runs first. Jobs gain priority as they fall behind their [intervalTicks],
+ * weighted by how much a stale result would show: player proximity, motion, submersion and pending flood writes.
+ */
+internal fun solvePriority(inputs: ShipSolveScheduleInputs, intervalTicks: Long): Double {
+    val overdue = inputs.ticksSinceLastSolve.coerceAtLeast(1L).toDouble() / intervalTicks.coerceAtLeast(1L).toDouble()
+    val proximity = (1.0 - inputs.nearestPlayerDistance / SCHEDULE_FAR_PLAYER_DISTANCE).coerceIn(0.0, 1.0)
+    var weight = 1.0 + 4.0 * proximity
+    if (inputs.moving) weight += 2.0
+    if (inputs.submerged) weight += 1.0
+    weight += (inputs.floodQueueBacklog / SCHEDULE_BACKLOG_SATURATION).coerceAtMost(1.0)
+    return overdue.coerceAtMost(1_000.0) * weight
+}
+
+/**
+ * Priority of a ship's pending gravity resettle (fluid ticks after the ship's "down" direction changed); higher gets
+ * the level's resettle budget first. Water sloshing around in view matters most, so this is mostly player proximity.
+ */
+internal fun resettlePriority(inputs: ShipSolveScheduleInputs): Double {
+    val proximity = (1.0 - inputs.nearestPlayerDistance / SCHEDULE_FAR_PLAYER_DISTANCE).coerceIn(0.0, 1.0)
+    var weight = 1.0 + 4.0 * proximity
+    if (inputs.nearestPlayerDistance <= SCHEDULE_NEAR_PLAYER_DISTANCE) weight += 4.0
+    if (inputs.moving) weight += 1.0
+    return weight
+}
+
+/**
+ * Due async submissions of one level tick, drained in priority order once every ship has been visited so the
+ * per-tick submission budget goes to the ships that need it most rather than to whichever loaded first.
+ */
+internal class ShipPocketSubmissionQueue<T> {
+    private val priorities = ArrayList<Double>()
+    private val entries = ArrayList<T>()
+
+    val size: Int
+        get() = entries.size
+
+    fun add(priority: Double, entry: T) {
+        priorities.add(priority)
+        entries.add(entry)
+    }
+
+    /**
+     * Offers entries to [submit] from highest priority down until [budget] submissions succeeded. Returns the number
+     * of entries left unattempted because the budget ran out.
+     */
+    fun drain(budget: Int, submit: (T) -> Boolean): Int {
+        val ordered = takeInPriorityOrder()
+        var remaining = budget
+        var attempted = 0
+        for (entry in ordered) {
+            if (remaining <= 0) break
+            attempted++
+            if (submit(entry)) remaining--
+        }
+        return ordered.size - attempted
+    }
+
+    /** Removes and returns every entry, highest priority first. */
+    fun takeInPriorityOrder(): List<T> {
+        val count = entries.size
+        if (count == 0) return emptyList()
+        val ordered = (0 until count).sortedByDescending { priorities[it] }.map { entries[it] }
+        priorities.clear()
+        entries.clear()
+        return ordered
+    }
+}
+
+/** What one level tick may spend on gravity resettles, shared by every queued ship. */
+internal class ResettleBudget(var fluidTicks: Int, var scanCells: Int) {
+    val exhausted: Boolean
+        get() = fluidTicks <= 0 || scanCells <= 0
+}
+
+/**
+ * Runs one level tick of gravity resettles over [ordered] ships, highest [resettlePriority] first: the frontier pass of
+ * every ship before any ship's interior pass, so water that can actually move is woken everywhere first. [pass] runs
+ * one pass of one ship and charges the fluid ticks and cells it used to [budget]; it is not called again once the
+ * budget is spent. Returns how many ships are still [pending] afterwards, i.e. the level's resettle backlog.
+ */
+internal fun <T> drainGravityResettlePasses(
+    ordered: List<T>,
+    budget: ResettleBudget,
+    pending: (T) -> Boolean,
+    pass: (ship: T, interiorPass: Boolean) -> Unit,
+): Int {
+    for (interiorPass in booleanArrayOf(false, true)) {
+        for (ship in ordered) {
+            if (budget.exhausted) break
+            pass(ship, interiorPass)
+        }
+    }
+    return ordered.count(pending)
+}
+
+/** Gravity-resettle backlog counters for the water-solver diag log. */
+internal class ResettleBacklogMetrics {
+    private val shipTicks = AtomicLong(0)
+    private val highWater = AtomicLong(0)
+
+    /** Ships still waiting for their resettle, summed over level ticks. */
+    val backlogShipTicks: Long
+        get() = shipTicks.get()
+
+    /** Most ships left waiting after a single level tick. */
+    val backlogHighWater: Long
+        get() = highWater.get()
+
+    fun record(backlog: Int) {
+        val value = backlog.toLong()
+        shipTicks.addAndGet(value)
+        while (true) {
+            val prev = highWater.get()
+            if (value <= prev || highWater.compareAndSet(prev, value)) break
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import java.util.BitSet
+
+/**
+ * Reusable voxel masks for the per-tick flooding passes; keep one per thread.
+ *
+ * [BitSet.clear] keeps the backing word array, so once a mask has grown to a ship's volume, taking it again allocates
+ * nothing. Masks are handed out in frames: everything taken inside [frame] goes back to the pool when the frame exits,
+ * and a nested frame (one pass calling another) stacks its masks on top of its caller's.
+ */
+internal class ShipPocketScratchMasks {
+    private val masks = ArrayList<BitSet>()
+    private var used = 0
+
+    /** A cleared mask, valid until the enclosing [frame] exits. */
+    fun take(): BitSet {
+        if (used == masks.size) masks.add(BitSet())
+        return masks[used++].also { it.clear() }
+    }
+
+    /** A mask holding a copy of [source]; the pooled counterpart of `source.clone()`. */
+    fun copyOf(source: BitSet): BitSet = take().also { it.or(source) }
+
+    inline fun <R> frame(block: (ShipPocketScratchMasks) -> R): R {
+        val mark = mark()
+        try {
+            return block(this)
+        } finally {
+            release(mark)
+        }
+    }
+
+    @PublishedApi
+    internal fun mark(): Int = used
+
+    @PublishedApi
+    internal fun release(mark: Int) {
+        check(mark in 0..used) { "Scratch frames released out of order" }
+        used = mark
+    }
+}
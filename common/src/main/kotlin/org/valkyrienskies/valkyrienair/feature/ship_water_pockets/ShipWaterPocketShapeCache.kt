@@ -0,0 +1,117 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import net.minecraft.core.BlockPos
+import net.minecraft.world.level.BlockGetter
+import net.minecraft.world.level.block.state.BlockState
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicLong
+
+private class ShapeTemplateKey(
+    private val fullSolid: Boolean,
+    private val refined: Boolean,
+    private val boxBits: LongArray,
+) {
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is ShapeTemplateKey) return false
+        if (fullSolid != other.fullSolid) return false
+        if (refined != other.refined) return false
+        return boxBits.contentEquals(other.boxBits)
+    }
+
+    override fun hashCode(): Int {
+        var result = fullSolid.hashCode()
+        result = 31 * result + refined.hashCode()
+        result = 31 * result + boxBits.contentHashCode()
+        return result
+    }
+
+    companion object {
+        fun fromGeometry(geom: ShapeWaterGeometry): ShapeTemplateKey {
+            val bits = LongArray(geom.boxes.size * 6)
+            var i = 0
+            for (box in geom.boxes) {
+                bits[i++] = java.lang.Double.doubleToLongBits(box.minX)
+                bits[i++] = java.lang.Double.doubleToLongBits(box.minY)
+                bits[i++] = java.lang.Double.doubleToLongBits(box.minZ)
+                bits[i++] = java.lang.Double.doubleToLongBits(box.maxX)
+                bits[i++] = java.lang.Double.doubleToLongBits(box.maxY)
+                bits[i++] = java.lang.Double.doubleToLongBits(box.maxZ)
+            }
+            return ShapeTemplateKey(
+                fullSolid = geom.fullSolid,
+                refined = geom.refined,
+                boxBits = bits,
+            )
+        }
+    }
+}
+
+internal class ShapeCacheEntry(
+    val geometry: ShapeWaterGeometry,
+    val templateId: Int,
+)
+
+/**
+ * One generation of interned shape templates. Template ids index [templates] and are shared by every ship; they only
+ * grow, so a result built against this registry can keep indexing it after newer templates were appended.
+ */
+internal class ShapeTemplateRegistry(val epoch: Long) {
+    val templates: List<ShapeCellTemplate>
+        get() = templateList
+
+    private val templateList = CopyOnWriteArrayList<ShapeCellTemplate>()
+    private val idByKey = ConcurrentHashMap<ShapeTemplateKey, Int>()
+
+    // BlockState does not override equals/hashCode, so this is an identity map.
+    private val entryByState = ConcurrentHashMap<BlockState, ShapeCacheEntry>()
+
+    fun intern(geom: ShapeWaterGeometry): Int {
+        val key = ShapeTemplateKey.fromGeometry(geom)
+        idByKey[key]?.let { return it }
+        synchronized(this) {
+            idByKey[key]?.let { return it }
+            val id = templateList.size
+            templateList.add(buildShapeCellTemplate(geom))
+            idByKey[key] = id
+            return id
+        }
+    }
+
+    fun entryFor(level: BlockGetter, pos: BlockPos, state: BlockState): ShapeCacheEntry {
+        entryByState[state]?.let { return it }
+        val geometry = computeShapeWaterGeometry(level, pos, state)
+        val entry = ShapeCacheEntry(geometry, intern(geometry))
+        // Dynamic/offset shapes depend on the position or neighbors; evaluate those per voxel every time.
+        if (isShapeContextIndependent(state)) {
+            entryByState.putIfAbsent(state, entry)
+        }
+        return entry
+    }
+
+    fun cachedStateCount(): Int = entryByState.size
+
+    private fun isShapeContextIndependent(state: BlockState): Boolean {
+        return !state.block.hasDynamicShape() && !state.hasOffsetFunction()
+    }
+}
+
+/**
+ * Process-wide BlockState -> water geometry/template cache used by geometry capture. Replaced wholesale on resource or
+ * datapack reload, since block shapes may change with them.
+ */
+internal object ShipWaterPocketShapeCache {
+    private val epochCounter = AtomicLong(0)
+
+    @Volatile
+    private var registry = ShapeTemplateRegistry(epochCounter.get())
+
+    fun current(): ShapeTemplateRegistry = registry
+
+    fun epoch(): Long = registry.epoch
+
+    fun invalidate() {
+        registry = ShapeTemplateRegistry(epochCounter.incrementAndGet())
+    }
+}
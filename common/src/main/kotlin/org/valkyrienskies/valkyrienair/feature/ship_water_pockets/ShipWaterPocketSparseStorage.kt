@@ -0,0 +1,79 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+private const val SPARSE_PAGE_SHIFT = 12
+private const val SPARSE_PAGE_SIZE = 1 shl SPARSE_PAGE_SHIFT
+private const val SPARSE_PAGE_MASK = SPARSE_PAGE_SIZE - 1
+
+/**
+ * Per-voxel `Long` storage indexed like a dense `LongArray`, but backed by 4096-entry pages that are only allocated
+ * once a non-zero value is written. Unwritten pages read as zero and share no storage.
+ *
+ * Used for the per-voxel component masks, which are non-zero only for open voxels. That saves the interior and
+ * simulation masks on mostly solid ships; the exterior mask covers all open space outside the hull and stays close to
+ * dense on most ships. Every other per-voxel buffer is still dense, which is why the volume limit is unchanged.
+ */
+internal class SparseVoxelLongArray private constructor(
+    val size: Int,
+    private val pages: Array<LongArray?>,
+) {
+    constructor(size: Int) : this(size, arrayOfNulls((size + SPARSE_PAGE_MASK) ushr SPARSE_PAGE_SHIFT))
+
+    val indices: IntRange = 0 until size
+
+    operator fun get(idx: Int): Long {
+        if (idx < 0 || idx >= size) throw IndexOutOfBoundsException("Index $idx out of bounds for size $size")
+        val page = pages[idx ushr SPARSE_PAGE_SHIFT] ?: return 0L
+        return page[idx and SPARSE_PAGE_MASK]
+    }
+
+    operator fun set(idx: Int, value: Long) {
+        if (idx < 0 || idx >= size) throw IndexOutOfBoundsException("Index $idx out of bounds for size $size")
+        val pageIdx = idx ushr SPARSE_PAGE_SHIFT
+        var page = pages[pageIdx]
+        if (page == null) {
+            if (value == 0L) return
+            page = LongArray(SPARSE_PAGE_SIZE)
+            pages[pageIdx] = page
+        }
+        page[idx and SPARSE_PAGE_MASK] = value
+    }
+
+    fun allocatedPageCount(): Int = pages.count { it != null }
+
+    fun copyOf(): SparseVoxelLongArray = SparseVoxelLongArray(size, Array(pages.size) { pages[it]?.copyOf() })
+
+    fun toLongArray(): LongArray {
+        val out = LongArray(size)
+        for (pageIdx in pages.indices) {
+            val page = pages[pageIdx] ?: continue
+            val start = pageIdx shl SPARSE_PAGE_SHIFT
+            System.arraycopy(page, 0, out, start, minOf(SPARSE_PAGE_SIZE, size - start))
+        }
+        return out
+    }
+
+    fun contentEquals(other: SparseVoxelLongArray): Boolean {
+        if (size != other.size) return false
+        for (pageIdx in pages.indices) {
+            val a = pages[pageIdx]
+            val b = other.pages[pageIdx]
+            if (a == null && b == null) continue
+            for (i in 0 until SPARSE_PAGE_SIZE) {
+                if ((a?.get(i) ?: 0L) != (b?.get(i) ?: 0L)) return false
+            }
+        }
+        return true
+    }
+
+    companion object {
+        @JvmStatic
+        fun fromLongArray(values: LongArray): SparseVoxelLongArray {
+            val out = SparseVoxelLongArray(values.size)
+            for (i in values.indices) {
+                val value = values[i]
+                if (value != 0L) out[i] = value
+            }
+            return out
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
 
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap
+import it.unimi.dsi.fastutil.ints.IntArrayList
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import net.minecraft.core.Direction
 import net.minecraft.world.level.material.Fluid
 import net.minecraft.world.level.material.Fluids
@@ -24,26 +26,68 @@ internal data class ShipPocketState(
     // Flood/suppression gameplay domain. Can include promoted leaky-pocket cells.
     var simulationDomain: BitSet = BitSet(),
     var interior: BitSet = BitSet(),
+    // Open cells whose world-fluid coverage has to be sampled; derived lazily from the masks (see hullSamplingFrontier).
+    var hullSamplingFrontier: BitSet? = null,
+    // Solid cells bounding the volume from the outside, sampled alongside the frontier (see hullSamplingShell).
+    var hullSamplingShell: BitSet? = null,
+    // Cardinality of `open`, -1 until derived (see openCellCount).
+    var openCellCount: Int = -1,
+    // Height-sorted cells of the interior components for the pressure solve (see pocketHeightOrder).
+    var pocketHeightOrder: PocketHeightOrder? = null,
     var floodFluid: Fluid = Fluids.WATER,
     var flooded: BitSet = BitSet(),
     var materializedWater: BitSet = BitSet(),
+    // Bumped on every `materializedWater` change (see setMaterializedWater) and every geometry mask change; cheap
+    // stand-ins for hashing the masks in the water solve input key.
+    var materializedRevision: Long = 0,
+    var geometryMaskRevision: Long = 0,
     var waterReachable: BitSet = BitSet(),
     var unreachableVoid: BitSet = BitSet(),
-    // Face conductance masks (shape-aware connectivity), stored on positive axes only.
-    var faceCondXP: ShortArray = ShortArray(0),
-    var faceCondYP: ShortArray = ShortArray(0),
-    var faceCondZP: ShortArray = ShortArray(0),
+    // Face conductance masks (shape-aware connectivity), stored on positive axes only. Values are unsigned and at most
+    // 64 (one per face sample), so a byte per face is enough.
+    var faceCondXP: ByteArray = ByteArray(0),
+    var faceCondYP: ByteArray = ByteArray(0),
+    var faceCondZP: ByteArray = ByteArray(0),
     var shapeTemplatePalette: List<ShapeCellTemplate> = emptyList(),
     var templateIndexByVoxel: IntArray = IntArray(0),
-    var voxelExteriorComponentMask: LongArray = LongArray(0),
-    var voxelInteriorComponentMask: LongArray = LongArray(0),
-    var voxelSimulationComponentMask: LongArray = LongArray(0),
+    var voxelExteriorComponentMask: SparseVoxelLongArray = SparseVoxelLongArray(0),
+    var voxelInteriorComponentMask: SparseVoxelLongArray = SparseVoxelLongArray(0),
+    var voxelSimulationComponentMask: SparseVoxelLongArray = SparseVoxelLongArray(0),
     var componentGraphDegraded: Boolean = false,
     var buoyancy: BuoyancyMetrics = BuoyancyMetrics(),
+    // Per-component profiles of the applied water solve; buoyancy follows the flood planes through them every tick.
+    var buoyancyProfiles: BuoyancyComponentProfiles? = null,
+    // Cardinality of `simulationDomain`, valid while `simulationCellCountDomain` is that same BitSet instance.
+    var simulationCellCount: Int = 0,
+    var simulationCellCountDomain: BitSet? = null,
     var floodPlaneByComponent: Int2DoubleOpenHashMap = Int2DoubleOpenHashMap(),
+    // Height-sorted target cells of the components being flooded; dropped when a filled target cell empties again.
+    var floodFillOrder: FloodFillOrder? = null,
     var geometryRevision: Long = 0,
     var geometrySignature: Long = 0L,
     var geometryInvalidationStamp: Long = 0,
+    // Shipyard positions whose shape changed since the last captured geometry; lets rebuilds patch only those voxels.
+    // `geometryDirtyRegionUnknown` forces a full rebuild (client chunk packets, overflow, restored state).
+    var pendingGeometryDirtyPositions: LongOpenHashSet = LongOpenHashSet(),
+    var inFlightGeometryDirtyPositions: LongOpenHashSet = LongOpenHashSet(),
+    var geometryDirtyRegionUnknown: Boolean = true,
+    var inFlightGeometryDirtyRegionUnknown: Boolean = false,
+    var geometryIncrementalBase: GeometryIncrementalBase? = null,
+    var geometryIncrementalBaseTick: Long = Long.MIN_VALUE,
+    // Current burst of shape edits (markShipDirty calls) since the last submitted geometry job; drives the submit
+    // debounce so bulk edits collapse into one rebuild instead of a string of stale ones.
+    var geometryDirtyBurstMarks: Int = 0,
+    var geometryDirtyBurstStartTick: Long = Long.MIN_VALUE,
+    // Bounds change waiting for its rebuild: when it was first seen, when the target bounds last moved, and a key of
+    // those target bounds; drives the bounds-change coalescing window (see shouldDeferBoundsChange).
+    var geometryBoundsChangeStartTick: Long = Long.MIN_VALUE,
+    var geometryBoundsChangeLastTick: Long = Long.MIN_VALUE,
+    var geometryBoundsChangeTarget: Long = 0L,
+    var lastGeometryDirtyTick: Long = Long.MIN_VALUE,
+    // Shape cache generation the current geometry was captured with; a resource reload forces a full rebuild.
+    var shapeCacheEpoch: Long = ShipWaterPocketShapeCache.epoch(),
+    // Shape cache generation of the last submitted geometry job; the debounce never holds back a post-reload rebuild.
+    var submittedShapeCacheEpoch: Long = ShipWaterPocketShapeCache.epoch(),
     var pendingGeometryFuture: CompletableFuture<GeometryAsyncResult>? = null,
     var requestedGeometryGeneration: Long = 0,
     var appliedGeometryGeneration: Long = 0,
@@ -57,26 +101,46 @@ internal data class ShipPocketState(
     var lastWaterSolveApplyTick: Long = Long.MIN_VALUE,
     var consecutiveWaterSolveDiscards: Int = 0,
     var waterSolveJobInFlight: Boolean = false,
+    // Main-thread sliced solve started when async solves starve; runs a slice per tick until it completes.
+    var slicedWaterSolveJob: ShipPocketSlicedJob<WaterSolveResult>? = null,
     var waterSolveLastComputeNanos: Long = 0,
     var waterSolveComputeCount: Long = 0,
+    // Input key (see computeWaterSolveInputKey) and capture tick of the applied water solve; while the key matches,
+    // the applied result is reused instead of solving again.
+    var appliedWaterSolveInputKey: Long = 0L,
+    var appliedWaterSolveInputHead: Long = 0L,
+    var waterSolveMemoCaptureTick: Long = Long.MIN_VALUE,
     var requestedCullMaskGeneration: Long = 0,
     var appliedCullMaskGeneration: Long = 0,
     var queuedFloodAdds: BitSet = BitSet(),
     var queuedFloodRemoves: BitSet = BitSet(),
     var nextQueuedAddIdx: Int = 0,
     var nextQueuedRemoveIdx: Int = 0,
+    // Flood writes still queued after the last flush; feeds water-solve scheduling priority.
+    var floodQueueBacklog: Int = 0,
     var dirty: Boolean = true,
+    // Dry-ship fast path: no fluid anywhere near the ship, so only geometry invalidation is tracked (see tickDrySleep).
+    var sleepingDry: Boolean = false,
     var persistDirty: Boolean = true,
     var restoredFromPersistence: Boolean = false,
     var awaitingGeometryValidation: Boolean = false,
     var lastPersistFlushTick: Long = Long.MIN_VALUE,
     var lastFloodUpdateTick: Long = Long.MIN_VALUE,
     var lastWaterReachableUpdateTick: Long = Long.MIN_VALUE,
-    var lastMaterializedResyncTick: Long = Long.MIN_VALUE,
+    // Cells whose fluid changed outside our own writes since the last tick (fed by the chunk setBlockState hook);
+    // re-read incrementally. Overflow forces a full materialized-water resync instead.
+    var materializedChangeLog: IntArrayList = IntArrayList(),
+    var materializedChangeLogOverflow: Boolean = false,
+    // Next cell of the budgeted materialized-water consistency sweep.
+    var materializedSweepCursor: Int = 0,
+    // Open cells a full materialized-water resync still has to re-read; the sweep runs at the resync budget until 0.
+    var materializedResyncCellsLeft: Int = 0,
     // Ship "gravity" for shipyard fluids is discrete (one of the 6 directions). When it changes due to ship
     // rotation, vanilla fluids won't tick automatically; schedule a budgeted wave of fluid ticks so they resettle.
     var lastGravityDownDir: Direction? = null,
     var pendingGravityResettleNextIdx: Int = -1,
+    // The resettle wakes frontier fluid first; this flips once that pass is through (see tickGravityResettle).
+    var gravityResettleInteriorPass: Boolean = false,
 )
 
 internal data class BuoyancyMetrics(
@@ -10,16 +10,40 @@ internal enum class PointVoidClass {
     INTERIOR_VOID,
 }
 
-internal data class PointVoidClassification(
-    val kind: PointVoidClass,
-    val voxelIndex: Int = -1,
-    val voxelX: Int = 0,
-    val voxelY: Int = 0,
-    val voxelZ: Int = 0,
-    val localComponent: Int = -1,
-)
+private val POINT_VOID_CLASSES = PointVoidClass.entries
+
+/**
+ * Classification of a ship-space point. Packed into a Long (bits 0-1 kind, 2-8 local component + 1, 9-40 voxel index
+ * + 1) so that classifying, which fluid-override lookups do for every queried position, never allocates. The voxel's
+ * shipyard position is `posFromIndex(state, voxelIndex, ...)` or the `out` position of [classifyShipPoint].
+ */
+@JvmInline
+internal value class PointVoidClassification(val packed: Long) {
+    val kind: PointVoidClass
+        get() = POINT_VOID_CLASSES[(packed and 3L).toInt()]
+
+    val voxelIndex: Int
+        get() = ((packed ushr 9) and 0xFFFFFFFFL).toInt() - 1
+
+    val localComponent: Int
+        get() = ((packed ushr 2) and 0x7FL).toInt() - 1
+
+    companion object {
+        val OUT_OF_BOUNDS = of(PointVoidClass.OUT_OF_BOUNDS)
+
+        fun of(kind: PointVoidClass, voxelIndex: Int = -1, localComponent: Int = -1): PointVoidClassification {
+            return PointVoidClassification(
+                kind.ordinal.toLong() or
+                    (((localComponent + 1).toLong() and 0x7FL) shl 2) or
+                    (((voxelIndex + 1).toLong() and 0xFFFFFFFFL) shl 9),
+            )
+        }
+    }
+}
 
 private const val POINT_CLASSIFY_EPS = 1e-5
+// Neighbour offsets tried by classifyShipPointWithEpsilon, in the original (dx, dy, dz) nesting order.
+private val POINT_CLASSIFY_EPS_OFFSETS = doubleArrayOf(-POINT_CLASSIFY_EPS, 0.0, POINT_CLASSIFY_EPS)
 
 internal fun indexOf(state: ShipPocketState, lx: Int, ly: Int, lz: Int): Int =
     lx + state.sizeX * (ly + state.sizeY * lz)
@@ -41,10 +65,10 @@ internal fun isBoundaryShellIndex(state: ShipPocketState, idx: Int): Boolean {
 internal fun shouldPreventExteriorWaterlogging(state: ShipPocketState, idx: Int): Boolean {
     val volume = state.sizeX * state.sizeY * state.sizeZ
     if (idx !in 0 until volume) return false
-    if (!state.open.get(idx)) return false
+    if (!isOpenVoxel(state, idx)) return false
     // Exterior waterlogging must never come from world-fluid contact. Only the simulated domain is allowed to
     // waterlog/drain as part of flooding/draining (or manual placement).
-    return !state.simulationDomain.get(idx)
+    return !isSimulationVoxel(state, idx)
 }
 
 internal fun simulationComponentMaskAt(state: ShipPocketState, idx: Int): Long {
@@ -56,7 +80,7 @@ internal fun simulationComponentMaskAt(state: ShipPocketState, idx: Int): Long {
 
     val volume = state.sizeX * state.sizeY * state.sizeZ
     if (idx !in 0 until volume) return 0L
-    if (!state.simulationDomain.get(idx)) return 0L
+    if (!isSimulationVoxel(state, idx)) return 0L
 
     val templateIndices = state.templateIndexByVoxel
     val templates = state.shapeTemplatePalette
@@ -76,13 +100,13 @@ internal fun isClassificationInSimulationDomain(
 ): Boolean {
     val idx = classification.voxelIndex
     if (idx < 0) return false
-    if (!state.open.get(idx)) return false
+    if (!isOpenVoxel(state, idx)) return false
 
     if (classification.localComponent >= 0) {
         val simMask = simulationComponentMaskAt(state, idx)
         return ((simMask ushr classification.localComponent) and 1L) != 0L
     }
-    return state.simulationDomain.get(idx)
+    return isSimulationVoxel(state, idx)
 }
 
 internal fun posFromIndex(state: ShipPocketState, idx: Int, out: BlockPos.MutableBlockPos): BlockPos.MutableBlockPos {
@@ -100,12 +124,12 @@ internal fun edgeConductance(state: ShipPocketState, idx: Int, lx: Int, ly: Int,
     val sizeX = state.sizeX
     val sizeY = state.sizeY
     return when (dirCode) {
-        0 -> if (lx > 0) state.faceCondXP[idx - 1].toInt() and 0xFFFF else 0
-        1 -> if (lx + 1 < sizeX) state.faceCondXP[idx].toInt() and 0xFFFF else 0
-        2 -> if (ly > 0) state.faceCondYP[idx - sizeX].toInt() and 0xFFFF else 0
-        3 -> if (ly + 1 < sizeY) state.faceCondYP[idx].toInt() and 0xFFFF else 0
-        4 -> if (lz > 0) state.faceCondZP[idx - sizeX * sizeY].toInt() and 0xFFFF else 0
-        else -> if (lz + 1 < state.sizeZ) state.faceCondZP[idx].toInt() and 0xFFFF else 0
+        0 -> if (lx > 0) state.faceCondXP[idx - 1].toInt() and 0xFF else 0
+        1 -> if (lx + 1 < sizeX) state.faceCondXP[idx].toInt() and 0xFF else 0
+        2 -> if (ly > 0) state.faceCondYP[idx - sizeX].toInt() and 0xFF else 0
+        3 -> if (ly + 1 < sizeY) state.faceCondYP[idx].toInt() and 0xFF else 0
+        4 -> if (lz > 0) state.faceCondZP[idx - sizeX * sizeY].toInt() and 0xFF else 0
+        else -> if (lz + 1 < state.sizeZ) state.faceCondZP[idx].toInt() and 0xFF else 0
     }
 }
 
@@ -119,7 +143,7 @@ internal fun computeFilteredFaceConductance(
 ): Int {
     val volume = state.sizeX * state.sizeY * state.sizeZ
     if (idxA !in 0 until volume || idxB !in 0 until volume) return 0
-    if (!state.open.get(idxA) || !state.open.get(idxB)) return 0
+    if (!isOpenVoxel(state, idxA) || !isOpenVoxel(state, idxB)) return 0
 
     val templateIndices = state.templateIndexByVoxel
     val templates = state.shapeTemplatePalette
@@ -161,7 +185,7 @@ internal fun classifyShipPoint(
     val ly = voxelY - state.minY
     val lz = voxelZ - state.minZ
     if (lx !in 0 until state.sizeX || ly !in 0 until state.sizeY || lz !in 0 until state.sizeZ) {
-        return PointVoidClassification(kind = PointVoidClass.OUT_OF_BOUNDS)
+        return PointVoidClassification.OUT_OF_BOUNDS
     }
 
     out?.set(voxelX, voxelY, voxelZ)
@@ -174,12 +198,9 @@ internal fun classifyShipPoint(
         if (templateIdx in templates.indices) {
             val template = templates[templateIdx]
             if (template.componentCount <= 0) {
-                return PointVoidClassification(
+                return PointVoidClassification.of(
                     kind = PointVoidClass.SOLID,
                     voxelIndex = idx,
-                    voxelX = voxelX,
-                    voxelY = voxelY,
-                    voxelZ = voxelZ,
                 )
             }
 
@@ -194,69 +215,55 @@ internal fun classifyShipPoint(
 
             val component = template.componentBySubcell[subIdx].toInt()
             if (component < 0) {
-                return PointVoidClassification(
+                return PointVoidClassification.of(
                     kind = PointVoidClass.SOLID,
                     voxelIndex = idx,
-                    voxelX = voxelX,
-                    voxelY = voxelY,
-                    voxelZ = voxelZ,
                 )
             }
 
             val interiorMask = if (idx < state.voxelInteriorComponentMask.size) state.voxelInteriorComponentMask[idx] else 0L
             if (((interiorMask ushr component) and 1L) != 0L) {
-                return PointVoidClassification(
+                return PointVoidClassification.of(
                     kind = PointVoidClass.INTERIOR_VOID,
                     voxelIndex = idx,
-                    voxelX = voxelX,
-                    voxelY = voxelY,
-                    voxelZ = voxelZ,
                     localComponent = component,
                 )
             }
 
             val exteriorMask = if (idx < state.voxelExteriorComponentMask.size) state.voxelExteriorComponentMask[idx] else 0L
             if (((exteriorMask ushr component) and 1L) != 0L) {
-                return PointVoidClassification(
+                return PointVoidClassification.of(
                     kind = PointVoidClass.EXTERIOR_VOID,
                     voxelIndex = idx,
-                    voxelX = voxelX,
-                    voxelY = voxelY,
-                    voxelZ = voxelZ,
                     localComponent = component,
                 )
             }
 
-            if (state.open.get(idx)) {
-                val fallbackKind = if (state.strictInterior.get(idx)) PointVoidClass.INTERIOR_VOID else PointVoidClass.EXTERIOR_VOID
-                return PointVoidClassification(
+            if (isOpenVoxel(state, idx)) {
+                val fallbackKind = if (isStrictInteriorVoxel(state, idx)) {
+                    PointVoidClass.INTERIOR_VOID
+                } else {
+                    PointVoidClass.EXTERIOR_VOID
+                }
+                return PointVoidClassification.of(
                     kind = fallbackKind,
                     voxelIndex = idx,
-                    voxelX = voxelX,
-                    voxelY = voxelY,
-                    voxelZ = voxelZ,
                     localComponent = component,
                 )
             }
         }
     }
 
-    if (!state.open.get(idx)) {
-        return PointVoidClassification(
+    if (!isOpenVoxel(state, idx)) {
+        return PointVoidClassification.of(
             kind = PointVoidClass.SOLID,
             voxelIndex = idx,
-            voxelX = voxelX,
-            voxelY = voxelY,
-            voxelZ = voxelZ,
         )
     }
 
-    return PointVoidClassification(
-        kind = if (state.strictInterior.get(idx)) PointVoidClass.INTERIOR_VOID else PointVoidClass.EXTERIOR_VOID,
+    return PointVoidClassification.of(
+        kind = if (isStrictInteriorVoxel(state, idx)) PointVoidClass.INTERIOR_VOID else PointVoidClass.EXTERIOR_VOID,
         voxelIndex = idx,
-        voxelX = voxelX,
-        voxelY = voxelY,
-        voxelZ = voxelZ,
         localComponent = 0,
     )
 }
@@ -273,23 +280,27 @@ internal fun classifyShipPointWithEpsilon(
         return base
     }
 
-    var bestExterior: PointVoidClassification? = null
-    val eps = POINT_CLASSIFY_EPS
-    for (dx in doubleArrayOf(-eps, 0.0, eps)) {
-        for (dy in doubleArrayOf(-eps, 0.0, eps)) {
-            for (dz in doubleArrayOf(-eps, 0.0, eps)) {
+    // Not nullable: a nullable value class would be boxed.
+    var bestExterior = base
+    var foundExterior = false
+    for (dx in POINT_CLASSIFY_EPS_OFFSETS) {
+        for (dy in POINT_CLASSIFY_EPS_OFFSETS) {
+            for (dz in POINT_CLASSIFY_EPS_OFFSETS) {
                 if (dx == 0.0 && dy == 0.0 && dz == 0.0) continue
                 val candidate = classifyShipPoint(state, x + dx, y + dy, z + dz, out)
                 when (candidate.kind) {
                     PointVoidClass.INTERIOR_VOID -> return candidate
-                    PointVoidClass.EXTERIOR_VOID -> if (bestExterior == null) bestExterior = candidate
+                    PointVoidClass.EXTERIOR_VOID -> if (!foundExterior) {
+                        bestExterior = candidate
+                        foundExterior = true
+                    }
                     else -> Unit
                 }
             }
         }
     }
 
-    return bestExterior ?: base
+    return bestExterior
 }
 
 internal fun isOpenAtShipPoint(
@@ -309,7 +320,7 @@ internal fun isInterior(state: ShipPocketState, shipPos: BlockPos): Boolean {
     val lz = shipPos.z - state.minZ
     if (lx !in 0 until state.sizeX || ly !in 0 until state.sizeY || lz !in 0 until state.sizeZ) return false
     val idx = indexOf(state, lx, ly, lz)
-    return state.strictInterior.get(idx)
+    return isStrictInteriorVoxel(state, idx)
 }
 
 internal fun isOpen(state: ShipPocketState, shipPos: BlockPos): Boolean {
@@ -318,7 +329,7 @@ internal fun isOpen(state: ShipPocketState, shipPos: BlockPos): Boolean {
     val lz = shipPos.z - state.minZ
     if (lx !in 0 until state.sizeX || ly !in 0 until state.sizeY || lz !in 0 until state.sizeZ) return false
     val idx = indexOf(state, lx, ly, lz)
-    return state.open.get(idx)
+    return isOpenVoxel(state, idx)
 }
 
 internal fun isAirPocket(state: ShipPocketState, shipPos: BlockPos): Boolean {
@@ -336,5 +347,5 @@ internal fun isWorldFluidSuppressionCell(state: ShipPocketState, shipPos: BlockP
     val lz = shipPos.z - state.minZ
     if (lx !in 0 until state.sizeX || ly !in 0 until state.sizeY || lz !in 0 until state.sizeZ) return false
     val idx = indexOf(state, lx, ly, lz)
-    return state.simulationDomain.get(idx) && !state.materializedWater.get(idx)
+    return isSimulationVoxel(state, idx) && !state.materializedWater.get(idx)
 }
@@ -0,0 +1,32 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+/**
+ * Drops everything derived from the geometry masks of [state]; call whenever any of them is replaced or edited.
+ */
+internal fun onGeometryMasksChanged(state: ShipPocketState) {
+    state.geometryMaskRevision++
+    state.hullSamplingFrontier = null
+    state.hullSamplingShell = null
+    state.openCellCount = -1
+    state.pocketHeightOrder = null
+}
+
+/** Number of open cells; cached on the state until the geometry masks change. */
+internal fun openCellCount(state: ShipPocketState): Int {
+    if (state.openCellCount < 0) state.openCellCount = state.open.cardinality()
+    return state.openCellCount
+}
+
+/** Height order of the interior components; cached on the state until the geometry masks change. */
+internal fun pocketHeightOrder(state: ShipPocketState): PocketHeightOrder =
+    state.pocketHeightOrder ?: PocketHeightOrder(state.sizeX, state.sizeY).also { state.pocketHeightOrder = it }
+
+internal fun isOpenVoxel(state: ShipPocketState, idx: Int): Boolean = idx >= 0 && state.open.get(idx)
+
+internal fun isStrictInteriorVoxel(state: ShipPocketState, idx: Int): Boolean =
+    idx >= 0 && state.strictInterior.get(idx)
+
+internal fun isSimulationVoxel(state: ShipPocketState, idx: Int): Boolean =
+    idx >= 0 && state.simulationDomain.get(idx)
+
+internal fun isOutsideVoidVoxel(state: ShipPocketState, idx: Int): Boolean = idx >= 0 && state.outsideVoid.get(idx)
@@ -0,0 +1,366 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import net.minecraft.core.BlockPos
+import net.minecraft.core.SectionPos
+import net.minecraft.world.level.Level
+import net.minecraft.world.level.material.FlowingFluid
+import net.minecraft.world.level.material.Fluid
+import java.lang.ref.WeakReference
+
+private const val SECTION_VOLUME = 16 * 16 * 16
+
+// Per-block fluid ids inside a cached section: 0 = not sampled yet, 1 = no fluid, otherwise palette index + 2.
+private const val FLUID_ID_UNSAMPLED: Byte = 0
+private const val FLUID_ID_EMPTY: Byte = 1
+private const val FLUID_ID_PALETTE_OFFSET = 2
+private const val MAX_FLUID_PALETTE_SIZE = 250
+private const val HEIGHT_FULL_EPS = 1e-6
+
+// Section fluid presence memo values; the map's default return value (0) means not checked yet.
+private const val SECTION_FLUID_UNKNOWN: Byte = 0
+private const val SECTION_FLUID_NONE: Byte = 1
+private const val SECTION_FLUID_MAYBE: Byte = 2
+private const val SECTION_FLUID_UNLOADED: Byte = 3
+
+// Memo value of [WorldFluidSampleCache.sectionFullOf] for sections not entirely made of one fluid's sources.
+private val SECTION_NOT_FULL = Any()
+
+private fun canonicalFloodSource(fluid: Fluid): Fluid {
+    return if (fluid is FlowingFluid) fluid.source else fluid
+}
+
+private class WorldFluidSection {
+    val fluidIds = ByteArray(SECTION_VOLUME)
+    val heights = FloatArray(SECTION_VOLUME)
+}
+
+// One contiguous run of a fluid in a world column: every start Y in [bottomY, topY] scans up to the same surface.
+private class ColumnSurfaceRun {
+    var fluid: Fluid? = null
+    var bottomY = 0
+    var topY = 0
+    var surfaceY = 0.0
+}
+
+private fun columnKey(x: Int, z: Int): Long = (x.toLong() and 0xFFFFFFFFL) or (z.toLong() shl 32)
+
+/**
+ * World fluid samples (canonical fluid and surface height per block) for one level during one game tick.
+ *
+ * Coverage sampling takes nine world samples per open ship cell and neighbouring cells share most of their corners,
+ * so the same world blocks are read many times per ship, and again for every other ship in the same water. Blocks are
+ * sampled lazily on first use and grouped by chunk section; the whole cache is dropped as soon as it is used for a
+ * different level or tick, so world edits are picked up on the next tick at the latest.
+ *
+ * Samples are taken with fluid overrides bypassed, i.e. this only ever describes the real world fluid. Instances are
+ * confined to one thread; use [forLevel].
+ */
+internal class WorldFluidSampleCache private constructor() {
+    private var levelRef: WeakReference<Level>? = null
+    private var tick = Long.MIN_VALUE
+    private val sections = Long2ObjectOpenHashMap<WorldFluidSection>()
+    private val freeSections = ArrayList<WorldFluidSection>()
+    private val palette = ArrayList<Fluid>()
+    private val pos = BlockPos.MutableBlockPos()
+
+    private var lastSectionKey = Long.MIN_VALUE
+    private var lastSection: WorldFluidSection? = null
+
+    private val columnRuns = Long2ObjectOpenHashMap<ColumnSurfaceRun>()
+    private val sectionFluidPresence = Long2ByteOpenHashMap()
+    private val sectionFullFluid = Long2ObjectOpenHashMap<Any>()
+    private val freeColumnRuns = ArrayList<ColumnSurfaceRun>()
+
+    var sampledBlocks: Long = 0
+        private set
+    var cachedReads: Long = 0
+        private set
+    var columnSurfaceHits: Long = 0
+        private set
+    var fullSectionSkips: Long = 0
+        private set
+
+    /**
+     * Top block Y of the run found by the latest [exteriorSurfaceYAt] walk that crossed at least one full section, i.e.
+     * the top of some deep open body of water; [Int.MIN_VALUE] when that walk crossed none or ran out of steps.
+     */
+    var lastOpenWaterTopY: Int = Int.MIN_VALUE
+        private set
+
+    private fun bind(level: Level) {
+        val gameTime = level.gameTime
+        if (levelRef?.get() === level && tick == gameTime) return
+        if (levelRef?.get() !== level) levelRef = WeakReference(level)
+        tick = gameTime
+        for (section in sections.values) {
+            section.fluidIds.fill(FLUID_ID_UNSAMPLED)
+            freeSections.add(section)
+        }
+        sections.clear()
+        lastSectionKey = Long.MIN_VALUE
+        lastSection = null
+        for (run in columnRuns.values) {
+            run.fluid = null
+            freeColumnRuns.add(run)
+        }
+        columnRuns.clear()
+        sectionFluidPresence.clear()
+        sectionFullFluid.clear()
+    }
+
+    private fun sectionFor(x: Int, y: Int, z: Int): WorldFluidSection {
+        val key = SectionPos.asLong(x shr 4, y shr 4, z shr 4)
+        if (key == lastSectionKey) return lastSection!!
+        val section = sections.get(key) ?: run {
+            val created = if (freeSections.isEmpty()) WorldFluidSection() else freeSections.removeAt(freeSections.size - 1)
+            sections.put(key, created)
+            created
+        }
+        lastSectionKey = key
+        lastSection = section
+        return section
+    }
+
+    private fun sectionIndex(x: Int, y: Int, z: Int): Int = (x and 15) or ((z and 15) shl 4) or ((y and 15) shl 8)
+
+    private fun fluidIdAt(level: Level, x: Int, y: Int, z: Int, section: WorldFluidSection, idx: Int): Int {
+        val cached = section.fluidIds[idx]
+        if (cached != FLUID_ID_UNSAMPLED) {
+            cachedReads++
+            return cached.toInt()
+        }
+
+        sampledBlocks++
+        pos.set(x, y, z)
+        val fluidState = level.getFluidState(pos)
+        val id: Int
+        if (fluidState.isEmpty) {
+            id = FLUID_ID_EMPTY.toInt()
+        } else {
+            val canonical = canonicalFloodSource(fluidState.type)
+            var paletteIdx = palette.indexOf(canonical)
+            if (paletteIdx < 0) {
+                if (palette.size >= MAX_FLUID_PALETTE_SIZE) {
+                    // Absurd fluid registries: leave the block unsampled so callers keep reading the world.
+                    return FLUID_ID_UNSAMPLED.toInt()
+                }
+                palette.add(canonical)
+                paletteIdx = palette.size - 1
+            }
+            id = paletteIdx + FLUID_ID_PALETTE_OFFSET
+            section.heights[idx] = if (fluidState.isSource) 1.0f else fluidState.getHeight(level, pos)
+        }
+        section.fluidIds[idx] = id.toByte()
+        return id
+    }
+
+    /**
+     * Canonical (source) fluid occupying world block ([x], [y], [z]), or null if it holds no fluid. When non-null,
+     * [fluidHeightAt] returns its surface height within the block.
+     */
+    fun canonicalFluidAt(level: Level, x: Int, y: Int, z: Int): Fluid? {
+        bind(level)
+        val section = sectionFor(x, y, z)
+        val id = fluidIdAt(level, x, y, z, section, sectionIndex(x, y, z))
+        return when (id) {
+            FLUID_ID_EMPTY.toInt() -> null
+            FLUID_ID_UNSAMPLED.toInt() -> {
+                pos.set(x, y, z)
+                val fluidState = level.getFluidState(pos)
+                if (fluidState.isEmpty) null else canonicalFloodSource(fluidState.type)
+            }
+            else -> palette[id - FLUID_ID_PALETTE_OFFSET]
+        }
+    }
+
+    /** Fluid surface height in [0, 1] inside world block ([x], [y], [z]); 1 for sources and full flowing blocks. */
+    fun fluidHeightAt(level: Level, x: Int, y: Int, z: Int): Double {
+        bind(level)
+        val section = sectionFor(x, y, z)
+        val idx = sectionIndex(x, y, z)
+        return when (fluidIdAt(level, x, y, z, section, idx)) {
+            FLUID_ID_EMPTY.toInt() -> 0.0
+            FLUID_ID_UNSAMPLED.toInt() -> {
+                pos.set(x, y, z)
+                val fluidState = level.getFluidState(pos)
+                if (fluidState.isSource) 1.0 else fluidState.getHeight(level, pos).toDouble()
+            }
+            else -> section.heights[idx].toDouble()
+        }
+    }
+
+    /**
+     * Surface Y of the [canonical] fluid run that contains world block ([x], [y], [z]), found by walking up while the
+     * column holds full blocks of that fluid; null if the block does not hold [canonical] at all.
+     *
+     * Runs are remembered per world column, so every other start inside the same run (the rest of a ship's hull over
+     * that column, other ships in the same water) is answered without walking again. The walk crosses a whole chunk
+     * section in one step when its palette holds nothing but [canonical] sources, so deep open water costs a few
+     * palette checks rather than a read per block; any other section is walked block by block.
+     *
+     * [seededTopFluidY] is the known top fluid block of the dimension's sea. It only bounds the walk: a start deeper
+     * than [maxSteps] below it may walk up to it, so deep starts still reach the real surface. The surface is always
+     * the one the walk found, never the seed itself. A walk that runs out of steps without reaching a surface returns
+     * `max(lastSurface, capSurfaceY)`.
+     */
+    fun exteriorSurfaceYAt(
+        level: Level,
+        x: Int,
+        y: Int,
+        z: Int,
+        canonical: Fluid,
+        maxSteps: Int,
+        seededTopFluidY: Int,
+        capSurfaceY: Double,
+    ): Double? {
+        lastOpenWaterTopY = Int.MIN_VALUE
+        if (canonicalFluidAt(level, x, y, z) !== canonical) return null
+
+        val key = columnKey(x, z)
+        val cachedRun = columnRuns.get(key)
+        if (cachedRun != null && cachedRun.fluid === canonical && y >= cachedRun.bottomY && y <= cachedRun.topY) {
+            columnSurfaceHits++
+            return cachedRun.surfaceY
+        }
+
+        val stepLimit = maxOf(maxSteps, minOf(seededTopFluidY, level.maxBuildHeight) - y + 1)
+        var scanY = y
+        var runTopY = y
+        var steps = 0
+        var crossedFullSection = false
+        var lastSurface = Double.NEGATIVE_INFINITY
+        while (steps < stepLimit && scanY < level.maxBuildHeight) {
+            if ((scanY and 15) == 0 && steps + 16 <= stepLimit &&
+                sectionFullOf(level, x shr 4, scanY shr 4, z shr 4) === canonical
+            ) {
+                // Every block of the section is a full [canonical] block, so the run goes on through all of it.
+                fullSectionSkips++
+                crossedFullSection = true
+                runTopY = scanY + 15
+                lastSurface = scanY + 16.0
+                scanY += 16
+                steps += 16
+                continue
+            }
+            if (canonicalFluidAt(level, x, scanY, z) !== canonical) break
+
+            val h = fluidHeightAt(level, x, scanY, z)
+            lastSurface = scanY.toDouble() + h
+            runTopY = scanY
+            if (h < 1.0 - HEIGHT_FULL_EPS) break
+
+            scanY++
+            steps++
+        }
+
+        if (steps >= stepLimit) {
+            // The capped answer depends on where the walk started, so it cannot stand in for the rest of the run.
+            return maxOf(lastSurface, capSurfaceY)
+        }
+        rememberColumnRun(key, canonical, y, runTopY, lastSurface)
+        if (crossedFullSection) lastOpenWaterTopY = runTopY
+        return lastSurface
+    }
+
+    private fun rememberColumnRun(key: Long, fluid: Fluid, bottomY: Int, topY: Int, surfaceY: Double) {
+        val run = columnRuns.get(key) ?: run {
+            val created =
+                if (freeColumnRuns.isEmpty()) ColumnSurfaceRun() else freeColumnRuns.removeAt(freeColumnRuns.size - 1)
+            columnRuns.put(key, created)
+            created
+        }
+        run.fluid = fluid
+        run.bottomY = bottomY
+        run.topY = topY
+        run.surfaceY = surfaceY
+    }
+
+    /**
+     * Whether any chunk section overlapping the block box [minX]..[maxX] x [minY]..[maxY] x [minZ]..[maxZ] (inclusive)
+     * may contain a fluid, judged from the section block palettes alone: false means no block in the box holds fluid,
+     * true may be a false positive (a palette entry no longer in use). Sections of unloaded chunks count as
+     * [unloadedMayHoldFluid]. Never loads chunks.
+     */
+    fun regionMayHoldFluid(
+        level: Level,
+        minX: Int,
+        minY: Int,
+        minZ: Int,
+        maxX: Int,
+        maxY: Int,
+        maxZ: Int,
+        unloadedMayHoldFluid: Boolean,
+    ): Boolean {
+        bind(level)
+        val minSY = maxOf(minY shr 4, level.minSection)
+        val maxSY = minOf(maxY shr 4, level.maxSection - 1)
+        for (sx in (minX shr 4)..(maxX shr 4)) {
+            for (sz in (minZ shr 4)..(maxZ shr 4)) {
+                for (sy in minSY..maxSY) {
+                    when (sectionFluidPresence(level, sx, sy, sz)) {
+                        SECTION_FLUID_MAYBE -> return true
+                        SECTION_FLUID_UNLOADED -> if (unloadedMayHoldFluid) return true
+                    }
+                }
+            }
+        }
+        return false
+    }
+
+    /**
+     * Canonical fluid whose sources fill every block of the section, judged from its block palette; null when the
+     * palette holds anything else (or may, e.g. stale entries) or the chunk is not loaded. Never loads chunks.
+     */
+    private fun sectionFullOf(level: Level, sx: Int, sy: Int, sz: Int): Fluid? {
+        val key = SectionPos.asLong(sx, sy, sz)
+        val cached = sectionFullFluid.get(key)
+        if (cached != null) return cached as? Fluid
+
+        var full: Fluid? = null
+        val chunk = level.chunkSource.getChunkNow(sx, sz)
+        if (chunk != null && sy >= level.minSection && sy < level.maxSection) {
+            val section = chunk.getSection(chunk.getSectionIndexFromSectionY(sy))
+            val sample = section.getBlockState(0, 0, 0).fluidState
+            if (!section.hasOnlyAir() && sample.isSource) {
+                val fluid = canonicalFloodSource(sample.type)
+                val mixed = section.states.maybeHas { state ->
+                    val fluidState = state.fluidState
+                    !fluidState.isSource || canonicalFloodSource(fluidState.type) !== fluid
+                }
+                if (!mixed) full = fluid
+            }
+        }
+        sectionFullFluid.put(key, full ?: SECTION_NOT_FULL)
+        return full
+    }
+
+    private fun sectionFluidPresence(level: Level, sx: Int, sy: Int, sz: Int): Byte {
+        val key = SectionPos.asLong(sx, sy, sz)
+        val cached = sectionFluidPresence.get(key)
+        if (cached != SECTION_FLUID_UNKNOWN) return cached
+
+        val chunk = level.chunkSource.getChunkNow(sx, sz)
+        val presence = if (chunk == null) {
+            SECTION_FLUID_UNLOADED
+        } else {
+            val section = chunk.getSection(chunk.getSectionIndexFromSectionY(sy))
+            if (section.hasOnlyAir() || !section.states.maybeHas { !it.fluidState.isEmpty }) {
+                SECTION_FLUID_NONE
+            } else {
+                SECTION_FLUID_MAYBE
+            }
+        }
+        sectionFluidPresence.put(key, presence)
+        return presence
+    }
+
+    companion object {
+        private val perThread: ThreadLocal<WorldFluidSampleCache> = ThreadLocal.withInitial { WorldFluidSampleCache() }
+
+        /** The calling thread's cache, reset if it last served a different level or tick. */
+        @JvmStatic
+        fun forLevel(level: Level): WorldFluidSampleCache = perThread.get().also { it.bind(level) }
+    }
+}
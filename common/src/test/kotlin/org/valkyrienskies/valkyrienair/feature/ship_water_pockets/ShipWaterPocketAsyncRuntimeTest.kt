@@ -0,0 +1,109 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import net.minecraft.SharedConstants
+import net.minecraft.server.Bootstrap
+import net.minecraft.world.phys.AABB
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+class ShipWaterPocketAsyncRuntimeTest {
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrapMinecraft() {
+            SharedConstants.tryDetectVersion()
+            Bootstrap.bootStrap()
+        }
+    }
+
+    @Test
+    fun cancelledJobStopsBeforeProducingResult() {
+        val sizeX = 24
+        val sizeY = 16
+        val sizeZ = 24
+        // A hollow box: one enclosed pocket inside a solid shell.
+        val solid =
+            ShapeWaterGeometry(fullSolid = true, refined = false, boxes = listOf(AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0)))
+        val empty = ShapeWaterGeometry(fullSolid = false, refined = false, boxes = emptyList())
+        val shapes = Array(sizeX * sizeY * sizeZ) { idx ->
+            val x = idx % sizeX
+            val y = (idx / sizeX) % sizeY
+            val z = idx / (sizeX * sizeY)
+            val shell = x == 0 || y == 0 || z == 0 || x == sizeX - 1 || y == sizeY - 1 || z == sizeZ - 1
+            if (shell) solid else empty
+        }
+        val cancellation = ShipPocketJobCancellation()
+        cancellation.cancel()
+
+        assertThrows(CancellationException::class.java) {
+            computeGeometryAsync(geometrySnapshot(sizeX, sizeY, sizeZ, shapes), cancellation)
+        }
+        // The same snapshot still completes when nobody cancels it.
+        assertNotNull(computeGeometryAsync(geometrySnapshot(sizeX, sizeY, sizeZ, shapes)).incrementalBase)
+    }
+
+    @Test
+    fun slicedJobResumesWherePreviousSlicePaused() {
+        val steps = 10 * (CANCELLATION_POLL_MASK + 1)
+        val job = ShipPocketSlicedJob { cancellation ->
+            var sum = 0L
+            for (i in 0 until steps) {
+                if ((i and CANCELLATION_POLL_MASK) == 0) cancellation.throwIfCancelled()
+                sum += i
+            }
+            sum
+        }
+        // A zero budget pauses the job at every poll, so it only completes across many slices.
+        while (!job.runSlice(0L)) {
+            assertTrue(job.slices <= steps)
+        }
+        assertTrue(job.slices > 1)
+        assertEquals(steps.toLong() * (steps - 1) / 2, job.result())
+    }
+
+    @Test
+    fun cancellingTheFutureStopsARunningJob() {
+        val started = CountDownLatch(1)
+        val stopped = CountDownLatch(1)
+        val polls = AtomicLong()
+        val cancelledBefore = ShipPocketAsyncRuntime.cancelled(ShipPocketAsyncSubsystem.CLIENT_CULL)
+        val pendingBefore = ShipPocketAsyncRuntime.pendingJobCount()
+        val future = ShipPocketAsyncRuntime.trySubmitCancellable(ShipPocketAsyncSubsystem.CLIENT_CULL) { cancellation ->
+            try {
+                started.countDown()
+                // Spins for a minute unless the cancellation stops it.
+                val deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1)
+                while (System.nanoTime() < deadline) {
+                    cancellation.throwIfCancelled()
+                    polls.incrementAndGet()
+                }
+            } finally {
+                stopped.countDown()
+            }
+        }
+        assertNotNull(future)
+        assertTrue(started.await(10, TimeUnit.SECONDS))
+        assertTrue(future!!.cancel(true))
+
+        assertTrue(stopped.await(10, TimeUnit.SECONDS), "job kept running after its future was cancelled")
+        val pollsAtStop = polls.get()
+        Thread.sleep(50)
+        assertEquals(pollsAtStop, polls.get())
+        assertTrue(future.isCancelled)
+        // The worker unwinds through its poll, so the runtime books the job as cancelled and frees its pending slot.
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10)
+        while (ShipPocketAsyncRuntime.cancelled(ShipPocketAsyncSubsystem.CLIENT_CULL) == cancelledBefore) {
+            assertTrue(System.nanoTime() < deadline, "cancelled job was never counted")
+            Thread.sleep(1)
+        }
+        assertEquals(pendingBefore, ShipPocketAsyncRuntime.pendingJobCount())
+    }
+}
@@ -0,0 +1,132 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import net.minecraft.SharedConstants
+import net.minecraft.server.Bootstrap
+import net.minecraft.world.level.block.Blocks
+import net.minecraft.world.level.block.state.BlockState
+import net.minecraft.world.phys.AABB
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+
+class ShipWaterPocketBrickGeometryTest {
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrapMinecraft() {
+            SharedConstants.tryDetectVersion()
+            Bootstrap.bootStrap()
+        }
+
+        private val EMPTY = ShapeWaterGeometry(fullSolid = false, refined = false, boxes = emptyList())
+        private val FULL = ShapeWaterGeometry(fullSolid = true, refined = false, boxes = listOf(AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0)))
+        private val SLAB = ShapeWaterGeometry(fullSolid = false, refined = false, boxes = listOf(AABB(0.0, 0.0, 0.0, 1.0, 0.5, 1.0)))
+    }
+
+    private class BrickedVolume(
+        val shapes: Array<ShapeWaterGeometry>,
+        val blockStates: Array<BlockState>,
+        val bricks: GeometryBrickGrid,
+    )
+
+    // Unaligned bounds so bricks get clipped on every side.
+    private val sizeX = 27
+    private val sizeY = 20
+    private val sizeZ = 23
+
+    @Test
+    fun brickedRebuildMatchesPerVoxelRebuild() {
+        for (seed in 0 until 16) {
+            val volume = randomBrickedVolume(seed)
+            val perVoxel = computeGeometryAsync(snapshot(volume, bricks = null))
+            val bricked = computeGeometryAsync(snapshot(volume, bricks = volume.bricks))
+            assertGeometryEquals(perVoxel, bricked, "seed=$seed")
+        }
+    }
+
+    @Test
+    fun slabParallelRebuildMatchesSequentialRebuild() {
+        for (seed in 0 until 16) {
+            val volume = randomBrickedVolume(seed)
+            val sequential = computeGeometryAsync(snapshot(volume, bricks = null))
+            for (slabs in intArrayOf(2, 3, 7)) {
+                val parallel = computeGeometryAsync(snapshot(volume, bricks = null, maxParallelSlabs = slabs))
+                assertGeometryEquals(sequential, parallel, "seed=$seed slabs=$slabs")
+                val parallelBricked =
+                    computeGeometryAsync(snapshot(volume, bricks = volume.bricks, maxParallelSlabs = slabs))
+                assertGeometryEquals(sequential, parallelBricked, "seed=$seed slabs=$slabs bricked")
+            }
+        }
+    }
+
+    private fun randomBrickedVolume(seed: Int): BrickedVolume {
+        val originX = -5
+        val originY = -3
+        val originZ = -9
+        val countX = (sizeX - originX + 15) / 16
+        val countY = (sizeY - originY + 15) / 16
+        val countZ = (sizeZ - originZ + 15) / 16
+        val volume = sizeX * sizeY * sizeZ
+        val registry = ShipWaterPocketShapeCache.current()
+
+        val random = Random(seed)
+        val shapes = Array(volume) { EMPTY }
+        val blockStates = Array<BlockState>(volume) { Blocks.AIR.defaultBlockState() }
+        val uniformStates = arrayOfNulls<BlockState>(countX * countY * countZ)
+        val uniformShapes = arrayOfNulls<ShapeWaterGeometry>(uniformStates.size)
+        for (brick in uniformStates.indices) {
+            when (random.nextInt(4)) {
+                0 -> {
+                    uniformStates[brick] = Blocks.AIR.defaultBlockState()
+                    uniformShapes[brick] = EMPTY
+                }
+                1 -> {
+                    uniformStates[brick] = Blocks.STONE.defaultBlockState()
+                    uniformShapes[brick] = FULL
+                }
+                2 -> {
+                    uniformStates[brick] = Blocks.WATER.defaultBlockState()
+                    uniformShapes[brick] = EMPTY
+                }
+            }
+        }
+
+        val bricks = GeometryBrickGrid(originX, originY, originZ, countX, countY, countZ, uniformStates)
+        forEachGeometryBrick(bricks, sizeX, sizeY, sizeZ) { brick, x0, y0, z0, x1, y1, z1 ->
+            val uniformShape = uniformShapes[brick]
+            if (uniformShape != null) bricks.uniformTemplateId[brick] = registry.intern(uniformShape)
+            for (z in z0 until z1) {
+                for (y in y0 until y1) {
+                    for (x in x0 until x1) {
+                        val idx = x + sizeX * (y + sizeY * z)
+                        if (uniformShape != null) {
+                            shapes[idx] = uniformShape
+                            blockStates[idx] = uniformStates[brick]!!
+                        } else {
+                            shapes[idx] = when (random.nextInt(4)) {
+                                0 -> EMPTY
+                                1 -> SLAB
+                                else -> FULL
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return BrickedVolume(shapes, blockStates, bricks)
+    }
+
+    private fun snapshot(
+        volume: BrickedVolume,
+        bricks: GeometryBrickGrid?,
+        maxParallelSlabs: Int = 1,
+    ): GeometryAsyncSnapshot = geometrySnapshot(
+        sizeX,
+        sizeY,
+        sizeZ,
+        volume.shapes.copyOf(),
+        volume.blockStates.copyOf(),
+        bricks = bricks,
+        maxParallelSlabs = maxParallelSlabs,
+    )
+}
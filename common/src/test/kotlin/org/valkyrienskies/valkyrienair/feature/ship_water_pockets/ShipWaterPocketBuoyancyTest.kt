@@ -0,0 +1,45 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+
+class ShipWaterPocketBuoyancyTest {
+    @Test
+    fun buoyancyProfileFollowsFloodPlaneAndKeepsSolveTimeAirOtherwise() {
+        val profiles = BuoyancyComponentProfiles(geometryRevision = 3L)
+        // Component 0: a fully submerged 4-cell column, the bottom cell already flooded at solve time.
+        profiles.beginComponent(0)
+        for (y in 3 downTo 0) {
+            profiles.addCell(height = y + 0.5, weight = 1.0, x = 0.5, y = y + 0.5, z = 0.5, displacing = y > 0)
+        }
+        profiles.endComponent()
+        // Component 7: nothing submerged, so it is dropped.
+        profiles.beginComponent(7)
+        profiles.endComponent()
+        // Component 9: a half-covered cell.
+        profiles.beginComponent(9)
+        profiles.addCell(height = 0.5, weight = 0.5, x = 4.5, y = 0.5, z = 0.5, displacing = true)
+        profiles.endComponent()
+        profiles.finish()
+        assertEquals(2, profiles.componentCount)
+
+        val planes = Int2DoubleOpenHashMap()
+        val out = BuoyancyMetrics()
+        profiles.accumulateAir(planes, 64.0, 1e-4, out)
+        assertEquals(3.5, out.submergedAirVolume, 1e-9)
+        assertEquals(1.5 + 2.5 + 3.5 + 0.25, out.submergedAirSumY, 1e-9)
+
+        // Water has risen past the second cell of component 0.
+        planes.put(0, 65.5)
+        profiles.accumulateAir(planes, 64.0, 1e-4, out)
+        assertEquals(2.5, out.submergedAirVolume, 1e-9)
+        assertEquals(2.5 + 3.5 + 0.25, out.submergedAirSumY, 1e-9)
+        assertEquals(0.5 + 0.5 + 2.25, out.submergedAirSumX, 1e-9)
+
+        // The ship has since sunk one block under the same plane: one more cell is flooded.
+        profiles.accumulateAir(planes, 63.0, 1e-4, out)
+        assertEquals(1.5, out.submergedAirVolume, 1e-9)
+        assertEquals(3.5 + 0.25, out.submergedAirSumY, 1e-9)
+    }
+}
@@ -23,10 +23,10 @@ class ShipWaterPocketDomainTest {
             clear(interiorIdx)
         }
 
-        val faceCondXP = ShortArray(volume)
-        faceCondXP[boundaryIdx] = MIN_OPENING_CONDUCTANCE.toShort()
-        val faceCondYP = ShortArray(volume)
-        val faceCondZP = ShortArray(volume)
+        val faceCondXP = ByteArray(volume)
+        faceCondXP[boundaryIdx] = MIN_OPENING_CONDUCTANCE.toByte()
+        val faceCondYP = ByteArray(volume)
+        val faceCondZP = ByteArray(volume)
 
         val first = computeOutsideVoidFromGeometry(
             open = open,
@@ -0,0 +1,53 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.BitSet
+
+class ShipWaterPocketFillOrderTest {
+    @Test
+    fun floodFillOrderPopsCellsBelowThePlaneAcrossSmallRotations() {
+        val sizeY = 4
+        val order = FloodFillOrder(
+            simulationDomain = BitSet().apply { set(0, sizeY) },
+            geometryRevision = 1L,
+            waterReachable = BitSet().apply { set(0, sizeY) },
+            sizeX = 1,
+            sizeY = sizeY,
+            sizeZ = 1,
+            builtIncX = 0.0,
+            builtIncY = 1.0,
+            builtIncZ = 0.0,
+        )
+        // A 1x4x1 upright column, added top-down to exercise the sort.
+        order.beginComponent(rep = 0, lowestCell = 0, submergedHoleFaces = 2)
+        for (y in sizeY - 1 downTo 0) order.addCell(indexOf(1, sizeY, x = 0, y = y, z = 0))
+        order.endComponent()
+        assertEquals(1, order.componentCount)
+
+        val materialized = BitSet().apply { set(0) }
+        assertTrue(order.advance(0, materialized))
+        assertEquals(3.5, order.topHeight(0), 1e-9)
+
+        val toAdd = BitSet()
+        order.collectMissingAtOrBelow(0, 2.0, materialized, toAdd)
+        assertEquals(BitSet().apply { set(1) }, toAdd)
+
+        // Tilting shrinks heights by up to 0.4 blocks; the cell at 2.5 now sits at 2.25 and is picked up.
+        order.retarget(0.0, 0.9, 0.0)
+        assertEquals(0.4, order.heightSlack, 1e-9)
+        assertEquals(3.15, order.topHeight(0), 1e-9)
+        toAdd.clear()
+        order.collectMissingAtOrBelow(0, 2.3, materialized, toAdd)
+        assertEquals(BitSet().apply { set(1, 3) }, toAdd)
+
+        materialized.set(0, sizeY)
+        assertFalse(order.advance(0, materialized))
+    }
+
+    private fun indexOf(sizeX: Int, sizeY: Int, x: Int, y: Int, z: Int): Int {
+        return x + sizeX * (y + sizeY * z)
+    }
+}
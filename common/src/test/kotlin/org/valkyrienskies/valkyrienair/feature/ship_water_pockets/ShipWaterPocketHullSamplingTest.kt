@@ -0,0 +1,55 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.BitSet
+
+class ShipWaterPocketHullSamplingTest {
+    @Test
+    fun submergedSolidWallsUnderDryFrontierAreNotDerivedDry() {
+        // A sealed 5x5x5 hull: solid walls on the AABB boundary, an open hold inside. No open cell touches the outside,
+        // so the open frontier is empty (dry) and only the shell sees the water.
+        val size = 5
+        val volume = size * size * size
+        val open = BitSet(volume)
+        for (z in 1 until size - 1) for (y in 1 until size - 1) for (x in 1 until size - 1) {
+            open.set(indexOf(size, x, y, z))
+        }
+        val simulation = open.clone() as BitSet
+
+        val frontier = computeHullSamplingFrontier(size, size, size, open, simulation)
+        val shell = computeHullSamplingShell(size, size, size, open, simulation)
+        assertTrue(frontier.isEmpty)
+        val boundary = BitSet(volume).apply { set(0, volume) }.also { it.andNot(open) }
+        assertEquals(boundary, shell)
+
+        // Water up to Y = 2 with an identity transform: the floor and the lower walls are submerged.
+        assertEquals(HullSamplingMode.FLAT_SURFACE, summarize(size, frontier, shell, surfaceY = 2.0).mode(0.125))
+        // The same hull well above the water is dry everywhere.
+        assertEquals(HullSamplingMode.DRY, summarize(size, frontier, shell, surfaceY = -3.0).mode(0.125))
+        // Resting on terrain: the water surface is above the floor, but the floor itself samples dry.
+        val onTerrain = summarize(size, frontier, shell, surfaceY = 2.0, dryBelowY = 1.0)
+        assertEquals(HullSamplingMode.FULL, onTerrain.mode(0.125))
+    }
+
+    private fun summarize(
+        size: Int,
+        frontier: BitSet,
+        shell: BitSet,
+        surfaceY: Double,
+        dryBelowY: Double = Double.NEGATIVE_INFINITY,
+    ): HullSampleSummary {
+        val summary = HullSampleSummary()
+        val sampled = (frontier.clone() as BitSet).also { it.or(shell) }
+        var idx = sampled.nextSetBit(0)
+        while (idx >= 0) {
+            val centerY = (idx / size) % size + 0.5
+            if (centerY < surfaceY && centerY >= dryBelowY) summary.addWet(1, surfaceY) else summary.addDry(centerY)
+            idx = sampled.nextSetBit(idx + 1)
+        }
+        return summary
+    }
+
+    private fun indexOf(size: Int, x: Int, y: Int, z: Int): Int = x + size * (y + size * z)
+}
@@ -0,0 +1,193 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import net.minecraft.SharedConstants
+import net.minecraft.server.Bootstrap
+import net.minecraft.world.level.block.Blocks
+import net.minecraft.world.level.block.state.BlockState
+import net.minecraft.world.phys.AABB
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+
+class ShipWaterPocketIncrementalGeometryTest {
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrapMinecraft() {
+            SharedConstants.tryDetectVersion()
+            Bootstrap.bootStrap()
+        }
+
+        private val SHAPES = listOf(
+            ShapeWaterGeometry(fullSolid = false, refined = false, boxes = emptyList()),
+            ShapeWaterGeometry(fullSolid = true, refined = false, boxes = listOf(AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0))),
+            ShapeWaterGeometry(fullSolid = false, refined = false, boxes = listOf(AABB(0.0, 0.0, 0.0, 1.0, 0.5, 1.0))),
+            ShapeWaterGeometry(fullSolid = false, refined = true, boxes = listOf(AABB(0.0, 0.0, 0.0, 0.125, 1.0, 1.0))),
+            // Splits the cell into two open components (below and above a mid-height plate).
+            ShapeWaterGeometry(fullSolid = false, refined = false, boxes = listOf(AABB(0.0, 0.375, 0.0, 1.0, 0.625, 1.0))),
+        )
+    }
+
+    @Test
+    fun incrementalRebuildMatchesFullRebuild() {
+        val sizeX = 7
+        val sizeY = 6
+        val sizeZ = 8
+        val volume = sizeX * sizeY * sizeZ
+
+        for (seed in 0 until 24) {
+            val random = Random(seed)
+            val shapes = Array(volume) { randomHullShape(random) }
+            val blockStates = Array<BlockState>(volume) { Blocks.AIR.defaultBlockState() }
+
+            var previous =
+                computeGeometryAsync(geometrySnapshot(sizeX, sizeY, sizeZ, shapes.copyOf(), blockStates.copyOf()))
+
+            // Chain several edits so incremental results are themselves used as the next base.
+            repeat(4) {
+                val base = previous.incrementalBase
+                assertNotNull(base)
+
+                val dirty = (0 until 1 + random.nextInt(6)).map { random.nextInt(volume) }.distinct().sorted()
+                for (idx in dirty) {
+                    shapes[idx] = SHAPES[random.nextInt(SHAPES.size)]
+                    if (random.nextInt(4) == 0) {
+                        blockStates[idx] = Blocks.WATER.defaultBlockState()
+                    }
+                }
+
+                val incremental = computeGeometryAsync(
+                    geometrySnapshot(
+                        sizeX,
+                        sizeY,
+                        sizeZ,
+                        shapes.copyOf(),
+                        blockStates.copyOf(),
+                        dirtyIndices = dirty.toIntArray(),
+                        incrementalBase = base,
+                    )
+                )
+                val full =
+                    computeGeometryAsync(geometrySnapshot(sizeX, sizeY, sizeZ, shapes.copyOf(), blockStates.copyOf()))
+
+                assertGeometryEquals(full, incremental, "seed=$seed dirty=$dirty")
+                previous = incremental
+            }
+        }
+    }
+
+    @Test
+    fun openingEditReunionsOnlyItsNeighborhood() {
+        val sizeX = 12
+        val sizeY = 10
+        val sizeZ = 12
+        val volume = sizeX * sizeY * sizeZ
+        // A hollow 6x6x6 hull floating in open space: one big exterior component around a sealed hold.
+        val shapes = Array(volume) { idx ->
+            val x = idx % sizeX
+            val y = (idx / sizeX) % sizeY
+            val z = idx / (sizeX * sizeY)
+            val inHull = x in 3..8 && y in 2..7 && z in 3..8
+            val inHold = x in 4..7 && y in 3..6 && z in 4..7
+            if (inHull && !inHold) SHAPES[1] else SHAPES[0]
+        }
+        val blockStates = Array<BlockState>(volume) { Blocks.AIR.defaultBlockState() }
+        val before = computeGeometryAsync(geometrySnapshot(sizeX, sizeY, sizeZ, shapes.copyOf(), blockStates))
+
+        // Breaking a hull block only merges the hold into the exterior: nothing beyond its neighbors is re-unioned.
+        val hole = 3 + sizeX * (4 + sizeY * 5)
+        val opened = shapes.copyOf().also { it[hole] = SHAPES[0] }
+        val openedIncremental = computeGeometryAsync(
+            geometrySnapshot(sizeX, sizeY, sizeZ, opened, blockStates, intArrayOf(hole), before.incrementalBase)
+        )
+        val openedFull = computeGeometryAsync(geometrySnapshot(sizeX, sizeY, sizeZ, opened, blockStates))
+        assertGeometryEquals(openedFull, openedIncremental, "opened")
+        assertTrue(openedIncremental.incrementalReunionVoxels in 1..7, "${openedIncremental.incrementalReunionVoxels}")
+
+        // Placing a block next to the hull may split the exterior, so that whole component is re-unioned.
+        val placed = shapes.copyOf().also { it[hole - 1] = SHAPES[1] }
+        val placedIncremental = computeGeometryAsync(
+            geometrySnapshot(sizeX, sizeY, sizeZ, placed, blockStates, intArrayOf(hole - 1), before.incrementalBase)
+        )
+        val placedFull = computeGeometryAsync(geometrySnapshot(sizeX, sizeY, sizeZ, placed, blockStates))
+        assertGeometryEquals(placedFull, placedIncremental, "placed")
+        assertTrue(placedIncremental.incrementalReunionVoxels >= placedIncremental.exterior.cardinality())
+    }
+
+    @Test
+    fun boundsShiftRebuildMatchesFullRebuild() {
+        // Fixed "world" the ship bounds move around in; old and new bounds are sub-boxes of it.
+        val worldX = 20
+        val worldY = 16
+        val worldZ = 18
+        var remappedRuns = 0
+        for (seed in 0 until 24) {
+            val random = Random(seed)
+            val world = Array(worldX * worldY * worldZ) { randomHullShape(random) }
+            val oldMin = intArrayOf(1 + random.nextInt(2), 1 + random.nextInt(2), 1 + random.nextInt(2))
+            val oldSize = intArrayOf(16, 12, 14)
+            // Grow or shrink one face per axis by at most one block, like placing/breaking a block at the hull edge.
+            val newMin = IntArray(3) { oldMin[it] + random.nextInt(3) - 1 }
+            val newSize = IntArray(3) { oldSize[it] + (oldMin[it] - newMin[it]) + random.nextInt(3) - 1 }
+
+            val old = computeGeometryAsync(boxSnapshot(world, worldX, worldY, oldMin, oldSize))
+            val base = old.incrementalBase
+            assertNotNull(base)
+            val remapped = remapGeometryIncrementalBase(
+                base!!,
+                newMin[0],
+                newMin[1],
+                newMin[2],
+                newSize[0],
+                newSize[1],
+                newSize[2],
+                IntArray(0),
+            ) ?: continue
+            remappedRuns++
+
+            val full = computeGeometryAsync(boxSnapshot(world, worldX, worldY, newMin, newSize))
+            val incremental = computeGeometryAsync(
+                boxSnapshot(world, worldX, worldY, newMin, newSize).copy(
+                    dirtyIndices = remapped.second,
+                    incrementalBase = remapped.first,
+                )
+            )
+            val message = "seed=$seed old=${oldMin.toList()}+${oldSize.toList()} new=${newMin.toList()}+${newSize.toList()}"
+            assertGeometryEquals(full, incremental, message)
+        }
+        assertTrue(remappedRuns > 0, "every bounds shift fell back to a full rebuild")
+    }
+
+    private fun boxSnapshot(
+        world: Array<ShapeWaterGeometry>,
+        worldX: Int,
+        worldY: Int,
+        min: IntArray,
+        size: IntArray,
+    ): GeometryAsyncSnapshot {
+        val shapes = Array(size[0] * size[1] * size[2]) { idx ->
+            val x = min[0] + idx % size[0]
+            val y = min[1] + (idx / size[0]) % size[1]
+            val z = min[2] + idx / (size[0] * size[1])
+            world[x + worldX * (y + worldY * z)]
+        }
+        val blockStates = Array<BlockState>(shapes.size) { Blocks.AIR.defaultBlockState() }
+        return geometrySnapshot(
+            size[0], size[1], size[2], shapes, blockStates,
+            minX = min[0], minY = min[1], minZ = min[2],
+        )
+    }
+
+    private fun randomHullShape(random: Random): ShapeWaterGeometry {
+        // Mostly solid with scattered voids and partial shapes so both enclosed and leaky pockets appear.
+        return when (random.nextInt(10)) {
+            0, 1, 2 -> SHAPES[0]
+            3 -> SHAPES[2]
+            4 -> SHAPES[3]
+            5 -> SHAPES[4]
+            else -> SHAPES[1]
+        }
+    }
+}
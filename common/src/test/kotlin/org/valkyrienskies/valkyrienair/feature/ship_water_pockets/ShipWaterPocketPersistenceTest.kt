@@ -52,9 +52,9 @@ class ShipWaterPocketPersistenceTest {
             materializedWater = materialized,
             waterReachable = waterReachable,
             unreachableVoid = unreachableVoid,
-            faceCondXP = ShortArray(volume),
-            faceCondYP = ShortArray(volume),
-            faceCondZP = ShortArray(volume),
+            faceCondXP = ByteArray(volume),
+            faceCondYP = ByteArray(volume),
+            faceCondZP = ByteArray(volume),
             voxelExteriorComponentMask = longArrayOf(0x01),
             voxelInteriorComponentMask = longArrayOf(0x02),
             voxelSimulationComponentMask = longArrayOf(0x04),
@@ -68,6 +68,45 @@ class ShipWaterPocketPersistenceTest {
         assertFalse(loaded.requiresResave)
     }
 
+    @Test
+    fun restoredStateKeepsConductanceAndPacksVoxelFlags() {
+        val sizeX = 3
+        val sizeY = 2
+        val sizeZ = 2
+        val volume = sizeX * sizeY * sizeZ
+        val open = bitSetOf(0, 1, 2, 4, 7, 9, 10)
+        val simulationDomain = bitSetOf(1, 4, 7)
+        val outsideVoid = bitSetOf(0, 2, 9, 10)
+        val faceCondXP = ByteArray(volume) { (it * 5 % 65).toByte() }
+        val faceCondYP = ByteArray(volume) { (if (it % 2 == 0) 64 else 0).toByte() }
+        val faceCondZP = ByteArray(volume) { MIN_OPENING_CONDUCTANCE.toByte() }
+
+        val persisted = basePersistedState(
+            sizeX = sizeX,
+            sizeY = sizeY,
+            sizeZ = sizeZ,
+            open = open,
+            simulationDomain = simulationDomain,
+            outsideVoid = outsideVoid,
+            faceCondXP = faceCondXP,
+            faceCondYP = faceCondYP,
+            faceCondZP = faceCondZP,
+        )
+        val loaded = persistAndLoad(persisted, shipId = 104L)
+        assertTrue(faceCondXP.contentEquals(loaded.faceCondXP))
+        assertTrue(faceCondYP.contentEquals(loaded.faceCondYP))
+        assertTrue(faceCondZP.contentEquals(loaded.faceCondZP))
+
+        val state = ShipPocketState()
+        applyPersistedState(state, loaded)
+        for (idx in 0 until volume) {
+            assertEquals(state.open.get(idx), isOpenVoxel(state, idx), "open idx=$idx")
+            assertEquals(state.simulationDomain.get(idx), isSimulationVoxel(state, idx), "simulation idx=$idx")
+            assertEquals(state.strictInterior.get(idx), isStrictInteriorVoxel(state, idx), "interior idx=$idx")
+            assertEquals(state.outsideVoid.get(idx), isOutsideVoidVoxel(state, idx), "outsideVoid idx=$idx")
+        }
+    }
+
     @Test
     fun v2LoadReconstructsOutsideVoidFromGeometry() {
         val sizeX = 3
@@ -82,8 +121,8 @@ class ShipWaterPocketPersistenceTest {
             clear(boundaryIdx)
             clear(interiorIdx)
         }
-        val faceCondXP = ShortArray(volume)
-        faceCondXP[boundaryIdx] = MIN_OPENING_CONDUCTANCE.toShort()
+        val faceCondXP = ByteArray(volume)
+        faceCondXP[boundaryIdx] = MIN_OPENING_CONDUCTANCE.toByte()
 
         val persisted = basePersistedState(
             sizeX = sizeX,
@@ -93,8 +132,8 @@ class ShipWaterPocketPersistenceTest {
             simulationDomain = simulationDomain,
             outsideVoid = BitSet(),
             faceCondXP = faceCondXP,
-            faceCondYP = ShortArray(volume),
-            faceCondZP = ShortArray(volume),
+            faceCondYP = ByteArray(volume),
+            faceCondZP = ByteArray(volume),
         )
 
         val loaded = persistAndLoad(persisted, shipId = 202L, formatVersion = 2)
@@ -126,9 +165,9 @@ class ShipWaterPocketPersistenceTest {
             open = open,
             simulationDomain = simulationDomain,
             outsideVoid = BitSet(),
-            faceCondXP = ShortArray(1),
-            faceCondYP = ShortArray(1),
-            faceCondZP = ShortArray(1),
+            faceCondXP = ByteArray(1),
+            faceCondYP = ByteArray(1),
+            faceCondZP = ByteArray(1),
         )
 
         val loaded = persistAndLoad(persisted, shipId = 303L, formatVersion = 2)
@@ -173,9 +212,9 @@ class ShipWaterPocketPersistenceTest {
             materializedWater = materialized,
             waterReachable = waterReachable,
             unreachableVoid = unreachableVoid,
-            faceCondXP = ShortArray(volume),
-            faceCondYP = ShortArray(volume),
-            faceCondZP = ShortArray(volume),
+            faceCondXP = ByteArray(volume),
+            faceCondYP = ByteArray(volume),
+            faceCondZP = ByteArray(volume),
             voxelExteriorComponentMask = LongArray(0),
             voxelInteriorComponentMask = LongArray(0),
             voxelSimulationComponentMask = LongArray(0),
@@ -225,9 +264,9 @@ class ShipWaterPocketPersistenceTest {
         open: BitSet,
         simulationDomain: BitSet,
         outsideVoid: BitSet,
-        faceCondXP: ShortArray,
-        faceCondYP: ShortArray,
-        faceCondZP: ShortArray,
+        faceCondXP: ByteArray,
+        faceCondYP: ByteArray,
+        faceCondZP: ByteArray,
     ): PersistedShipPocketState {
         val strictInterior = simulationDomain.clone() as BitSet
         val exterior = open.clone() as BitSet
@@ -0,0 +1,66 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class ShipWaterPocketPressureTest {
+    @Test
+    fun pressurizedFloodPlaneMatchesBruteForceEquilibrium() {
+        // A 12-cell shaft, flooded from a submerged opening at its bottom, 40 blocks below the exterior surface.
+        val cellY = DoubleArray(12) { it + 0.5 }
+        val waterLevel = 0.0
+        val surfaceY = 40.0
+        val density = 1000.0
+
+        fun target(plane: Double): Double {
+            val air = cellY.count { it > plane + 1e-7 }.toDouble()
+            val pAir = cellY.size / maxOf(air, 0.25).coerceAtMost(cellY.size.toDouble())
+            return maxOf(waterLevel, surfaceY - (pAir - 1.0) / (density * 1e-4)).coerceAtMost(surfaceY)
+        }
+
+        var expected = surfaceY
+        var plane = waterLevel
+        while (plane <= surfaceY) {
+            if (target(plane) < plane) {
+                expected = plane
+                break
+            }
+            plane += 1e-3
+        }
+
+        val solved = solvePressurizedFloodPlane(cellY, cellY.size, waterLevel, surfaceY, density)
+        assertEquals(expected, solved, 2e-3)
+        assertTrue(solved > waterLevel && solved < surfaceY)
+    }
+
+    @Test
+    fun cachedHeightOrderStaysSortedAcrossRotations() {
+        val sizeX = 6
+        val sizeY = 5
+        val sizeZ = 4
+        // Every cell of the box in reverse index order, so the first call has to sort from scratch.
+        val cells = IntArray(sizeX * sizeY * sizeZ) { sizeX * sizeY * sizeZ - 1 - it }
+        val order = PocketHeightOrder(sizeX, sizeY)
+        val out = DoubleArray(cells.size)
+
+        fun expected(baseY: Double, incX: Double, incY: Double, incZ: Double): DoubleArray =
+            DoubleArray(cells.size) { i ->
+                val idx = cells[i]
+                val t = idx / sizeX
+                baseY + incX * (idx % sizeX + 0.5) + incY * (t % sizeY + 0.5) + incZ * (t / sizeY + 0.5)
+            }.also { it.sort() }
+
+        // Upright, then translated, slightly rolled, and finally upside down: each reuses the cached order.
+        for ((baseY, incX, incY, incZ) in listOf(
+            listOf(64.0, 0.0, 1.0, 0.0),
+            listOf(70.25, 0.0, 1.0, 0.0),
+            listOf(70.25, 0.05, 0.99, -0.03),
+            listOf(80.0, 0.3, -0.9, 0.2),
+        )) {
+            order.sortedHeights(0, cells, cells.size, baseY, incX, incY, incZ, out)
+            assertArrayEquals(expected(baseY, incX, incY, incZ), out)
+        }
+    }
+}
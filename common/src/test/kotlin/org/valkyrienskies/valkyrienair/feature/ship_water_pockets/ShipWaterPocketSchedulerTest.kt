@@ -0,0 +1,84 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class ShipWaterPocketSchedulerTest {
+    @Test
+    fun submissionBudgetGoesToShipsNearPlayersBeforeIdleFarShips() {
+        val idleFar = ShipSolveScheduleInputs(
+            nearestPlayerDistance = 500.0,
+            linearSpeed = 0.0,
+            angularSpeed = 0.0,
+            submerged = false,
+            floodQueueBacklog = 0,
+            ticksSinceLastSolve = 20L,
+        )
+        val nearSub = idleFar.copy(nearestPlayerDistance = 8.0, submerged = true, ticksSinceLastSolve = 1L)
+        assertEquals(20L, targetSolveIntervalTicks(idleFar))
+        assertEquals(1L, targetSolveIntervalTicks(nearSub))
+
+        val queue = ShipPocketSubmissionQueue<String>()
+        queue.add(solvePriority(idleFar, targetSolveIntervalTicks(idleFar)), "idleFar")
+        queue.add(solvePriority(nearSub, targetSolveIntervalTicks(nearSub)), "nearSub")
+        val submitted = ArrayList<String>()
+        val deferred = queue.drain(1) { submitted.add(it) }
+        assertEquals(listOf("nearSub"), submitted)
+        assertEquals(1, deferred)
+        assertEquals(0, queue.size)
+    }
+
+    @Test
+    fun gravityResettlesWakeFrontiersFirstWithinTheLevelBudget() {
+        val far = ShipSolveScheduleInputs(
+            nearestPlayerDistance = 500.0,
+            linearSpeed = 0.0,
+            angularSpeed = 0.0,
+            submerged = true,
+            floodQueueBacklog = 0,
+            ticksSinceLastSolve = 1L,
+        )
+        val mid = far.copy(nearestPlayerDistance = 120.0)
+        val aboard = far.copy(nearestPlayerDistance = 0.0)
+        assertTrue(resettlePriority(aboard) > resettlePriority(mid))
+        assertTrue(resettlePriority(mid) > resettlePriority(far))
+        assertTrue(resettlePriority(far.copy(angularSpeed = 1.0)) > resettlePriority(far))
+
+        // Each ship needs 3 fluid ticks for its frontier water, then 3 for its enclosed water.
+        class Ship(val name: String, var frontierLeft: Int = 3, var interiorLeft: Int = 3)
+        val queue = ShipPocketSubmissionQueue<Ship>()
+        queue.add(resettlePriority(far), Ship("far"))
+        queue.add(resettlePriority(aboard), Ship("aboard"))
+        queue.add(resettlePriority(mid), Ship("mid"))
+
+        val budget = ResettleBudget(fluidTicks = 11, scanCells = 1_000)
+        val passes = ArrayList<String>()
+        val backlog = drainGravityResettlePasses(
+            queue.takeInPriorityOrder(),
+            budget,
+            pending = { it.frontierLeft + it.interiorLeft > 0 },
+        ) { ship, interiorPass ->
+            if (interiorPass && ship.frontierLeft > 0) return@drainGravityResettlePasses
+            val ticks = minOf(if (interiorPass) ship.interiorLeft else ship.frontierLeft, budget.fluidTicks)
+            if (interiorPass) ship.interiorLeft -= ticks else ship.frontierLeft -= ticks
+            budget.fluidTicks -= ticks
+            budget.scanCells -= ticks
+            passes.add("${ship.name}:${if (interiorPass) "interior" else "frontier"}")
+        }
+        assertEquals(
+            listOf("aboard:frontier", "mid:frontier", "far:frontier", "aboard:interior"),
+            passes,
+        )
+        assertEquals(0, budget.fluidTicks)
+        // "aboard" got one interior tick short of done, the other two never started their enclosed water.
+        assertEquals(3, backlog)
+
+        val metrics = ResettleBacklogMetrics()
+        metrics.record(backlog)
+        metrics.record(1)
+        metrics.record(0)
+        assertEquals(4L, metrics.backlogShipTicks)
+        assertEquals(3L, metrics.backlogHighWater)
+    }
+}
@@ -0,0 +1,65 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotSame
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.BitSet
+
+class ShipWaterPocketScratchTest {
+    @Test
+    fun nestedFramesStackAndReleaseInOrder() {
+        val scratch = ShipPocketScratchMasks()
+        scratch.frame { outer ->
+            val a = outer.take().apply { set(3) }
+            val (b, c) = outer.frame { inner -> inner.take() to inner.copyOf(a) }
+            assertNotSame(a, b)
+            assertNotSame(b, c)
+            assertEquals(a, c)
+            // The inner frame's masks went back to the pool, cleared on the next take, while the outer one is kept.
+            val again = outer.take()
+            assertSame(b, again)
+            assertTrue(again.isEmpty)
+            assertEquals(BitSet().apply { set(3) }, a)
+        }
+        // A frame left by an exception still hands its masks back.
+        val first = scratch.frame { it.take() }
+        assertThrows(IllegalArgumentException::class.java) {
+            scratch.frame {
+                it.take()
+                throw IllegalArgumentException()
+            }
+        }
+        assertSame(first, scratch.frame { it.take() })
+    }
+
+    @Test
+    fun reusedFramesDoNotAllocate() {
+        val scratch = ShipPocketScratchMasks()
+        val source = BitSet().apply { set(0, 1 shl 16, true) }
+        fun pass(): Int = scratch.frame { it.take().cardinality() + it.copyOf(source).cardinality() }
+        // The first pass grows the pooled masks to the source's size.
+        assertEquals(1 shl 16, pass())
+
+        var total = 0L
+        val bytes = allocatedBytes {
+            repeat(10_000) { total += pass() }
+        }
+        assertEquals(10_000L shl 16, total)
+        assertTrue(bytes < 4_096, "scratch frames allocated $bytes bytes")
+    }
+
+    @Test
+    fun releasingAnOuterFrameBeforeAnInnerOneFails() {
+        val scratch = ShipPocketScratchMasks()
+        val outer = scratch.mark()
+        scratch.take()
+        val inner = scratch.mark()
+        scratch.take()
+        scratch.release(outer)
+        val failure = assertThrows(IllegalStateException::class.java) { scratch.release(inner) }
+        assertEquals("Scratch frames released out of order", failure.message)
+    }
+}
@@ -0,0 +1,58 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import net.minecraft.SharedConstants
+import net.minecraft.core.BlockPos
+import net.minecraft.server.Bootstrap
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+class ShipWaterPocketStateAccessTest {
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun bootstrapMinecraft() {
+            SharedConstants.tryDetectVersion()
+            Bootstrap.bootStrap()
+        }
+    }
+
+    @Test
+    fun classifyingPointsDoesNotAllocate() {
+        // A 4x4x4 volume: solid shell around an open 2x2x2 interior.
+        val state = ShipPocketState(minX = 10, minY = 20, minZ = 30, sizeX = 4, sizeY = 4, sizeZ = 4)
+        for (z in 1..2) for (y in 1..2) for (x in 1..2) {
+            val idx = indexOf(state, x, y, z)
+            state.open.set(idx)
+            state.strictInterior.set(idx)
+        }
+        val pos = BlockPos.MutableBlockPos()
+        // First pass outside the measurement: class initialization allocates.
+        assertEquals(8, classifyEveryCell(state, pos))
+
+        var interior = 0
+        val bytes = allocatedBytes {
+            repeat(1_000) { interior += classifyEveryCell(state, pos) }
+        }
+        assertEquals(8_000, interior)
+        // Solid cells take the epsilon path (26 neighbour probes each), so any per-call boxing would cost megabytes.
+        assertTrue(bytes < 4_096, "classification allocated $bytes bytes")
+    }
+
+    // Classifies the center of every cell; returns how many are interior void.
+    private fun classifyEveryCell(state: ShipPocketState, pos: BlockPos.MutableBlockPos): Int {
+        var interior = 0
+        for (idx in 0 until state.sizeX * state.sizeY * state.sizeZ) {
+            val x = state.minX + idx % state.sizeX + 0.5
+            val y = state.minY + (idx / state.sizeX) % state.sizeY + 0.5
+            val z = state.minZ + idx / (state.sizeX * state.sizeY) + 0.5
+            val classification = classifyShipPointWithEpsilon(state, x, y, z, pos)
+            if (classification.kind == PointVoidClass.INTERIOR_VOID) {
+                assertEquals(idx, classification.voxelIndex)
+                interior++
+            }
+        }
+        return interior
+    }
+}
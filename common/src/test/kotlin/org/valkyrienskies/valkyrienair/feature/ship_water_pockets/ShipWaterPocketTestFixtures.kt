@@ -0,0 +1,85 @@
+package org.valkyrienskies.valkyrienair.feature.ship_water_pockets
+
+import net.minecraft.world.level.block.Blocks
+import net.minecraft.world.level.block.state.BlockState
+import net.minecraft.world.level.material.Fluids
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Assumptions.assumeTrue
+import java.lang.management.ManagementFactory
+import java.util.BitSet
+
+/** Bytes the current thread allocated while running [block]; skips the calling test where the JVM cannot tell. */
+internal inline fun allocatedBytes(block: () -> Unit): Long {
+    val threads = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+    assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported && threads.isThreadAllocatedMemoryEnabled)
+    val thread = Thread.currentThread().id
+    val before = threads!!.getThreadAllocatedBytes(thread)
+    block()
+    return threads.getThreadAllocatedBytes(thread) - before
+}
+
+/** A geometry job snapshot of [shapes] as a first build (no previous bounds); needs a bootstrapped registry. */
+internal fun geometrySnapshot(
+    sizeX: Int,
+    sizeY: Int,
+    sizeZ: Int,
+    shapes: Array<ShapeWaterGeometry>,
+    blockStates: Array<BlockState> = Array(shapes.size) { Blocks.AIR.defaultBlockState() },
+    dirtyIndices: IntArray? = null,
+    incrementalBase: GeometryIncrementalBase? = null,
+    minX: Int = 0,
+    minY: Int = 0,
+    minZ: Int = 0,
+    bricks: GeometryBrickGrid? = null,
+    maxParallelSlabs: Int = 1,
+): GeometryAsyncSnapshot {
+    val registry = ShipWaterPocketShapeCache.current()
+    return GeometryAsyncSnapshot(
+        generation = 1L,
+        invalidationStamp = 0L,
+        geometrySignature = 0L,
+        minX = minX,
+        minY = minY,
+        minZ = minZ,
+        sizeX = sizeX,
+        sizeY = sizeY,
+        sizeZ = sizeZ,
+        prevMinX = 0,
+        prevMinY = 0,
+        prevMinZ = 0,
+        prevSizeX = 0,
+        prevSizeY = 0,
+        prevSizeZ = 0,
+        prevSimulationDomain = BitSet(),
+        floodFluid = Fluids.WATER,
+        blockStates = blockStates,
+        shapeGeometry = shapes,
+        templateIds = IntArray(shapes.size) { registry.intern(shapes[it]) },
+        templateRegistry = registry,
+        bricks = bricks,
+        maxParallelSlabs = maxParallelSlabs,
+        dirtyIndices = dirtyIndices,
+        incrementalBase = incrementalBase,
+    )
+}
+
+/** Asserts that two geometry rebuilds produced the same masks, conductances and component assignments. */
+internal fun assertGeometryEquals(expected: GeometryAsyncResult, actual: GeometryAsyncResult, message: String) {
+    assertEquals(expected.open, actual.open, message)
+    assertEquals(expected.exterior, actual.exterior, message)
+    assertEquals(expected.strictInterior, actual.strictInterior, message)
+    assertEquals(expected.simulationDomain, actual.simulationDomain, message)
+    assertEquals(expected.outsideVoid, actual.outsideVoid, message)
+    assertEquals(expected.flooded, actual.flooded, message)
+    assertEquals(expected.materializedWater, actual.materializedWater, message)
+    assertArrayEquals(expected.faceCondXP, actual.faceCondXP, message)
+    assertArrayEquals(expected.faceCondYP, actual.faceCondYP, message)
+    assertArrayEquals(expected.faceCondZP, actual.faceCondZP, message)
+    assertTrue(expected.voxelExteriorComponentMask.contentEquals(actual.voxelExteriorComponentMask), message)
+    assertTrue(expected.voxelInteriorComponentMask.contentEquals(actual.voxelInteriorComponentMask), message)
+    assertTrue(expected.voxelSimulationComponentMask.contentEquals(actual.voxelSimulationComponentMask), message)
+    assertEquals(expected.componentGraphDegraded, actual.componentGraphDegraded, message)
+    assertArrayEquals(expected.templateIndexByVoxel, actual.templateIndexByVoxel, message)
+}